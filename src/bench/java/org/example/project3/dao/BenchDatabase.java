@@ -0,0 +1,67 @@
+package org.example.project3.dao;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Random;
+
+/**
+ * 벤치마크용 SQLite 파일 생성기.
+ * target/bench-db/stocks-{rows}.db 를 한 번 만들어 두고 이후 실행에서 재사용한다.
+ */
+public final class BenchDatabase {
+
+    private static final Path DIR = Paths.get("target", "bench-db");
+    private static final String[] WORDS = {"삼성", "전자", "하이닉스", "바이오", "화학", "금융", "지주", "건설",
+            "에너지", "모터스", "Tech", "Global", "Korea", "Holdings", "제약", "통신"};
+
+    private BenchDatabase() {}
+
+    /** rows 건짜리 DB 의 JDBC URL (없으면 생성) */
+    public static synchronized String ensure(int rows) throws Exception {
+        Files.createDirectories(DIR);
+        Path file = DIR.resolve("stocks-" + rows + ".db").toAbsolutePath();
+        String url = "jdbc:sqlite:" + file;
+        if (Files.exists(file)) return url;
+
+        Path tmp = DIR.resolve("stocks-" + rows + ".db.tmp").toAbsolutePath();
+        Files.deleteIfExists(tmp);
+        String tmpUrl = "jdbc:sqlite:" + tmp;
+        // 스키마(인덱스, FTS 트리거 포함)는 DAO 가 만든다
+        new StockDao(tmpUrl).close();
+        fill(tmpUrl, rows);
+        Files.move(tmp, file);
+        return url;
+    }
+
+    private static void fill(String url, int rows) throws SQLException {
+        Random rnd = new Random(42);
+        try (Connection c = DriverManager.getConnection(url);
+             PreparedStatement ps = c.prepareStatement(
+                     "INSERT INTO Stocks (stock_code, stock_name, create_date, pbr, per) VALUES (?, ?, ?, ?, ?)")) {
+            c.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                ps.setString(1, code(i));
+                ps.setString(2, WORDS[rnd.nextInt(WORDS.length)] + WORDS[rnd.nextInt(WORDS.length)] + " " + i);
+                ps.setString(3, String.format("2025-%02d-%02d %02d:%02d:%02d.%03d", 1 + rnd.nextInt(12),
+                        1 + rnd.nextInt(28), rnd.nextInt(24), rnd.nextInt(60), rnd.nextInt(60), rnd.nextInt(1000)));
+                if (rnd.nextInt(10) == 0) ps.setNull(4, Types.REAL); else ps.setDouble(4, rnd.nextDouble() * 5);
+                if (rnd.nextInt(10) == 0) ps.setNull(5, Types.REAL); else ps.setDouble(5, rnd.nextDouble() * 60 - 10);
+                ps.addBatch();
+                if (i % 10_000 == 9_999) ps.executeBatch();
+            }
+            ps.executeBatch();
+            c.commit();
+        }
+    }
+
+    /** i 번째 행의 종목코드 */
+    public static String code(int i) {
+        return String.format("%06d", i);
+    }
+}
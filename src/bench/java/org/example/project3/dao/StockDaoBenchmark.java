@@ -0,0 +1,102 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.StockDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StockDao 주요 경로 벤치마크.
+ * 예) mvn -Pbench test-compile exec:exec -Djmh.args="StockDaoBenchmark -p rows=1000,100000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockDaoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private StockDao dao;
+    /* mapList 에 넘길 ResultSet / 정리용 (DAO 내부 풀과 별개) */
+    private SqlitePool benchPool;
+    private final AtomicLong insertSeq = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String url = BenchDatabase.ensure(rows);
+        dao = new StockDao(url);
+        benchPool = new SqlitePool(url);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (SqlitePool.Lease l = benchPool.write()) {
+            l.prepare("DELETE FROM Stocks WHERE stock_code LIKE 'BENCH-%'").executeUpdate();
+        }
+        benchPool.close();
+        dao.close();
+    }
+
+    /** 캐시 적중 경로 (운영에서의 일반적인 목록 조회) */
+    @Benchmark
+    public List<StockDTO> findAllOrderByName() {
+        return dao.findAllOrderByName();
+    }
+
+    /** 캐시 미스 경로: 전체 읽기 + 이름순 정렬 */
+    @Benchmark
+    public List<StockDTO> findAllOrderByNameCold() {
+        dao.cache().invalidate();
+        return dao.findAllOrderByName();
+    }
+
+    /** FTS trigram 경로 (3글자 이상) */
+    @Benchmark
+    public List<StockDTO> searchTrigram() {
+        return dao.search("하이닉스");
+    }
+
+    /** LIKE 경로 (2글자 이하) */
+    @Benchmark
+    public List<StockDTO> searchShort() {
+        return dao.search("화학");
+    }
+
+    @Benchmark
+    public StockDTO findByCode() {
+        return dao.findByCode(BenchDatabase.code(ThreadLocalRandom.current().nextInt(rows)));
+    }
+
+    @Benchmark
+    public void insert() {
+        dao.insert(new StockDTO(null, "BENCH-" + insertSeq.incrementAndGet(), "벤치마크", 1.0, 10.0, null));
+    }
+
+    /** 1000행 ResultSet -> List<StockDTO> (쿼리 실행 포함) */
+    @Benchmark
+    public List<StockDTO> mapList1000() throws Exception {
+        try (SqlitePool.Lease l = benchPool.read()) {
+            PreparedStatement ps = l.prepare("SELECT id, stock_code, stock_name, pbr, per, create_date, version FROM Stocks LIMIT 1000");
+            try (ResultSet rs = ps.executeQuery()) {
+                return dao.mapList(rs);
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseDate(Blackhole bh) {
+        bh.consume(StockDao.parseDate("2025-11-05 17:28:20"));
+        bh.consume(StockDao.parseDate("2025-11-05 17:28:20.123"));
+        bh.consume(StockDao.parseDate("2025-11-05T17:28:20"));
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.project3.web;
+
+import org.example.project3.csv.CsvWriter;
+import org.example.project3.dao.BenchDatabase;
+import org.example.project3.dao.StockDao;
+import org.example.project3.dto.StockDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 전체 목록 직렬화 벤치마크 (JSON API / CSV 내보내기 응답 본문).
+ * 실제 응답처럼 UTF-8 인코딩까지 거치고, 출력은 버린다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListRenderBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private List<StockDTO> list;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        try (StockDao dao = new StockDao(BenchDatabase.ensure(rows))) {
+            list = dao.findAllOrderByName();
+        }
+    }
+
+    @Benchmark
+    public void renderJson() throws IOException {
+        Writer out = sink();
+        JsonWriter w = new JsonWriter(out);
+        w.beginArray();
+        for (StockDTO d : list) StockApiServlet.writeStock(w, d);
+        w.endArray();
+        out.flush();
+    }
+
+    @Benchmark
+    public void renderCsv() throws IOException {
+        Writer out = sink();
+        CsvWriter csv = new CsvWriter(out, ',');
+        for (StockDTO d : list) {
+            csv.field(d.getId()).field(d.getStockCode()).field(d.getStockName())
+                    .field(d.getPbr()).field(d.getPer()).field(d.getCreateDateText());
+            csv.endRecord();
+        }
+        out.flush();
+    }
+
+    private static Writer sink() {
+        return new BufferedWriter(new OutputStreamWriter(java.io.OutputStream.nullOutputStream(),
+                StandardCharsets.UTF_8), 8192);
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.project3.load;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.ApplicationParameter;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 패키징된 WAR 디렉터리(target/project3-1.0-SNAPSHOT)를 루트 컨텍스트로 띄우는 내장 Tomcat.
+ * contextParams 는 web.xml 의 같은 이름 context-param 보다 우선한다.
+ */
+final class EmbeddedServer implements AutoCloseable {
+
+    private final Tomcat tomcat = new Tomcat();
+
+    EmbeddedServer(Path webapp, Path baseDir, int port, Map<String, String> contextParams) {
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(port);
+        tomcat.getConnector();   // 기본 HTTP 커넥터 생성
+        Context ctx = tomcat.addWebapp("", webapp.toAbsolutePath().toString());
+        for (Map.Entry<String, String> e : contextParams.entrySet()) {
+            ApplicationParameter p = new ApplicationParameter();
+            p.setName(e.getKey());
+            p.setValue(e.getValue());
+            p.setOverride(false);   // false = web.xml 값이 이 값을 덮지 못함
+            ctx.addApplicationParameter(p);
+        }
+    }
+
+    void start() throws LifecycleException {
+        tomcat.start();
+        if (!tomcat.getHost().findChild("").getState().isAvailable()) {
+            throw new IllegalStateException("웹앱 시작 실패 (로그 확인)");
+        }
+    }
+
+    /** 실제로 열린 포트 (port=0 이면 임의 포트) */
+    int port() {
+        return tomcat.getConnector().getLocalPort();
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
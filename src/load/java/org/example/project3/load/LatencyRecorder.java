@@ -0,0 +1,65 @@
+package org.example.project3.load;
+
+/**
+ * 마이크로초 단위 로그-선형 히스토그램 (상대 오차 1/64 이하).
+ * 작업 스레드마다 하나씩 쓰고 끝난 뒤 merge 하므로 동기화하지 않는다.
+ * (서버의 LatencyHistogram 은 Prometheus 용 고정 버킷이라 p999 를 읽기에는 너무 거칠다)
+ */
+final class LatencyRecorder {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB = 1 << SUB_BITS;
+    /* 2^0 .. 2^40 µs (약 12일) */
+    private final long[] counts = new long[(41 - SUB_BITS + 1) * SUB];
+    private long total;
+    private long maxMicros;
+    private double sumMicros;
+
+    void record(long nanos) {
+        long us = Math.max(0, nanos / 1000);
+        counts[index(us)]++;
+        total++;
+        sumMicros += us;
+        if (us > maxMicros) maxMicros = us;
+    }
+
+    void merge(LatencyRecorder o) {
+        for (int i = 0; i < counts.length; i++) counts[i] += o.counts[i];
+        total += o.total;
+        sumMicros += o.sumMicros;
+        maxMicros = Math.max(maxMicros, o.maxMicros);
+    }
+
+    long count() { return total; }
+    long maxMicros() { return maxMicros; }
+    double meanMicros() { return total == 0 ? 0 : sumMicros / total; }
+
+    /** q (0~1) 분위수, 마이크로초 (해당 버킷의 상한) */
+    long percentileMicros(double q) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) return Math.min(upper(i), maxMicros);
+        }
+        return maxMicros;
+    }
+
+    /* 0..63 은 그대로, 그 위는 2의 거듭제곱 구간마다 64 칸 */
+    private static int index(long us) {
+        if (us < SUB) return (int) us;
+        int exp = 63 - Long.numberOfLeadingZeros(us);          // >= SUB_BITS
+        int shift = exp - SUB_BITS;
+        int sub = (int) (us >>> shift) - SUB;                  // 0..63
+        int i = (shift + 1) * SUB + sub;
+        return Math.min(i, (41 - SUB_BITS + 1) * SUB - 1);
+    }
+
+    private static long upper(int i) {
+        if (i < SUB) return i;
+        int shift = i / SUB - 1;
+        int sub = i % SUB;
+        return ((long) (SUB + sub + 1) << shift) - 1;
+    }
+}
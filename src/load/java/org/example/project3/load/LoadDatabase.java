@@ -0,0 +1,73 @@
+package org.example.project3.load;
+
+import org.example.project3.dao.StockDao;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Random;
+
+/**
+ * 부하 테스트용 SQLite 파일.
+ * target/load-db/stocks-{rows}.db 원본을 한 번 만들어 두고, 실행마다 작업 디렉터리로 복사해 쓴다
+ * (쓰기 요청이 원본을 바꾸지 않도록).
+ */
+final class LoadDatabase {
+
+    static final String[] WORDS = {"삼성", "전자", "하이닉스", "바이오", "화학", "금융", "지주", "건설",
+            "에너지", "모터스", "Tech", "Global", "Korea", "Holdings", "제약", "통신"};
+
+    private LoadDatabase() {}
+
+    /** rows 건짜리 원본을 (없으면 만들고) target 으로 복사한다 */
+    static void prepare(Path dir, int rows, Path target) throws Exception {
+        Files.createDirectories(dir);
+        Path seed = dir.resolve("stocks-" + rows + ".db").toAbsolutePath();
+        if (!Files.exists(seed)) {
+            Path tmp = dir.resolve("stocks-" + rows + ".db.tmp").toAbsolutePath();
+            Files.deleteIfExists(tmp);
+            String url = "jdbc:sqlite:" + tmp;
+            // 스키마(마이그레이션, 인덱스, 트리거)는 DAO 가 만든다
+            new StockDao(url).close();
+            fill(url, rows);
+            // 마지막 커넥션이 닫힐 때 WAL 이 본 파일에 합쳐지므로 .db 파일 하나만 옮기면 된다
+            Files.move(tmp, seed);
+        }
+        Files.createDirectories(target.getParent());
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            Files.deleteIfExists(Path.of(target + suffix));
+        }
+        Files.copy(seed, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void fill(String url, int rows) throws SQLException {
+        Random rnd = new Random(42);
+        try (Connection c = DriverManager.getConnection(url);
+             PreparedStatement ps = c.prepareStatement(
+                     "INSERT INTO Stocks (stock_code, stock_name, create_date, pbr, per) VALUES (?, ?, ?, ?, ?)")) {
+            c.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                ps.setString(1, code(i));
+                ps.setString(2, WORDS[rnd.nextInt(WORDS.length)] + WORDS[rnd.nextInt(WORDS.length)] + " " + i);
+                ps.setString(3, String.format("2025-%02d-%02d %02d:%02d:%02d", 1 + rnd.nextInt(12),
+                        1 + rnd.nextInt(28), rnd.nextInt(24), rnd.nextInt(60), rnd.nextInt(60)));
+                if (rnd.nextInt(10) == 0) ps.setNull(4, Types.REAL); else ps.setDouble(4, rnd.nextDouble() * 5);
+                if (rnd.nextInt(10) == 0) ps.setNull(5, Types.REAL); else ps.setDouble(5, rnd.nextDouble() * 60 - 10);
+                ps.addBatch();
+                if (i % 10_000 == 9_999) ps.executeBatch();
+            }
+            ps.executeBatch();
+            c.commit();
+        }
+    }
+
+    /** i 번째 행의 종목코드 (id = i + 1) */
+    static String code(int i) {
+        return String.format("%06d", i);
+    }
+}
@@ -0,0 +1,330 @@
+package org.example.project3.load;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * HTTP 부하 테스트: 생성한 SQLite DB 로 WAR 를 내장 Tomcat 에 띄우고,
+ * threads 개의 작업 스레드가 mix 비율대로 요청을 보내(닫힌 루프, 응답을 받으면 다음 요청)
+ * 경로별 처리량 / p50·p99·p999 지연 / 오류율을 낸다. 네트워크 없이 한 장비에서 돈다.
+ *
+ * 인자 (key=value, pom 의 load.args):
+ *   rows=100000 threads=16 warmup=10 duration=30 (초) pageSize=100 timeoutMs=10000 port=0 seed=1
+ *   mix=list:40,search:25,edit:20,create:10,update:5   (경로: list search edit create update api)
+ *   repository=sqlite|memory                            (web.xml repository.type)
+ *   param.{이름}={값}                                   (임의 context-param 덮어쓰기, 예: param.async.threads=32)
+ *   url=http://host:port                                 (서버를 띄우지 않고 이미 떠 있는 서버에 보냄)
+ *
+ * 오류 = 연결 실패/시간 초과, 4xx/5xx, 또는 쓰기 후 리다이렉트 토스트가 실패를 알린 경우.
+ */
+public final class LoadTest {
+
+    private static final Logger LOG = Logger.getLogger(LoadTest.class.getName());
+    private static final String DEFAULT_MIX = "list:40,search:25,edit:20,create:10,update:5";
+
+    private LoadTest() {}
+
+    /* 작업 스레드 하나의 경로별 기록 (끝난 뒤 합친다) */
+    private static final class RouteStats {
+        final LatencyRecorder latency = new LatencyRecorder();
+        long errors;
+        final Map<String, Long> outcomes = new TreeMap<>();
+
+        void outcome(String key) {
+            outcomes.merge(key, 1L, Long::sum);
+        }
+
+        void merge(RouteStats o) {
+            latency.merge(o.latency);
+            errors += o.errors;
+            o.outcomes.forEach((k, v) -> outcomes.merge(k, v, Long::sum));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new LinkedHashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("key=value 형식이 아님: " + a);
+            opt.put(a.substring(0, eq).trim(), a.substring(eq + 1).trim());
+        }
+        int rows = intOpt(opt, "rows", 100_000);
+        int threads = intOpt(opt, "threads", 16);
+        int warmupSec = intOpt(opt, "warmup", 10);
+        int durationSec = intOpt(opt, "duration", 30);
+        int pageSize = intOpt(opt, "pageSize", 100);
+        Duration timeout = Duration.ofMillis(intOpt(opt, "timeoutMs", 10_000));
+        long seed = intOpt(opt, "seed", 1);
+        Map<Route, Integer> mix = parseMix(opt.getOrDefault("mix", DEFAULT_MIX));
+        Path out = Paths.get(opt.getOrDefault("out", "target"));
+
+        Map<String, String> params = new LinkedHashMap<>();
+        Path work = out.resolve("load-db").resolve("run").toAbsolutePath();
+        params.put("memory.dir", work.resolve("memory").toString());
+        if (opt.containsKey("repository")) params.put("repository.type", opt.get("repository"));
+        opt.forEach((k, v) -> {
+            if (k.startsWith("param.")) params.put(k.substring("param.".length()), v);
+        });
+
+        EmbeddedServer server = null;
+        String base = opt.get("url");
+        if (base == null) {
+            String webapp = opt.get("webapp");
+            if (webapp == null || !Files.isDirectory(Paths.get(webapp, "WEB-INF"))) {
+                throw new IllegalArgumentException("webapp= 에 패키징된 WAR 디렉터리가 필요합니다 (mvn -Pload package): " + webapp);
+            }
+            long t0 = System.nanoTime();
+            Path db = work.resolve("Stock.db");
+            deleteTree(work.resolve("memory"));
+            LoadDatabase.prepare(out.resolve("load-db"), rows, db);
+            System.setProperty("stock.db.path", db.toString());
+            LOG.info(String.format("database: %s (rows=%d, %dms)", db, rows, (System.nanoTime() - t0) / 1_000_000));
+
+            server = new EmbeddedServer(Paths.get(webapp), work.resolve("tomcat"), intOpt(opt, "port", 0), params);
+            server.start();
+            base = "http://127.0.0.1:" + server.port();
+        }
+        // 요청마다 남는 애플리케이션 로그([UPDATE] recv ...)가 측정을 흐리지 않도록 시작 후에는 경고만
+        Logger appLog = Logger.getLogger("org.apache.catalina.core.ContainerBase.[Tomcat].[localhost].[/]");
+        appLog.setLevel(Level.WARNING);
+
+        try {
+            Map<Route, RouteStats> total = run(base, rows, threads, warmupSec, durationSec, pageSize, timeout, seed, mix);
+            report(total, durationSec, threads, mix, params, rows, out);
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+
+    private static Map<Route, RouteStats> run(String base, int rows, int threads, int warmupSec, int durationSec,
+                                              int pageSize, Duration timeout, long seed, Map<Route, Integer> mix)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .executor(Executors.newFixedThreadPool(Math.max(2, threads / 4), r -> {
+                    Thread t = new Thread(r, "load-http");
+                    t.setDaemon(true);
+                    return t;
+                }))
+                .build();
+
+        Route[] wheel = wheel(mix);
+        String runId = Long.toString(System.currentTimeMillis() % 1_000_000_000L, 36);
+        long startNanos = System.nanoTime();
+        long measureFrom = startNanos + warmupSec * 1_000_000_000L;
+        long endNanos = measureFrom + durationSec * 1_000_000_000L;
+
+        List<Map<Route, RouteStats>> perWorker = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int w = 0; w < threads; w++) {
+            Map<Route, RouteStats> stats = new EnumMap<>(Route.class);
+            for (Route r : mix.keySet()) stats.put(r, new RouteStats());
+            perWorker.add(stats);
+            Route.Target target = new Route.Target(base, rows, pageSize, timeout, runId, w);
+            Random rnd = new Random(seed * 1_000_003 + w);
+            Thread t = new Thread(() -> {
+                try {
+                    long now;
+                    while ((now = System.nanoTime()) < endNanos) {
+                        Route route = wheel[rnd.nextInt(wheel.length)];
+                        RouteStats s = stats.get(route);
+                        String outcome = send(client, route.request(target, rnd).build());
+                        long elapsed = System.nanoTime() - now;
+                        if (now < measureFrom) continue;
+                        s.latency.record(elapsed);
+                        s.outcome(outcome);
+                        if (isError(outcome)) s.errors++;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-worker-" + w);
+            t.setDaemon(true);
+            t.start();
+        }
+        LOG.info(String.format("running: %s, threads=%d, warmup=%ds, duration=%ds, mix=%s",
+                base, threads, warmupSec, durationSec, mix));
+        done.await();
+
+        Map<Route, RouteStats> total = new EnumMap<>(Route.class);
+        for (Route r : mix.keySet()) total.put(r, new RouteStats());
+        for (Map<Route, RouteStats> m : perWorker) m.forEach((r, s) -> total.get(r).merge(s));
+        return total;
+    }
+
+    /* 응답 분류: 상태 코드, 쓰기 후 실패 토스트는 "302-fail", 예외는 예외 이름 */
+    private static String send(HttpClient client, HttpRequest req) {
+        try {
+            HttpResponse<Void> resp = client.send(req, HttpResponse.BodyHandlers.discarding());
+            int status = resp.statusCode();
+            if (status == 302 || status == 303) {
+                String loc = resp.headers().firstValue("Location").orElse("");
+                int i = loc.indexOf("toast=");
+                if (i >= 0) {
+                    String toast = URLDecoder.decode(loc.substring(i + 6), StandardCharsets.UTF_8);
+                    if (toast.contains("실패") || toast.contains("없음")) return status + "-fail";
+                }
+            }
+            return String.valueOf(status);
+        } catch (HttpTimeoutException e) {
+            return "timeout";
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    private static boolean isError(String outcome) {
+        return outcome.endsWith("-fail") || !(outcome.startsWith("2") || outcome.startsWith("3"));
+    }
+
+    /* 비율만큼 경로를 채운 배열: 무작위 인덱스 한 번으로 경로 선택 */
+    private static Route[] wheel(Map<Route, Integer> mix) {
+        List<Route> w = new ArrayList<>();
+        mix.forEach((r, n) -> {
+            for (int i = 0; i < n; i++) w.add(r);
+        });
+        if (w.isEmpty()) throw new IllegalArgumentException("mix 비율 합이 0");
+        return w.toArray(new Route[0]);
+    }
+
+    static Map<Route, Integer> parseMix(String spec) {
+        Map<Route, Integer> mix = new EnumMap<>(Route.class);
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) continue;
+            String[] kv = part.split(":");
+            try {
+                int weight = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+                if (weight < 0) throw new NumberFormatException();
+                if (weight > 0) mix.put(Route.of(kv[0]), weight);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("mix 형식 오류 (route:비율,...): " + part, e);
+            }
+        }
+        return mix;
+    }
+
+    private static void report(Map<Route, RouteStats> total, int durationSec, int threads, Map<Route, Integer> mix,
+                               Map<String, String> params, int rows, Path out) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%n%-8s %10s %10s %9s %9s %9s %9s %9s %8s  %s%n",
+                "route", "requests", "req/s", "mean(ms)", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "errors", "outcomes"));
+        RouteStats all = new RouteStats();
+        for (Map.Entry<Route, RouteStats> e : total.entrySet()) {
+            line(sb, e.getKey().label(), e.getValue(), durationSec);
+            all.merge(e.getValue());
+        }
+        line(sb, "total", all, durationSec);
+        System.out.println(sb);
+
+        Files.createDirectories(out);
+        Path json = out.resolve("load-result.json");
+        try (Writer w = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+            w.write("{\"threads\":" + threads + ",\"durationSec\":" + durationSec + ",\"rows\":" + rows);
+            w.write(",\"mix\":{");
+            String sep = "";
+            for (Map.Entry<Route, Integer> e : mix.entrySet()) {
+                w.write(sep + "\"" + e.getKey().label() + "\":" + e.getValue());
+                sep = ",";
+            }
+            w.write("},\"params\":{");
+            sep = "";
+            for (Map.Entry<String, String> e : params.entrySet()) {
+                w.write(sep + "\"" + jsonEscape(e.getKey()) + "\":\"" + jsonEscape(e.getValue()) + "\"");
+                sep = ",";
+            }
+            w.write("},\"routes\":{");
+            sep = "";
+            Map<String, RouteStats> named = new LinkedHashMap<>();
+            total.forEach((r, s) -> named.put(r.label(), s));
+            named.put("total", all);
+            for (Map.Entry<String, RouteStats> e : named.entrySet()) {
+                RouteStats s = e.getValue();
+                LatencyRecorder l = s.latency;
+                w.write(sep + "\"" + e.getKey() + "\":{\"requests\":" + l.count()
+                        + ",\"throughput\":" + fmt(l.count() / (double) durationSec)
+                        + ",\"meanMs\":" + fmt(l.meanMicros() / 1000.0)
+                        + ",\"p50Ms\":" + fmt(l.percentileMicros(0.50) / 1000.0)
+                        + ",\"p99Ms\":" + fmt(l.percentileMicros(0.99) / 1000.0)
+                        + ",\"p999Ms\":" + fmt(l.percentileMicros(0.999) / 1000.0)
+                        + ",\"maxMs\":" + fmt(l.maxMicros() / 1000.0)
+                        + ",\"errors\":" + s.errors
+                        + ",\"errorRate\":" + fmt(l.count() == 0 ? 0 : s.errors / (double) l.count())
+                        + ",\"outcomes\":{");
+                String sep2 = "";
+                for (Map.Entry<String, Long> o : s.outcomes.entrySet()) {
+                    w.write(sep2 + "\"" + jsonEscape(o.getKey()) + "\":" + o.getValue());
+                    sep2 = ",";
+                }
+                w.write("}}");
+                sep = ",";
+            }
+            w.write("}}\n");
+        }
+        LOG.info("result: " + json.toAbsolutePath());
+    }
+
+    private static void line(StringBuilder sb, String name, RouteStats s, int durationSec) {
+        LatencyRecorder l = s.latency;
+        double errPct = l.count() == 0 ? 0 : 100.0 * s.errors / l.count();
+        sb.append(String.format(Locale.ROOT, "%-8s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7.2f%%  %s%n",
+                name, l.count(), l.count() / (double) durationSec, l.meanMicros() / 1000.0,
+                l.percentileMicros(0.50) / 1000.0, l.percentileMicros(0.99) / 1000.0,
+                l.percentileMicros(0.999) / 1000.0, l.maxMicros() / 1000.0, errPct, s.outcomes));
+    }
+
+    private static String fmt(double v) {
+        return String.format(Locale.ROOT, "%.3f", v);
+    }
+
+    private static String jsonEscape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static int intOpt(Map<String, String> opt, String name, int def) {
+        String v = opt.get(name);
+        if (v == null || v.isEmpty()) return def;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " 숫자 형식 오류: " + v, e);
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            List<Path> all = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path p : all) Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.project3.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 부하 테스트가 호출하는 경로. mix 의 이름은 소문자 enum 이름 (list, search, edit, create, update, api).
+ * 화면 경로는 조건부 GET 헤더 없이 보내 매번 조회 + JSP 렌더링을 거치게 한다.
+ */
+enum Route {
+
+    /** 목록 첫 페이지 (이름순/입력순 번갈아) */
+    LIST {
+        @Override
+        HttpRequest.Builder request(Target t, Random rnd) {
+            return get(t, "/stocks/list?size=" + t.pageSize + (rnd.nextBoolean() ? "&mode=inserted" : ""));
+        }
+    },
+    /** 목록 화면 검색 (단어 / 코드 접두사) */
+    SEARCH {
+        @Override
+        HttpRequest.Builder request(Target t, Random rnd) {
+            String q = rnd.nextInt(4) == 0
+                    ? LoadDatabase.code(rnd.nextInt(t.rows)).substring(0, 3)
+                    : LoadDatabase.WORDS[rnd.nextInt(LoadDatabase.WORDS.length)];
+            return get(t, "/stocks/list?size=" + t.pageSize + "&q=" + enc(q));
+        }
+    },
+    /** 수정 폼 (코드로 프리필) */
+    EDIT {
+        @Override
+        HttpRequest.Builder request(Target t, Random rnd) {
+            return get(t, "/stocks/edit?code=" + LoadDatabase.code(rnd.nextInt(t.rows)));
+        }
+    },
+    /** 새 종목 추가 (코드는 실행/스레드마다 겹치지 않게) */
+    CREATE {
+        @Override
+        HttpRequest.Builder request(Target t, Random rnd) {
+            String code = "L" + t.runId + "-" + t.worker + "-" + (t.created++);
+            return post(t, "/stocks/create", "stockCode=" + code + "&stockName=" + enc("부하 " + code)
+                    + "&pbr=" + num(rnd.nextDouble() * 5) + "&per=" + num(rnd.nextDouble() * 60 - 10));
+        }
+    },
+    /** 기존 종목 PBR/PER 수정 (코드/이름은 비워서 유지) */
+    UPDATE {
+        @Override
+        HttpRequest.Builder request(Target t, Random rnd) {
+            return post(t, "/stocks/update", "id=" + (1 + rnd.nextInt(t.rows))
+                    + "&stockCode=&stockName=&pbr=" + num(rnd.nextDouble() * 5) + "&per=" + num(rnd.nextDouble() * 60 - 10));
+        }
+    },
+    /** JSON API 검색 페이지 */
+    API {
+        @Override
+        HttpRequest.Builder request(Target t, Random rnd) {
+            String q = LoadDatabase.WORDS[rnd.nextInt(LoadDatabase.WORDS.length)];
+            return get(t, "/stocks/api/search?size=" + t.pageSize + "&q=" + enc(q));
+        }
+    };
+
+    /** 작업 스레드 하나의 요청 대상/상태 */
+    static final class Target {
+        final String base;
+        final int rows;
+        final int pageSize;
+        final Duration timeout;
+        final String runId;
+        final int worker;
+        long created;
+
+        Target(String base, int rows, int pageSize, Duration timeout, String runId, int worker) {
+            this.base = base;
+            this.rows = rows;
+            this.pageSize = pageSize;
+            this.timeout = timeout;
+            this.runId = runId;
+            this.worker = worker;
+        }
+    }
+
+    abstract HttpRequest.Builder request(Target t, Random rnd);
+
+    String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    static Route of(String label) {
+        return valueOf(label.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private static HttpRequest.Builder get(Target t, String path) {
+        return HttpRequest.newBuilder(URI.create(t.base + path)).timeout(t.timeout).GET();
+    }
+
+    private static HttpRequest.Builder post(Target t, String path, String form) {
+        return HttpRequest.newBuilder(URI.create(t.base + path)).timeout(t.timeout)
+                .header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(form, StandardCharsets.UTF_8));
+    }
+
+    private static String enc(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private static String num(double v) {
+        return String.format(Locale.ROOT, "%.2f", v);
+    }
+}
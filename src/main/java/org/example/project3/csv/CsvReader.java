@@ -0,0 +1,120 @@
+package org.example.project3.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV(또는 TSV) 를 한 레코드씩 읽는 증분 파서.
+ * 입력 전체를 메모리에 올리지 않으며, 따옴표 안의 구분자/줄바꿈/"" 이스케이프를 처리한다.
+ */
+public class CsvReader implements AutoCloseable {
+
+    private static final int BUF = 8192;
+
+    private final Reader in;
+    private final char delimiter;
+    private final char[] buf = new char[BUF];
+    private int pos, len;
+    private boolean eof;
+    private boolean bomChecked;
+
+    private long line = 1;        // 현재 읽는 위치의 물리적 줄 번호
+    private long recordLine;      // 마지막으로 반환한 레코드가 시작된 줄
+
+    private final StringBuilder field = new StringBuilder();
+
+    public CsvReader(Reader in) {
+        this(in, ',');
+    }
+
+    public CsvReader(Reader in, char delimiter) {
+        this.in = in;
+        this.delimiter = delimiter;
+    }
+
+    /** 다음 레코드 (입력 끝이면 null). 완전히 빈 줄은 건너뛴다. */
+    public String[] next() throws IOException {
+        while (true) {
+            if (!fill()) return null;
+            if (!bomChecked) {
+                bomChecked = true;
+                if (buf[pos] == '\uFEFF') pos++;   // 엑셀 UTF-8 BOM
+                if (!fill()) return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            boolean blank = readRecord(fields);
+            if (!blank) return fields.toArray(new String[0]);
+        }
+    }
+
+    /** 마지막으로 반환한 레코드의 시작 줄 번호 (1부터) */
+    public long lineNumber() {
+        return recordLine;
+    }
+
+    /* 레코드 하나를 읽는다. 빈 줄이었으면 true */
+    private boolean readRecord(List<String> out) throws IOException {
+        field.setLength(0);
+        boolean quoted = false, inQuotes = false, any = false;
+        while (fill()) {
+            char c = buf[pos++];
+            if (inQuotes) {
+                if (c == '"') {
+                    if (fill() && buf[pos] == '"') {
+                        field.append('"');
+                        pos++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append(c);
+                }
+                continue;
+            }
+            if (c == '"' && field.length() == 0 && !quoted) {
+                inQuotes = quoted = any = true;
+            } else if (c == delimiter) {
+                out.add(field.toString());
+                field.setLength(0);
+                quoted = false;
+                any = true;
+            } else if (c == '\r') {
+                // \r\n 또는 단독 \r 모두 줄 끝
+                if (fill() && buf[pos] == '\n') pos++;
+                line++;
+                break;
+            } else if (c == '\n') {
+                line++;
+                break;
+            } else {
+                field.append(c);
+                any = true;
+            }
+        }
+        if (!any && field.length() == 0 && out.isEmpty()) return true;
+        out.add(field.toString());
+        return false;
+    }
+
+    private boolean fill() throws IOException {
+        if (pos < len) return true;
+        if (eof) return false;
+        len = in.read(buf, 0, BUF);
+        pos = 0;
+        if (len <= 0) {
+            len = 0;
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
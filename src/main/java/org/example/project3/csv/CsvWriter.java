@@ -0,0 +1,67 @@
+package org.example.project3.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * CSV/TSV 레코드 작성기. 필요한 필드만 따옴표로 감싼다(구분자, 따옴표, 줄바꿈 포함 시).
+ * CsvReader 로 다시 읽을 수 있는 형식이며, 버퍼링은 넘겨받은 Writer 에 맡긴다.
+ */
+public class CsvWriter {
+
+    private final Writer out;
+    private final char delimiter;
+    private boolean lineStart = true;
+
+    public CsvWriter(Writer out, char delimiter) {
+        this.out = out;
+        this.delimiter = delimiter;
+    }
+
+    public CsvWriter field(String v) throws IOException {
+        if (!lineStart) out.write(delimiter);
+        lineStart = false;
+        if (v == null || v.isEmpty()) return this;
+        if (needsQuote(v)) {
+            out.write('"');
+            int start = 0;
+            for (int i = 0; i < v.length(); i++) {
+                if (v.charAt(i) == '"') {
+                    out.write(v, start, i - start + 1);
+                    out.write('"');
+                    start = i + 1;
+                }
+            }
+            out.write(v, start, v.length() - start);
+            out.write('"');
+        } else {
+            out.write(v);
+        }
+        return this;
+    }
+
+    public CsvWriter field(long v) throws IOException {
+        return field(Long.toString(v));
+    }
+
+    public CsvWriter field(Double v) throws IOException {
+        return field(v == null ? null : Double.toString(v));
+    }
+
+    public void endRecord() throws IOException {
+        out.write("\r\n");
+        lineStart = true;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private boolean needsQuote(String v) {
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.project3.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 그룹 커밋 쓰기 큐.
+ * 여러 요청의 쓰기를 단일 쓰기 스레드가 모아 한 트랜잭션(= fsync 1회)으로 커밋한다.
+ * - 배치는 maxBatch 건 또는 첫 작업 후 maxDelayMs 중 먼저 닿는 쪽에서 닫힌다
+ * - 작업마다 SAVEPOINT 를 두어, 한 작업의 실패(예: UNIQUE 위반)는 그 작업에만 돌려준다
+ * - 결과는 커밋이 끝난 뒤에 각 호출자에게 전달된다
+ * - 작업별 커밋 후 처리(afterCommit)는 커밋 직후 쓰기 스레드에서 작업 순서대로, 쓰기 커넥션을 쥔 채 실행된다
+ */
+public class GroupCommitWriter implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH = 64;
+    public static final long DEFAULT_MAX_DELAY_MS = 5;
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    /** 쓰기 커넥션 위에서 실행될 작업 (커밋/롤백은 큐가 관리) */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(SqlitePool.Lease lease) throws SQLException;
+    }
+
+    private static final class Op<T> {
+        final Work<T> work;
+        final Consumer<T> afterCommit;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        SQLException error;
+        /* 커밋은 됐지만 afterCommit 이 던진 예외 (호출자에게 그대로) */
+        RuntimeException afterCommitError;
+
+        Op(Work<T> work, Consumer<T> afterCommit) {
+            this.work = work;
+            this.afterCommit = afterCommit;
+        }
+
+        void execute(SqlitePool.Lease lease) {
+            try {
+                result = work.run(lease);
+            } catch (SQLException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = new SQLException(e.getMessage(), e);
+            }
+        }
+
+        void committed() {
+            if (error != null || afterCommit == null) return;
+            try {
+                afterCommit.accept(result);
+            } catch (RuntimeException e) {
+                afterCommitError = e;
+            }
+        }
+
+        void complete() {
+            if (error != null) future.completeExceptionally(error);
+            else if (afterCommitError != null) future.completeExceptionally(afterCommitError);
+            else future.complete(result);
+        }
+    }
+
+    private final SqlitePool pool;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Op<?>> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /* 지표 */
+    private final long startedNanos = System.nanoTime();
+    private final LongAdder ops = new LongAdder();
+    private final LongAdder failedOps = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+    private final AtomicLong maxBatchSeen = new AtomicLong();
+
+    public GroupCommitWriter(SqlitePool pool, int maxBatch, long maxDelayMs) {
+        this.pool = pool;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMs));
+        this.thread = new Thread(this::loop, "stock-group-commit");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** 작업을 큐에 넣고 커밋될 때까지 기다린다. 작업 자신의 SQLException 은 그대로 다시 던진다. */
+    public <T> T submit(Work<T> work) throws SQLException {
+        return submit(work, null);
+    }
+
+    /**
+     * submit 과 같고, 커밋에 성공하면 afterCommit(결과)를 커밋 순서대로 쓰기 스레드에서 실행한 뒤 돌아온다
+     * (변경 알림용: 다음 배치는 그동안 시작되지 않는다).
+     */
+    public <T> T submit(Work<T> work, Consumer<T> afterCommit) throws SQLException {
+        if (closed) throw new SQLException("그룹 커밋 큐가 이미 닫혔습니다.");
+        Op<T> op = new Op<>(work, afterCommit);
+        try {
+            if (!queue.offer(op, SqlitePool.DEFAULT_ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("쓰기 큐가 가득 찼습니다(" + QUEUE_CAPACITY + ")");
+            }
+            return op.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("쓰기 대기 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof SQLException) throw (SQLException) c;
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            throw new SQLException(c.getMessage(), c);
+        }
+    }
+
+    private void loop() {
+        List<Op<?>> batch = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Op<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    long left = deadline - System.nanoTime();
+                    Op<?> next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                if (!closed) Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void runBatch(List<Op<?>> batch) {
+        long t0 = System.nanoTime();
+        int succeeded = 0;
+        try (SqlitePool.Lease lease = pool.write()) {
+            Connection c = lease.connection();
+            c.setAutoCommit(false);
+            for (Op<?> op : batch) {
+                Savepoint sp = c.setSavepoint();
+                op.execute(lease);
+                if (op.error != null) c.rollback(sp);
+                else succeeded++;
+                c.releaseSavepoint(sp);
+            }
+            c.commit();
+            c.setAutoCommit(true);
+            for (Op<?> op : batch) op.committed();
+        } catch (SQLException e) {
+            // 커밋 자체가 실패하면 이 배치의 모든 작업이 실패
+            for (Op<?> op : batch) {
+                if (op.error == null) op.error = e;
+            }
+            succeeded = 0;
+        }
+        commitNanos.add(System.nanoTime() - t0);
+        batches.increment();
+        ops.add(batch.size());
+        failedOps.add(batch.size() - succeeded);
+        maxBatchSeen.accumulateAndGet(batch.size(), Math::max);
+
+        for (Op<?> op : batch) op.complete();
+    }
+
+    /* ===== 지표 ===== */
+
+    public long operations() { return ops.sum(); }
+    public long failedOperations() { return failedOps.sum(); }
+    public long batches() { return batches.sum(); }
+    public long maxBatchSize() { return maxBatchSeen.get(); }
+    public int queueDepth() { return queue.size(); }
+
+    public double averageBatchSize() {
+        long b = batches.sum();
+        return b == 0 ? 0.0 : (double) ops.sum() / b;
+    }
+
+    public double averageCommitMillis() {
+        long b = batches.sum();
+        return b == 0 ? 0.0 : commitNanos.sum() / 1_000_000.0 / b;
+    }
+
+    /** 시작 이후 평균 처리량 (ops/s) */
+    public double throughput() {
+        double secs = (System.nanoTime() - startedNanos) / 1_000_000_000.0;
+        return secs <= 0 ? 0.0 : ops.sum() / secs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GroupCommitWriter[ops=%d, failed=%d, batches=%d, avgBatch=%.1f, maxBatch=%d, avgCommit=%.2fms, %.1f ops/s]",
+                operations(), failedOperations(), batches(), averageBatchSize(), maxBatchSize(),
+                averageCommitMillis(), throughput());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Op<?> op;
+        while ((op = queue.poll()) != null) {
+            op.future.completeExceptionally(new SQLException("그룹 커밋 큐가 닫혀 작업이 취소되었습니다."));
+        }
+    }
+}
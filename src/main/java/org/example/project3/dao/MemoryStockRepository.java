@@ -0,0 +1,742 @@
+package org.example.project3.dao;
+
+import org.example.project3.csv.CsvReader;
+import org.example.project3.dto.HistoryPoint;
+import org.example.project3.dto.ImportResult;
+import org.example.project3.dto.ScreenCriteria;
+import org.example.project3.dto.StockChange;
+import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.StockPage;
+import org.example.project3.dto.WriteResult;
+import org.example.project3.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 메모리 저장소: 전체 행을 id / stock_code 를 키로 한 동시성 맵에 두고,
+ * 쓰기는 WAL 에 먼저 기록한 뒤 맵에 반영한다. 주기적으로 바이너리 스냅샷을 쓰고 그 이전 WAL 은 지운다.
+ * 재시작 시 스냅샷 + 남은 WAL 을 재생해 복구한다 (StockWal).
+ *
+ * - 한 건 조회는 맵 조회, 목록/페이지/스크리닝은 StockDao 와 같은 불변 스냅샷(StockSnapshotCache)에서 처리
+ * - 쓰기는 한 락으로 직렬화 (SQLite 의 단일 쓰기 커넥션과 같은 모델)
+ * - fsync=false 면 기록마다 OS 까지만 쓴다(프로세스 종료에는 안전, 전원 장애 시 마지막 몇 건 유실 가능:
+ *   SQLite WAL + synchronous=NORMAL 과 같은 수준). 스냅샷은 항상 fsync
+ * - 커서 형식, 정렬, 검색 순위, 이력 기록/압축 규칙은 StockDao 와 같다
+ */
+public class MemoryStockRepository implements StockRepository {
+
+    private static final Logger LOG = Logger.getLogger(MemoryStockRepository.class.getName());
+
+    public static final long DEFAULT_SNAPSHOT_INTERVAL_MS = 300_000;
+
+    private final ConcurrentSkipListMap<Long, StockDTO> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, StockDTO> byCode = new ConcurrentHashMap<>();
+    /* 종목별 이력 (ts 오름차순). 배열은 통째로 바꾸기만 하므로 읽기는 락 없이 */
+    private final ConcurrentHashMap<Long, HistoryPoint[]> history = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final StockWal wal;
+    private final StockSnapshotCache cache = new StockSnapshotCache(() -> new ArrayList<>(byId.values()));
+    private final Metrics metrics = new Metrics();
+    private final List<StockChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService snapshotter;
+
+    /* writeLock 으로 보호 (seq 는 지표용으로 락 없이 읽는다) */
+    private volatile long seq;
+    private long nextId = 1;
+    private volatile long snapshotSeq;
+
+    public MemoryStockRepository(Path dir) {
+        this(dir, DEFAULT_SNAPSHOT_INTERVAL_MS, false);
+    }
+
+    /** dir 의 스냅샷/WAL 에서 복구하고, snapshotIntervalMs 마다(0 이면 끔) 바뀐 게 있으면 새 스냅샷을 쓴다 */
+    public MemoryStockRepository(Path dir, long snapshotIntervalMs, boolean fsync) {
+        long t0 = System.nanoTime();
+        try {
+            this.wal = new StockWal(dir, fsync);
+            this.seq = wal.recover(this::load, this::apply);
+        } catch (IOException e) {
+            throw new UncheckedIOException("메모리 저장소 복구 실패: " + dir, e);
+        }
+        LOG.info(String.format("memory repository recovered: rows=%d, seq=%d (snapshot=%d) in %dms",
+                byId.size(), seq, snapshotSeq, (System.nanoTime() - t0) / 1_000_000));
+
+        if (snapshotIntervalMs > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "stock-memory-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshotter.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "스냅샷 실패", e);
+                }
+            }, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            snapshotter = null;
+        }
+    }
+
+    /* 복구: 스냅샷 내용을 깐다 (WAL 재생 전) */
+    private void load(StockWal.State st) {
+        for (StockDTO d : st.rows) {
+            byId.put(d.getId(), d);
+            byCode.put(d.getStockCode(), d);
+        }
+        history.putAll(st.history);
+        nextId = st.nextId;
+        snapshotSeq = st.lastSeq;
+    }
+
+    /**
+     * 비어 있는 저장소를 기존 행(예: SQLite 파일)으로 채운다. id/create_date 는 그대로 유지.
+     * 이미 행이 있으면 아무것도 하지 않는다. 반환값 = 넣은 행 수
+     */
+    public int seed(List<StockDTO> rows) {
+        if (rows.isEmpty()) return 0;
+        writeLock.lock();
+        try {
+            if (!byId.isEmpty()) return 0;
+            long ts = System.currentTimeMillis();
+            List<StockWal.Record> records = new ArrayList<>(rows.size());
+            long s = seq;
+            for (StockDTO d : rows) records.add(new StockWal.Record(StockWal.PUT, ++s, ts, d, 0, 0));
+            commit("SEED 실패", records);
+        } finally {
+            writeLock.unlock();
+        }
+        cache.invalidate();
+        snapshot();
+        return rows.size();
+    }
+
+    @Override
+    public void close() {
+        if (snapshotter != null) snapshotter.shutdownNow();
+        try {
+            snapshot();
+        } finally {
+            writeLock.lock();
+            try {
+                wal.close();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "WAL 닫기 실패", e);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /** 시작 시 스냅샷과 스크리닝 인덱스를 미리 만든다. 반환값 = 적재된 행 수 */
+    public int warmUp() {
+        StockSnapshotCache.Snapshot snap = cache.await();
+        snap.screenIndex();
+        return snap.size();
+    }
+
+    /** 지연 시간/오류 지표 (/stocks/metrics) */
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /** 스냅샷 캐시 (hit/miss 통계 확인용) */
+    public StockSnapshotCache cache() {
+        return cache;
+    }
+
+    /* ===== 스냅샷 ===== */
+
+    /**
+     * 지금 상태를 스냅샷으로 쓰고 그 이전 WAL 을 지운다. 마지막 스냅샷 이후 쓰기가 없으면 하지 않는다.
+     * 쓰기는 상태를 복사하고 WAL 파일을 바꾸는 동안만 막힌다 (파일 쓰기는 락 밖). 반환값 = 썼으면 true
+     */
+    public synchronized boolean snapshot() {
+        StockWal.State st = new StockWal.State();
+        writeLock.lock();
+        try {
+            if (seq == snapshotSeq) return false;
+            st.lastSeq = seq;
+            st.nextId = nextId;
+            st.rows = new ArrayList<>(byId.values());
+            st.history = new HashMap<>(history);
+            wal.rotate(seq + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("WAL 교체 실패", e);
+        } finally {
+            writeLock.unlock();
+        }
+        long t0 = System.nanoTime();
+        try {
+            wal.writeSnapshot(st);
+        } catch (IOException e) {
+            throw new UncheckedIOException("스냅샷 쓰기 실패", e);
+        }
+        snapshotSeq = st.lastSeq;
+        LOG.fine(String.format("memory snapshot: rows=%d, seq=%d in %dms",
+                st.rows.size(), st.lastSeq, (System.nanoTime() - t0) / 1_000_000));
+        return true;
+    }
+
+    /** 마지막 기록 순번 */
+    public long lastSeq() { return seq; }
+
+    /** 마지막 스냅샷의 순번 (lastSeq - snapshotSeq = 재시작 때 재생할 레코드 수) */
+    public long snapshotSeq() { return snapshotSeq; }
+
+    /** 남아 있는 WAL 파일 크기 합 (바이트) */
+    public long walBytes() {
+        try {
+            return wal.walBytes();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /* ===== 전체/검색 조회 ===== */
+
+    public List<StockDTO> findAllOrderByName() {
+        return timedRows("findAllOrderByName", () -> cache.await().byName(), List::size);
+    }
+
+    public List<StockDTO> findAllOrderByInserted() {
+        return timedRows("findAllOrderByInserted", () -> cache.await().byInserted(), List::size);
+    }
+
+    /** 검색(전체): 코드 정확 일치 > 코드 접두사 > 이름 접두사 > 부분 일치 순 */
+    public List<StockDTO> search(String keyword) {
+        return timedRows("search", () -> {
+            String kw = keyword == null ? "" : keyword.trim();
+            // 공개 메서드를 부르면 바깥 타이머 안에서 한 번 더 잰다
+            if (kw.isEmpty()) return cache.await().byName();
+            return ranked(kw).rows;
+        }, List::size);
+    }
+
+    public long streamAllOrderByName(RowHandler h) {
+        return timedRows("streamAllOrderByName", () -> stream(cache.await().byName(), h), n -> n);
+    }
+
+    public long streamAllOrderByInserted(RowHandler h) {
+        return timedRows("streamAllOrderByInserted", () -> stream(cache.await().byInserted(), h), n -> n);
+    }
+
+    public long streamSearch(String keyword, RowHandler h) {
+        return timedRows("streamSearch", () -> {
+            String kw = keyword == null ? "" : keyword.trim();
+            if (kw.isEmpty()) return stream(cache.await().byName(), h);
+            return stream(ranked(kw).rows, h);
+        }, n -> n);
+    }
+
+    /* 콜백의 IOException(클라이언트 끊김 등)은 UncheckedIOException 으로 전달 */
+    private static long stream(List<StockDTO> rows, RowHandler h) {
+        try {
+            for (StockDTO d : rows) h.handle(d);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows.size();
+    }
+
+    /** 쓰기마다 증가 (조건부 GET 의 ETag 재료) */
+    public long dataVersion() {
+        return cache.generation();
+    }
+
+    /** 마지막 쓰기 시각 (쓰기가 없었으면 생성 시각) */
+    public long lastModifiedMillis() {
+        return cache.modifiedMillis();
+    }
+
+    /* ===== 페이지 ===== */
+
+    public StockPage findPageOrderByName(String cursor, int size) {
+        return timedRows("findPageOrderByName",
+                () -> cache.await().pageByName(cursor, StockRepository.clampPageSize(size)),
+                pg -> pg.getItems().size());
+    }
+
+    public StockPage findPageOrderByInserted(String cursor, int size) {
+        return timedRows("findPageOrderByInserted",
+                () -> cache.await().pageByInserted(cursor, StockRepository.clampPageSize(size)),
+                pg -> pg.getItems().size());
+    }
+
+    /** 검색 페이지: 순위(tier) > 이름 > id 정렬, 커서 = (tier, stock_name NOCASE, id) */
+    public StockPage searchPage(String keyword, String cursor, int size) {
+        return timedRows("searchPage", () -> {
+            String kw = keyword == null ? "" : keyword.trim();
+            if (kw.isEmpty()) return cache.await().pageByName(cursor, StockRepository.clampPageSize(size));
+
+            int n = StockRepository.clampPageSize(size);
+            Ranked r = ranked(kw);
+            String[] after = PageCursor.decode(cursor, 3);
+            Long afterTier = after == null ? null : PageCursor.toLong(after[0]);
+            Long afterId = after == null ? null : PageCursor.toLong(after[2]);
+            int from = 0;
+            if (afterTier != null && afterId != null) {
+                StockDTO probe = new StockDTO(afterId, null, after[1], null, null, null);
+                int lo = 0, hi = r.rows.size();
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    int c = Integer.compare(r.tiers[mid], afterTier.intValue());
+                    if (c == 0) c = StockSnapshotCache.NAME_ORDER.compare(r.rows.get(mid), probe);
+                    if (c <= 0) lo = mid + 1; else hi = mid;
+                }
+                from = lo;
+            }
+            return StockSnapshotCache.slice(r.rows, from, n, r.rows.size(),
+                    d -> PageCursor.encode(String.valueOf(StockDao.searchTier(d, kw)), d.getStockName(),
+                            String.valueOf(d.getId())));
+        }, pg -> pg.getItems().size());
+    }
+
+    public long searchCount(String keyword) {
+        return timed("searchCount", () -> {
+            String kw = keyword == null ? "" : keyword.trim();
+            if (kw.isEmpty()) return (long) byId.size();
+            return (long) ranked(kw).rows.size();
+        });
+    }
+
+    /** 범위 조건 + 정렬로 거른 한 페이지. 커서 = 다음 시작 위치(offset) */
+    public StockPage screen(ScreenCriteria criteria, String cursor, int size) {
+        return timedRows("screen", () -> {
+            ScreenCriteria c = criteria == null ? new ScreenCriteria() : criteria;
+            int n = StockRepository.clampPageSize(size);
+            String[] after = PageCursor.decode(cursor, 1);
+            Long from = after == null ? null : PageCursor.toLong(after[0]);
+            int offset = from == null || from < 0 || from > Integer.MAX_VALUE ? 0 : from.intValue();
+            return cache.await().screenIndex().screen(c, offset, n);
+        }, pg -> pg.getItems().size());
+    }
+
+    public long count() {
+        return timed("count", () -> (long) byId.size());
+    }
+
+    /* 검색 결과(순위순)와 각 행의 tier */
+    private static final class Ranked {
+        final List<StockDTO> rows;
+        final int[] tiers;
+
+        Ranked(List<StockDTO> rows, int[] tiers) {
+            this.rows = rows;
+            this.tiers = tiers;
+        }
+    }
+
+    /*
+     * 이름순 스냅샷을 한 번 훑어 코드/이름에 kw 가 들어 있는 행을 tier 별로 모은다.
+     * 각 tier 안은 이름순 그대로라 StockDao 의 ORDER BY tier, stock_name NOCASE, id 와 같다.
+     */
+    private Ranked ranked(String kw) {
+        List<List<StockDTO>> tiers = new ArrayList<>(4);
+        for (int i = 0; i < 4; i++) tiers.add(new ArrayList<>());
+        for (StockDTO d : cache.await().byName()) {
+            if (containsNoCase(d.getStockCode(), kw) || containsNoCase(d.getStockName(), kw)) {
+                tiers.get(StockDao.searchTier(d, kw)).add(d);
+            }
+        }
+        List<StockDTO> rows = new ArrayList<>();
+        int[] t = new int[tiers.stream().mapToInt(List::size).sum()];
+        for (int i = 0; i < 4; i++) {
+            Arrays.fill(t, rows.size(), rows.size() + tiers.get(i).size(), i);
+            rows.addAll(tiers.get(i));
+        }
+        return new Ranked(Collections.unmodifiableList(rows), t);
+    }
+
+    private static boolean containsNoCase(String s, String kw) {
+        if (s == null) return false;
+        for (int i = 0; i + kw.length() <= s.length(); i++) {
+            if (s.regionMatches(true, i, kw, 0, kw.length())) return true;
+        }
+        return false;
+    }
+
+    /* ===== 한 건 ===== */
+
+    public StockDTO findByCode(String code) {
+        return timedRows("findByCode", () -> code == null ? null : byCode.get(code), d -> d == null ? 0 : 1);
+    }
+
+    public StockDTO findById(Long id) {
+        return timedRows("findById", () -> id == null ? null : byId.get(id), d -> d == null ? 0 : 1);
+    }
+
+    public Map<String, StockDTO> findByCodes(Collection<String> codes) {
+        Map<String, StockDTO> out = StockRepository.lookupOrder(codes);
+        return timedRows("findByCodes", () -> {
+            out.replaceAll((code, none) -> byCode.get(code));
+            return out;
+        }, m -> m.values().stream().filter(Objects::nonNull).count());
+    }
+
+    /* ===== 쓰기 ===== */
+
+    public WriteResult insert(StockDTO d) {
+        return timed("insert", () -> {
+            StockDTO row;
+            writeLock.lock();
+            try {
+                if (d.getStockCode() == null) throw new RuntimeException("INSERT 실패(코드 누락)");
+                if (byCode.containsKey(d.getStockCode())) return WriteResult.duplicateCode();
+                row = new StockDTO(nextId, d.getStockCode(), d.getStockName(), d.getPbr(), d.getPer(),
+                        now(), 1L);
+                put("INSERT 실패", row);
+                changed(StockChange.Type.INSERT, null, row);
+            } finally {
+                writeLock.unlock();
+            }
+            return WriteResult.created(row);
+        });
+    }
+
+    /** PK로 수정: 검사와 반영이 같은 쓰기 락 안이라 StockDao 의 UPDATE ... RETURNING 과 같은 결과 */
+    public WriteResult updateById(Long id, Long expectedVersion, String code, String name, Double pbr, Double per) {
+        return timed("updateById", () -> {
+            StockDTO before, after;
+            writeLock.lock();
+            try {
+                before = id == null ? null : byId.get(id);
+                if (before == null) return WriteResult.notFound();
+                if (expectedVersion != null && !expectedVersion.equals(before.getVersion())) {
+                    return WriteResult.conflict(before);
+                }
+                String newCode = code == null ? before.getStockCode() : code;
+                StockDTO other = byCode.get(newCode);
+                if (other != null && !other.getId().equals(id)) return WriteResult.duplicateCode();
+                after = new StockDTO(id, newCode, name == null ? before.getStockName() : name, pbr, per,
+                        before.getCreateDate(), before.getVersion() + 1);
+                put("updateById 실패", after);
+                changed(StockChange.Type.UPDATE, before, after);
+            } finally {
+                writeLock.unlock();
+            }
+            return WriteResult.updated(after);
+        });
+    }
+
+    public boolean update(String code, String name, Double pbr, Double per) {
+        return timed("update", () -> {
+            StockDTO before, after;
+            writeLock.lock();
+            try {
+                before = code == null ? null : byCode.get(code);
+                if (before == null) return false;
+                after = new StockDTO(before.getId(), code, name, pbr, per, before.getCreateDate(),
+                        before.getVersion() + 1);
+                put("UPDATE 실패", after);
+                changed(StockChange.Type.UPDATE, before, after);
+            } finally {
+                writeLock.unlock();
+            }
+            return true;
+        });
+    }
+
+    public boolean delete(String code) {
+        return timed("delete", () -> {
+            StockDTO before;
+            writeLock.lock();
+            try {
+                before = code == null ? null : byCode.get(code);
+                if (before == null) return false;
+                commit("DELETE 실패", Collections.singletonList(new StockWal.Record(StockWal.DELETE, seq + 1,
+                        System.currentTimeMillis(), null, before.getId(), 0)));
+                changed(StockChange.Type.DELETE, before, null);
+            } finally {
+                writeLock.unlock();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * CSV/TSV 업서트 (stock_code 기준). 입력을 끝까지 파싱한 뒤 전체를 WAL 에 한 번에 기록하고 반영하므로
+     * 입력을 읽다 끊기거나(IOException) 기록에 실패하면 아무것도 바뀌지 않는다.
+     * 헤더/열 규칙은 StockDao.importCsv 와 같다.
+     */
+    public ImportResult importCsv(Reader reader, char delimiter) {
+        return timedRows("importCsv", () -> {
+            ImportResult result = new ImportResult();
+            long t0 = System.nanoTime();
+            List<StockDao.ImportRow> rows = new ArrayList<>();
+            try (CsvReader csv = new CsvReader(reader, delimiter)) {
+                int[] cols = null;
+                String[] rec;
+                while ((rec = csv.next()) != null) {
+                    if (cols == null) {
+                        cols = StockDao.headerColumns(rec);
+                        if (cols != null) continue;
+                        cols = StockDao.DEFAULT_COLUMNS;
+                    }
+                    StockDao.ImportRow row = StockDao.parseImportRow(rec, cols, csv.lineNumber(), result);
+                    if (row != null) rows.add(row);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!rows.isEmpty()) {
+                writeLock.lock();
+                try {
+                    long ts = System.currentTimeMillis();
+                    LocalDateTime now = now();
+                    long s = seq, id = nextId;
+                    // 같은 코드가 입력에 두 번 나오면 뒤 행이 앞 행을 덮는다 (SQLite 업서트와 같음)
+                    Map<String, StockDTO> pending = new HashMap<>();
+                    List<StockWal.Record> records = new ArrayList<>(rows.size());
+                    for (StockDao.ImportRow r : rows) {
+                        StockDTO old = pending.get(r.code);
+                        if (old == null) old = byCode.get(r.code);
+                        StockDTO row = old == null
+                                ? new StockDTO(id++, r.code, r.name, r.pbr, r.per, now, 1L)
+                                : new StockDTO(old.getId(), r.code, r.name, r.pbr, r.per, old.getCreateDate(),
+                                old.getVersion() + 1);
+                        pending.put(r.code, row);
+                        records.add(new StockWal.Record(StockWal.PUT, ++s, ts, row, 0, 0));
+                    }
+                    commit("IMPORT 실패", records);
+                    result.upserted(rows.size());
+                    cache.invalidate();
+                    fireBulk();
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            result.finish(System.nanoTime() - t0);
+            return result;
+        }, ImportResult::getProcessed);
+    }
+
+    /* create_date: SQLite 의 datetime('now','localtime') 과 같은 초 단위 */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /* writeLock 안에서: 한 행 PUT */
+    private void put(String errMsg, StockDTO row) {
+        commit(errMsg, Collections.singletonList(
+                new StockWal.Record(StockWal.PUT, seq + 1, System.currentTimeMillis(), row, 0, 0)));
+    }
+
+    /* writeLock 안에서: WAL 에 기록된 뒤에만 메모리에 반영 (기록 실패 = 변경 없음) */
+    private void commit(String errMsg, List<StockWal.Record> records) {
+        try {
+            wal.append(records);
+        } catch (IOException e) {
+            throw new RuntimeException(errMsg + " [WAL 기록 오류: " + e.getMessage() + "]", e);
+        }
+        for (StockWal.Record r : records) apply(r);
+    }
+
+    /* 기록된 레코드를 맵에 반영 (실시간 쓰기와 복구 재생이 같은 경로) */
+    private long apply(StockWal.Record r) {
+        long removed = 0;
+        switch (r.op) {
+            case StockWal.PUT: {
+                StockDTO row = r.row;
+                StockDTO old = byId.put(row.getId(), row);
+                if (old != null && !old.getStockCode().equals(row.getStockCode())) {
+                    byCode.remove(old.getStockCode(), old);
+                }
+                byCode.put(row.getStockCode(), row);
+                // 이력: 새 행이거나 PBR/PER 이 바뀐 경우만 (Stocks_history 트리거와 같은 규칙)
+                if (old == null || !Objects.equals(old.getPbr(), row.getPbr())
+                        || !Objects.equals(old.getPer(), row.getPer())) {
+                    addHistory(row.getId(), new HistoryPoint(r.ts, row.getPbr(), row.getPer()));
+                }
+                nextId = Math.max(nextId, row.getId() + 1);
+                break;
+            }
+            case StockWal.DELETE: {
+                // 이력은 남긴다 (SQLite 쪽도 삭제 트리거 없음)
+                StockDTO old = byId.remove(r.a);
+                if (old != null) byCode.remove(old.getStockCode(), old);
+                break;
+            }
+            case StockWal.COMPACT:
+                removed = compact(r.a, r.b);
+                break;
+            default:
+        }
+        seq = r.seq;
+        return removed;
+    }
+
+    /* ts 순서 유지, 같은 ts 면 교체 (INSERT OR REPLACE 와 같음) */
+    private void addHistory(long id, HistoryPoint p) {
+        HistoryPoint[] pts = history.get(id);
+        if (pts == null) {
+            history.put(id, new HistoryPoint[]{p});
+            return;
+        }
+        int i = pts.length;
+        while (i > 0 && pts[i - 1].getTime() > p.getTime()) i--;
+        HistoryPoint[] next;
+        if (i > 0 && pts[i - 1].getTime() == p.getTime()) {
+            next = pts.clone();
+            next[i - 1] = p;
+        } else {
+            next = new HistoryPoint[pts.length + 1];
+            System.arraycopy(pts, 0, next, 0, i);
+            next[i] = p;
+            System.arraycopy(pts, i, next, i + 1, pts.length - i);
+        }
+        history.put(id, next);
+    }
+
+    /* olderThan 이전 점은 종목별 ts / bucket 구간마다 마지막 점만 남긴다 */
+    private long compact(long olderThan, long bucket) {
+        long b = Math.max(1, bucket), removed = 0;
+        for (Map.Entry<Long, HistoryPoint[]> e : history.entrySet()) {
+            HistoryPoint[] pts = e.getValue();
+            List<HistoryPoint> keep = new ArrayList<>(pts.length);
+            for (int i = 0; i < pts.length; i++) {
+                long ts = pts[i].getTime();
+                boolean last = ts >= olderThan || i + 1 == pts.length || pts[i + 1].getTime() >= olderThan
+                        || pts[i + 1].getTime() / b != ts / b;
+                if (last) keep.add(pts[i]);
+            }
+            if (keep.size() < pts.length) {
+                removed += pts.length - keep.size();
+                e.setValue(keep.toArray(new HistoryPoint[0]));
+            }
+        }
+        return removed;
+    }
+
+    /* ===== PBR/PER 이력 ===== */
+
+    /**
+     * 한 종목의 [from, to] 기간 이력 (시간순).
+     * 점이 maxPoints 보다 많으면 기간을 maxPoints 개 구간으로 나눠 구간 평균으로 줄인다 (StockDao 와 같은 구간).
+     */
+    public List<HistoryPoint> history(String code, long fromMillis, long toMillis, int maxPoints) {
+        return timedRows("history", () -> {
+            StockDTO stock = code == null ? null : byCode.get(code);
+            if (stock == null || toMillis < fromMillis) return Collections.<HistoryPoint>emptyList();
+            HistoryPoint[] pts = history.get(stock.getId());
+            if (pts == null) return Collections.<HistoryPoint>emptyList();
+            int points = Math.max(1, maxPoints);
+            int lo = fromMillis == Long.MIN_VALUE ? 0 : firstAfter(pts, fromMillis - 1);
+            int hi = firstAfter(pts, toMillis);
+            if (hi - lo <= points) return new ArrayList<>(Arrays.asList(pts).subList(lo, hi));
+
+            long width = Math.max(1, (toMillis - fromMillis) / points + 1);
+            List<HistoryPoint> out = new ArrayList<>(points);
+            int i = lo;
+            while (i < hi) {
+                long bucket = (pts[i].getTime() - fromMillis) / width;
+                long first = pts[i].getTime();
+                double pbrSum = 0, perSum = 0;
+                int pbrN = 0, perN = 0;
+                for (; i < hi && (pts[i].getTime() - fromMillis) / width == bucket; i++) {
+                    if (pts[i].getPbr() != null) { pbrSum += pts[i].getPbr(); pbrN++; }
+                    if (pts[i].getPer() != null) { perSum += pts[i].getPer(); perN++; }
+                }
+                out.add(new HistoryPoint(first, pbrN == 0 ? null : pbrSum / pbrN, perN == 0 ? null : perSum / perN));
+            }
+            return out;
+        }, List::size);
+    }
+
+    /* ts 보다 뒤인 첫 점의 위치 */
+    private static int firstAfter(HistoryPoint[] pts, long ts) {
+        int lo = 0, hi = pts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (pts[mid].getTime() <= ts) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /** 오래된 이력 압축 (규칙은 StockDao.compactHistory 와 같음). 반환값 = 지운 점 수 */
+    public long compactHistory(long olderThanMillis, long bucketMillis) {
+        return timed("compactHistory", () -> {
+            writeLock.lock();
+            try {
+                StockWal.Record r = new StockWal.Record(StockWal.COMPACT, seq + 1, System.currentTimeMillis(),
+                        null, olderThanMillis, Math.max(1, bucketMillis));
+                try {
+                    wal.append(Collections.singletonList(r));
+                } catch (IOException e) {
+                    throw new RuntimeException("HISTORY 압축 실패 [WAL 기록 오류: " + e.getMessage() + "]", e);
+                }
+                return apply(r);
+            } finally {
+                writeLock.unlock();
+            }
+        });
+    }
+
+    /* ===== 변경 알림 ===== */
+
+    public void addChangeListener(StockChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(StockChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /* writeLock 안에서 (반영 직후): 알림이 반영 순서대로 나가도록 */
+    private void changed(StockChange.Type type, StockDTO before, StockDTO after) {
+        cache.invalidate();
+        fire(new StockChange(type, before, after));
+    }
+
+    private void fire(StockChange change) {
+        for (StockChangeListener l : listeners) l.onChange(change);
+    }
+
+    private void fireBulk() {
+        for (StockChangeListener l : listeners) l.onBulkChange();
+    }
+
+    /* ===== 계측 ===== */
+
+    // 타이머는 닫히는 것(close)만으로 기록하므로 본문에서 쓰지 않는다
+    @SuppressWarnings("try")
+    private <T> T timed(String method, Supplier<T> body) {
+        try (Metrics.Timer t = metrics.time(method)) {
+            return body.get();
+        }
+    }
+
+    private <T> T timedRows(String method, Supplier<T> body, ToLongFunction<T> rows) {
+        try (Metrics.Timer t = metrics.time(method)) {
+            T result = body.get();
+            t.rows(rows.applyAsLong(result));
+            return result;
+        }
+    }
+}
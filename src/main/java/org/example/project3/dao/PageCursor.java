@@ -0,0 +1,43 @@
+package org.example.project3.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋 페이지네이션 커서 인코딩.
+ * 마지막 행의 정렬 키(예: 이름 + id)를 URL-safe Base64 로 감싼 불투명 문자열.
+ */
+public final class PageCursor {
+
+    private static final char SEP = '\u001F';
+
+    private PageCursor() {}
+
+    public static String encode(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) sb.append(SEP);
+            sb.append(parts[i] == null ? "" : parts[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** 형식이 맞지 않으면 null (= 첫 페이지로 취급) */
+    public static String[] decode(String cursor, int expectedParts) {
+        if (cursor == null || cursor.isEmpty()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEP), -1);
+            return parts.length == expectedParts ? parts : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** 커서 조각을 long 으로 (형식 오류 시 null) */
+    public static Long toLong(String part) {
+        try { return Long.valueOf(part); }
+        catch (NumberFormatException e) { return null; }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.StockDTO;
+
+import java.io.IOException;
+
+/** ResultSet 을 List 로 모으지 않고 한 행씩 바로 넘겨받는 콜백 (스트리밍 응답용) */
+@FunctionalInterface
+public interface RowHandler {
+    void handle(StockDTO row) throws IOException;
+}
@@ -0,0 +1,175 @@
+package org.example.project3.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * 버전 기반 스키마 마이그레이션. 적용된 버전은 DB 파일 헤더의 PRAGMA user_version 에 기록한다.
+ * 각 단계는 user_version 갱신과 함께 한 트랜잭션으로 적용되어, 중간에 실패해도 반쯤 적용된 단계가 남지 않는다.
+ *
+ * 1~4 단계는 버전 관리 이전(user_version = 0) DB 파일에도 그대로 적용되도록 IF NOT EXISTS 로 작성한다.
+ * 새 스키마 변경은 목록 끝에 다음 번호로 추가만 한다 (이미 배포된 단계는 고치지 않는다).
+ */
+public final class SchemaMigrator {
+
+    private static final Logger LOG = Logger.getLogger(SchemaMigrator.class.getName());
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Statement st) throws SQLException;
+    }
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Stocks 테이블", st -> {
+                st.execute("CREATE TABLE IF NOT EXISTS Stocks (" +
+                        " id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                        " stock_code TEXT UNIQUE NOT NULL," +
+                        " stock_name TEXT," +
+                        " create_date TEXT DEFAULT (datetime('now','localtime'))," +
+                        " pbr REAL," +
+                        " per REAL" +
+                        ")");
+                // ON CONFLICT(stock_code) 업서트 대상 (UNIQUE 제약이 없던 기존 DB 파일 대비)
+                st.execute("CREATE UNIQUE INDEX IF NOT EXISTS ux_stocks_code ON Stocks (stock_code)");
+                // 일회성 작업의 진행 표시 (create_date 변환을 확인한 마지막 id 등)
+                st.execute("CREATE TABLE IF NOT EXISTS Stocks_meta (key TEXT PRIMARY KEY, value INTEGER)");
+            }),
+            new Migration(2, "이름순/PBR/PER 인덱스", st -> {
+                // 이름순 키셋 페이지네이션용 (IFNULL(stock_name, '') NOCASE, id). 예전 (stock_name NOCASE, id) 인덱스는 대체
+                st.execute("DROP INDEX IF EXISTS ix_stocks_name");
+                st.execute("CREATE INDEX IF NOT EXISTS ix_stocks_name_key ON Stocks (IFNULL(stock_name, '') COLLATE NOCASE, id)");
+                // PBR/PER 범위 스크리닝 (스냅샷이 없을 때의 SQL 경로)
+                st.execute("CREATE INDEX IF NOT EXISTS ix_stocks_pbr ON Stocks (pbr, id)");
+                st.execute("CREATE INDEX IF NOT EXISTS ix_stocks_per ON Stocks (per, id)");
+            }),
+            new Migration(3, "FTS5 trigram 검색 인덱스", SchemaMigrator::searchIndex),
+            new Migration(4, "PBR/PER 이력 테이블", SchemaMigrator::history),
+            new Migration(5, "행 버전(낙관적 잠금)", st ->
+                    // 쓰기마다 StockDao 가 version = version + 1, 기존 행은 1 부터
+                    st.execute("ALTER TABLE Stocks ADD COLUMN version INTEGER NOT NULL DEFAULT 1"))
+    );
+
+    /** 이 빌드가 아는 최신 스키마 버전 */
+    public static final int LATEST = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+    private SchemaMigrator() { }
+
+    /**
+     * 쓰기 커넥션에서 밀린 단계를 차례로 적용하고 최종 버전을 돌려준다.
+     * DB 가 이 빌드보다 새 버전이면(롤백 배포 등) 손대지 않고 실패한다.
+     */
+    public static int migrate(SqlitePool pool) throws SQLException {
+        try (SqlitePool.Lease l = pool.write(); Statement st = l.connection().createStatement()) {
+            Connection c = l.connection();
+            int current = userVersion(st);
+            if (current > LATEST) {
+                throw new SQLException("DB 스키마 버전(" + current + ")이 이 빌드(" + LATEST + ")보다 새 버전입니다.");
+            }
+            for (Migration m : MIGRATIONS) {
+                if (m.version <= current) continue;
+                long t0 = System.nanoTime();
+                c.setAutoCommit(false);
+                try {
+                    m.step.apply(st);
+                    st.execute("PRAGMA user_version = " + m.version);
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw new SQLException("마이그레이션 " + m.version + "(" + m.description + ") 실패: "
+                            + e.getMessage(), e.getSQLState(), e);
+                } finally {
+                    c.setAutoCommit(true);
+                }
+                current = m.version;
+                LOG.info(String.format("schema migrated to %d (%s) in %dms",
+                        m.version, m.description, (System.nanoTime() - t0) / 1_000_000));
+            }
+            return current;
+        }
+    }
+
+    static int userVersion(Statement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    static boolean tableExists(Statement st, String name) throws SQLException {
+        try (ResultSet rs = st.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type='table' AND name='" + name + "'")) {
+            return rs.next();
+        }
+    }
+
+    /*
+     * 검색 인덱스: FTS5 trigram 외부 콘텐츠 테이블 + 동기화 트리거.
+     * FTS5 가 없는 빌드면 건너뛴다 (LIKE 검색으로 동작, StockDao 가 테이블 유무로 판단)
+     */
+    private static void searchIndex(Statement st) throws SQLException {
+        boolean existed = tableExists(st, "Stocks_fts");
+        try {
+            st.execute("CREATE VIRTUAL TABLE IF NOT EXISTS Stocks_fts USING fts5(" +
+                    " stock_code, stock_name, content='Stocks', content_rowid='id', tokenize='trigram')");
+        } catch (SQLException e) {
+            if (e.getMessage() != null && e.getMessage().contains("no such module")) {
+                LOG.warning("FTS5 미지원 SQLite: 검색 인덱스 없이 진행");
+                return;
+            }
+            throw e;
+        }
+        st.execute("CREATE TRIGGER IF NOT EXISTS Stocks_fts_ai AFTER INSERT ON Stocks BEGIN" +
+                " INSERT INTO Stocks_fts(rowid, stock_code, stock_name) VALUES (new.id, new.stock_code, new.stock_name);" +
+                " END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS Stocks_fts_ad AFTER DELETE ON Stocks BEGIN" +
+                " INSERT INTO Stocks_fts(Stocks_fts, rowid, stock_code, stock_name) VALUES ('delete', old.id, old.stock_code, old.stock_name);" +
+                " END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS Stocks_fts_au AFTER UPDATE OF stock_code, stock_name ON Stocks BEGIN" +
+                " INSERT INTO Stocks_fts(Stocks_fts, rowid, stock_code, stock_name) VALUES ('delete', old.id, old.stock_code, old.stock_name);" +
+                " INSERT INTO Stocks_fts(rowid, stock_code, stock_name) VALUES (new.id, new.stock_code, new.stock_name);" +
+                " END");
+        // 처음 만들 때만 기존 행으로 인덱스 채우기
+        if (!existed) st.execute("INSERT INTO Stocks_fts(Stocks_fts) VALUES ('rebuild')");
+    }
+
+    /*
+     * PBR/PER 이력: 추가만 하는 (stock_id, ts) 클러스터드 테이블 + 동기화 트리거.
+     * WITHOUT ROWID 라 기본키 B-tree 가 곧 테이블이고, 한 종목의 기간 조회는 그 종목 구간만 읽는다.
+     * ts = epoch 밀리초 정수. 값이 실제로 바뀐 UPDATE 만 기록한다(같은 값 업서트는 무시).
+     */
+    private static void history(Statement st) throws SQLException {
+        boolean existed = tableExists(st, "Stocks_history");
+        st.execute("CREATE TABLE IF NOT EXISTS Stocks_history (" +
+                " stock_id INTEGER NOT NULL, ts INTEGER NOT NULL, pbr REAL, per REAL," +
+                " PRIMARY KEY (stock_id, ts)) WITHOUT ROWID");
+        st.execute("CREATE TRIGGER IF NOT EXISTS Stocks_history_ai AFTER INSERT ON Stocks BEGIN" +
+                " INSERT OR REPLACE INTO Stocks_history (stock_id, ts, pbr, per)" +
+                " VALUES (new.id, " + StockDao.NOW_EPOCH_MILLIS + ", new.pbr, new.per);" +
+                " END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS Stocks_history_au AFTER UPDATE OF pbr, per ON Stocks" +
+                " WHEN new.pbr IS NOT old.pbr OR new.per IS NOT old.per BEGIN" +
+                " INSERT OR REPLACE INTO Stocks_history (stock_id, ts, pbr, per)" +
+                " VALUES (new.id, " + StockDao.NOW_EPOCH_MILLIS + ", new.pbr, new.per);" +
+                " END");
+        // 처음 만들 때만 현재 값을 시작점으로 기록
+        if (!existed) {
+            st.execute("INSERT OR IGNORE INTO Stocks_history (stock_id, ts, pbr, per) " +
+                    "SELECT id, " + StockDao.NOW_EPOCH_MILLIS + ", pbr, per FROM Stocks");
+        }
+    }
+}
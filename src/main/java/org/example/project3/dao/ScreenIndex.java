@@ -0,0 +1,247 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.ScreenCriteria;
+import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.StockPage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 스냅샷 위의 열 지향 스크리닝 인덱스 (pbr, per).
+ * 열마다 NULL 이 아닌 값을 오름차순 double[] 로 두고(같은 값은 id 순), 범위는 이진 탐색으로 잘라낸다.
+ * 행 번호 = 스냅샷 입력순(byInserted) 위치. 스냅샷과 함께 만들어지고 함께 버려지므로 불변이다.
+ */
+final class ScreenIndex {
+
+    /** 한 열: NULL 은 byRow 에서 NaN 으로 표시 */
+    static final class Column {
+        final double[] byRow;
+        final double[] sorted;
+        final int[] rowOf;
+        final int[] nullRows;
+
+        Column(double[] byRow) {
+            this.byRow = byRow;
+            int nonNull = 0;
+            for (double v : byRow) if (!Double.isNaN(v)) nonNull++;
+            int[] rows = new int[nonNull];
+            int[] nulls = new int[byRow.length - nonNull];
+            for (int r = 0, i = 0, j = 0; r < byRow.length; r++) {
+                if (Double.isNaN(byRow[r])) nulls[j++] = r; else rows[i++] = r;
+            }
+            sortByValue(rows, byRow);
+            this.rowOf = rows;
+            this.nullRows = nulls;
+            this.sorted = new double[nonNull];
+            for (int i = 0; i < nonNull; i++) sorted[i] = byRow[rows[i]];
+        }
+
+        /** [from, to) = 범위에 드는 sorted 구간 */
+        int from(Double min, boolean exclusive) {
+            if (min == null) return 0;
+            return exclusive ? upperBound(sorted, min) : lowerBound(sorted, min);
+        }
+
+        int to(Double max, boolean exclusive) {
+            if (max == null) return sorted.length;
+            return exclusive ? lowerBound(sorted, max) : upperBound(sorted, max);
+        }
+    }
+
+    private final List<StockDTO> byInserted;
+    private final List<StockDTO> byName;
+    private final int[] nameRank;
+    final Column pbr;
+    final Column per;
+
+    ScreenIndex(List<StockDTO> byInserted, List<StockDTO> byName) {
+        this.byInserted = byInserted;
+        this.byName = byName;
+        int n = byInserted.size();
+        double[] pbrs = new double[n], pers = new double[n];
+        for (int r = 0; r < n; r++) {
+            StockDTO d = byInserted.get(r);
+            pbrs[r] = d.getPbr() == null ? Double.NaN : d.getPbr();
+            pers[r] = d.getPer() == null ? Double.NaN : d.getPer();
+        }
+        this.pbr = new Column(pbrs);
+        this.per = new Column(pers);
+
+        // 이름순 위치: byName 의 각 행을 입력순 행 번호로 되찾는다(id 오름차순 = 행 번호 순)
+        this.nameRank = new int[n];
+        for (int rank = 0; rank < n; rank++) {
+            nameRank[rowOfId(byName.get(rank).getId())] = rank;
+        }
+    }
+
+    private int rowOfId(long id) {
+        int lo = 0, hi = byInserted.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long v = byInserted.get(mid).getId();
+            if (v < id) lo = mid + 1;
+            else if (v > id) hi = mid - 1;
+            else return mid;
+        }
+        throw new IllegalStateException("스냅샷에 없는 id: " + id);
+    }
+
+    /** 조건에 맞는 행 중 [offset, offset+limit) 과 전체 건수 */
+    StockPage screen(ScreenCriteria c, int offset, int limit) {
+        Filter f = new Filter(c);
+        List<StockDTO> items = new ArrayList<>(Math.min(limit, 1024));
+        long total;
+        switch (c.getSort()) {
+            case PBR:
+                total = scanColumn(pbr, f.pbrOnlyNull ? 0 : f.pbrFrom, f.pbrOnlyNull ? 0 : f.pbrTo, f.pbrNulls,
+                        c.isDescending(), f, offset, limit, items);
+                break;
+            case PER:
+                total = scanColumn(per, f.perOnlyNull ? 0 : f.perFrom, f.perOnlyNull ? 0 : f.perTo, f.perNulls,
+                        c.isDescending(), f, offset, limit, items);
+                break;
+            default:
+                total = collectAndSort(c, f, offset, limit, items);
+        }
+        String next = offset + items.size() < total && !items.isEmpty()
+                ? PageCursor.encode(String.valueOf(offset + items.size())) : null;
+        return new StockPage(Collections.unmodifiableList(items), next, total);
+    }
+
+    /* 정렬 열의 값 순서대로 훑으며 다른 열 조건만 검사 (정렬 비용 없음). NULL 은 항상 뒤 */
+    private long scanColumn(Column col, int from, int to, boolean nulls, boolean desc, Filter f,
+                            int offset, int limit, List<StockDTO> out) {
+        long matched = 0;
+        for (int k = 0, n = to - from; k < n; k++) {
+            int row = col.rowOf[desc ? to - 1 - k : from + k];
+            if (f.test(row)) matched = take(row, matched, offset, limit, out);
+        }
+        if (nulls) {
+            for (int k = 0, n = col.nullRows.length; k < n; k++) {
+                int row = col.nullRows[desc ? n - 1 - k : k];
+                if (f.test(row)) matched = take(row, matched, offset, limit, out);
+            }
+        }
+        return matched;
+    }
+
+    private long take(int row, long matched, int offset, int limit, List<StockDTO> out) {
+        if (matched >= offset && out.size() < limit) out.add(byInserted.get(row));
+        return matched + 1;
+    }
+
+    /* 이름/id 정렬: 가장 좁은 후보 집합에서 걸러낸 뒤 행 번호(또는 이름 순위)를 정렬 */
+    private long collectAndSort(ScreenCriteria c, Filter f, int offset, int limit, List<StockDTO> out) {
+        int[] keys = new int[16];
+        int n = 0;
+        int pbrSpan = c.hasPbrRange() ? f.pbrTo - f.pbrFrom : Integer.MAX_VALUE;
+        int perSpan = c.hasPerRange() ? f.perTo - f.perFrom : Integer.MAX_VALUE;
+        boolean byName = c.getSort() == ScreenCriteria.SortKey.NAME;
+
+        int[] candidates;
+        int lo, hi;
+        if (pbrSpan != Integer.MAX_VALUE || perSpan != Integer.MAX_VALUE) {
+            Column col = pbrSpan <= perSpan ? pbr : per;
+            candidates = col.rowOf;
+            lo = col == pbr ? f.pbrFrom : f.perFrom;
+            hi = col == pbr ? f.pbrTo : f.perTo;
+        } else if (c.getPbrNulls() == ScreenCriteria.Nulls.ONLY) {
+            candidates = pbr.nullRows; lo = 0; hi = candidates.length;
+        } else if (c.getPerNulls() == ScreenCriteria.Nulls.ONLY) {
+            candidates = per.nullRows; lo = 0; hi = candidates.length;
+        } else {
+            candidates = null; lo = 0; hi = byInserted.size();
+        }
+        for (int i = lo; i < hi; i++) {
+            int row = candidates == null ? i : candidates[i];
+            if (!f.test(row)) continue;
+            if (n == keys.length) keys = Arrays.copyOf(keys, n * 2);
+            keys[n++] = byName ? nameRank[row] : row;
+        }
+        Arrays.sort(keys, 0, n);
+
+        int start = Math.min(offset, n), end = Math.min(n, offset + limit);
+        for (int k = start; k < end; k++) {
+            int key = keys[c.isDescending() ? n - 1 - k : k];
+            out.add(byName ? this.byName.get(key) : byInserted.get(key));
+        }
+        return n;
+    }
+
+    /* 조건을 열 구간/NULL 처리로 미리 풀어 둔 검사기 */
+    private final class Filter {
+        final int pbrFrom, pbrTo, perFrom, perTo;
+        final boolean pbrNulls, perNulls;
+        final boolean pbrOnlyNull, perOnlyNull;
+        final ScreenCriteria c;
+
+        Filter(ScreenCriteria c) {
+            this.c = c;
+            boolean ex = c.isExclusive();
+            pbrFrom = pbr.from(c.getPbrMin(), ex);
+            pbrTo = Math.max(pbrFrom, pbr.to(c.getPbrMax(), ex));
+            perFrom = per.from(c.getPerMin(), ex);
+            perTo = Math.max(perFrom, per.to(c.getPerMax(), ex));
+            pbrOnlyNull = !c.hasPbrRange() && c.getPbrNulls() == ScreenCriteria.Nulls.ONLY;
+            perOnlyNull = !c.hasPerRange() && c.getPerNulls() == ScreenCriteria.Nulls.ONLY;
+            pbrNulls = !c.hasPbrRange() && c.getPbrNulls() != ScreenCriteria.Nulls.EXCLUDE;
+            perNulls = !c.hasPerRange() && c.getPerNulls() != ScreenCriteria.Nulls.EXCLUDE;
+        }
+
+        boolean test(int row) {
+            return accept(pbr.byRow[row], c.getPbrMin(), c.getPbrMax(), pbrNulls, pbrOnlyNull)
+                    && accept(per.byRow[row], c.getPerMin(), c.getPerMax(), perNulls, perOnlyNull);
+        }
+
+        private boolean accept(double v, Double min, Double max, boolean nulls, boolean onlyNull) {
+            if (Double.isNaN(v)) return nulls;
+            if (onlyNull) return false;
+            boolean ex = c.isExclusive();
+            if (min != null && (ex ? v <= min : v < min)) return false;
+            if (max != null && (ex ? v >= max : v > max)) return false;
+            return true;
+        }
+    }
+
+    /* ===== 정렬/탐색 ===== */
+
+    /* 첫 번째 a[i] >= key */
+    private static int lowerBound(double[] a, double key) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /* 첫 번째 a[i] > key */
+    private static int upperBound(double[] a, double key) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /* 행 번호를 값 기준으로 안정 정렬 (같은 값은 행 번호 = id 순 유지), 박싱 없는 병합 정렬 */
+    private static void sortByValue(int[] rows, double[] value) {
+        int n = rows.length;
+        int[] src = rows, dst = new int[n];
+        for (int width = 1; width < n; width <<= 1) {
+            for (int lo = 0; lo < n; lo += width << 1) {
+                int mid = Math.min(lo + width, n), hi = Math.min(lo + (width << 1), n);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) dst[k++] = value[src[j]] < value[src[i]] ? src[j++] : src[i++];
+                while (i < mid) dst[k++] = src[i++];
+                while (j < hi) dst[k++] = src[j++];
+            }
+            int[] t = src; src = dst; dst = t;
+        }
+        if (src != rows) System.arraycopy(src, 0, rows, 0, n);
+    }
+}
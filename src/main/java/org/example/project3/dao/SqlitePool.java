@@ -0,0 +1,283 @@
+package org.example.project3.dao;
+
+import org.example.project3.metrics.LatencyHistogram;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SQLite 전용 커넥션 풀.
+ * - 읽기 커넥션 N개 + 직렬화된 쓰기 커넥션 1개
+ * - WAL 저널 모드: 읽기가 쓰기 뒤에서 막히지 않음
+ * - 커넥션별 PreparedStatement 캐시(LRU)
+ */
+public class SqlitePool implements AutoCloseable {
+
+    public static final int DEFAULT_READERS = 4;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 5_000;
+    public static final int DEFAULT_STATEMENT_CACHE = 32;
+    public static final int DEFAULT_BUSY_TIMEOUT_MS = 5_000;
+
+    private final String url;
+    private final int statementCacheSize;
+    private final long acquireTimeoutMs;
+
+    private final List<Lease> allReaders = new ArrayList<>();
+    private final BlockingQueue<Lease> idleReaders;
+    private final Lease writer;
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+
+    private volatile boolean closed;
+    /* 커넥션별 튜닝 PRAGMA: 다시 열리는 커넥션에도 적용 */
+    private volatile List<String> tuning = List.of();
+    /* 쓰기 커넥션 전용 준비 SQL (TEMP 테이블/트리거 등): 다시 여는 쓰기 커넥션에도 적용 */
+    private volatile List<String> writerSetup = List.of();
+
+    /* 대여 대기 시간 (시간 초과 포함) */
+    private final LatencyHistogram readAcquire = new LatencyHistogram();
+    private final LatencyHistogram writeAcquire = new LatencyHistogram();
+
+    public SqlitePool(String url) throws SQLException {
+        this(url, DEFAULT_READERS, DEFAULT_ACQUIRE_TIMEOUT_MS, DEFAULT_STATEMENT_CACHE);
+    }
+
+    public SqlitePool(String url, int readers, long acquireTimeoutMs, int statementCacheSize) throws SQLException {
+        if (readers < 1) throw new IllegalArgumentException("readers 는 1 이상이어야 합니다: " + readers);
+        this.url = url;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.statementCacheSize = Math.max(1, statementCacheSize);
+
+        // 쓰기 커넥션이 먼저 WAL 로 전환해야 읽기 커넥션도 WAL 로 열린다
+        this.writer = new Lease(open(false), false);
+        this.idleReaders = new ArrayBlockingQueue<>(readers);
+        try {
+            for (int i = 0; i < readers; i++) {
+                Lease r = new Lease(open(true), true);
+                allReaders.add(r);
+                idleReaders.add(r);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        Connection c = DriverManager.getConnection(url);
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA busy_timeout=" + DEFAULT_BUSY_TIMEOUT_MS);
+            if (!readOnly) {
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute("PRAGMA synchronous=NORMAL");
+            } else {
+                st.execute("PRAGMA query_only=1");
+            }
+            for (String p : tuning) st.execute("PRAGMA " + p);
+            if (!readOnly) {
+                for (String sql : writerSetup) st.execute(sql);
+            }
+        } catch (SQLException e) {
+            c.close();
+            throw e;
+        }
+        return c;
+    }
+
+    /** 읽기 커넥션 대여 (반드시 try-with-resources 로 반납) */
+    public Lease read() throws SQLException {
+        ensureOpen();
+        long t0 = System.nanoTime();
+        try {
+            Lease l = idleReaders.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            readAcquire.observeNanos(System.nanoTime() - t0);
+            if (l == null) {
+                throw new SQLTimeoutException("읽기 커넥션 대기 시간 초과(" + acquireTimeoutMs + "ms)");
+            }
+            return l;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("읽기 커넥션 대기 중 인터럽트", e);
+        }
+    }
+
+    /** 쓰기 커넥션 대여: 한 번에 한 스레드만 (반드시 try-with-resources 로 반납) */
+    public Lease write() throws SQLException {
+        ensureOpen();
+        long t0 = System.nanoTime();
+        try {
+            boolean locked = writeLock.tryLock(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            writeAcquire.observeNanos(System.nanoTime() - t0);
+            if (!locked) {
+                throw new SQLTimeoutException("쓰기 커넥션 대기 시간 초과(" + acquireTimeoutMs + "ms)");
+            }
+            return writer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("쓰기 커넥션 대기 중 인터럽트", e);
+        }
+    }
+
+    /** 모든 커넥션에 하는 작업 */
+    @FunctionalInterface
+    public interface LeaseWork {
+        void run(Lease l) throws SQLException;
+    }
+
+    /**
+     * 커넥션별 PRAGMA (예: "mmap_size=268435456", "cache_size=-16384") 를 지금 있는 커넥션 전부와
+     * 이후 다시 여는 커넥션에 적용한다. 읽기 커넥션을 전부 빌리므로 시작 시에 부른다.
+     */
+    public void tune(List<String> pragmas) throws SQLException {
+        this.tuning = List.copyOf(pragmas);
+        LeaseWork apply = l -> {
+            try (Statement st = l.connection().createStatement()) {
+                for (String p : tuning) st.execute("PRAGMA " + p);
+            }
+        };
+        try (Lease w = write()) {
+            apply.run(w);
+        }
+        forEachReader(apply);
+    }
+
+    /**
+     * 커넥션 범위의 준비 SQL(TEMP 테이블/트리거 등)을 쓰기 커넥션에 지금 실행하고, 다시 열 때도 실행한다.
+     * IF NOT EXISTS 로 여러 번 실행해도 되게 쓴다.
+     */
+    public void setupWriter(List<String> sqls) throws SQLException {
+        this.writerSetup = List.copyOf(sqls);
+        try (Lease w = write(); Statement st = w.connection().createStatement()) {
+            for (String sql : writerSetup) st.execute(sql);
+        }
+    }
+
+    /** 읽기 커넥션을 전부 한꺼번에 빌려 각각 한 번씩 작업 (워밍업/튜닝용, 그동안 다른 읽기는 대기) */
+    public void forEachReader(LeaseWork work) throws SQLException {
+        List<Lease> held = new ArrayList<>(allReaders.size());
+        try {
+            for (int i = 0; i < allReaders.size(); i++) held.add(read());
+            for (Lease l : held) work.run(l);
+        } finally {
+            for (Lease l : held) l.close();
+        }
+    }
+
+    /** PRAGMA 현재 값 (쓰기 커넥션 기준, 예: journal_mode) */
+    public String pragma(String name) throws SQLException {
+        try (Lease w = write(); Statement st = w.connection().createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    public String url() { return url; }
+    public int readerCount() { return allReaders.size(); }
+    public int idleReaderCount() { return idleReaders.size(); }
+    public LatencyHistogram readAcquireLatency() { return readAcquire; }
+    public LatencyHistogram writeAcquireLatency() { return writeAcquire; }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("커넥션 풀이 이미 닫혔습니다.");
+    }
+
+    private void release(Lease l) {
+        if (l.readOnly) {
+            if (closed) return;
+            idleReaders.offer(l);
+        } else {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Lease r : allReaders) r.closeQuietly();
+        if (writer != null) writer.closeQuietly();
+    }
+
+    /**
+     * 풀에서 빌린 커넥션. close() 는 실제로 닫지 않고 풀에 반납한다.
+     * prepare() 로 얻은 PreparedStatement 는 캐시 소유이므로 호출 측에서 닫지 않는다.
+     */
+    public final class Lease implements AutoCloseable {
+        private Connection conn;
+        private final boolean readOnly;
+        private final Map<String, PreparedStatement> statements;
+
+        private Lease(Connection conn, boolean readOnly) {
+            this.conn = conn;
+            this.readOnly = readOnly;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        public Connection connection() { return conn; }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps != null && !ps.isClosed()) {
+                ps.clearParameters();
+                return ps;
+            }
+            ps = conn.prepareStatement(sql);
+            statements.put(sql, ps);
+            evictOverflow();
+            return ps;
+        }
+
+        private void evictOverflow() {
+            Iterator<PreparedStatement> it = statements.values().iterator();
+            while (statements.size() > statementCacheSize && it.hasNext()) {
+                PreparedStatement old = it.next();
+                it.remove();
+                try { old.close(); } catch (SQLException ignore) { }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (conn.isClosed()) reopen();
+                else if (!conn.getAutoCommit()) {
+                    // 트랜잭션이 열린 채 반납되면 롤백 후 auto-commit 복구
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reopenQuietly();
+            } finally {
+                release(this);
+            }
+        }
+
+        private void reopen() throws SQLException {
+            clearStatements();
+            conn = open(readOnly);
+        }
+
+        private void reopenQuietly() {
+            try { conn.close(); } catch (SQLException ignore) { }
+            try { reopen(); } catch (SQLException ignore) { }
+        }
+
+        private void clearStatements() {
+            for (PreparedStatement ps : statements.values()) {
+                try { ps.close(); } catch (SQLException ignore) { }
+            }
+            statements.clear();
+        }
+
+        private void closeQuietly() {
+            clearStatements();
+            try { conn.close(); } catch (SQLException ignore) { }
+        }
+    }
+}
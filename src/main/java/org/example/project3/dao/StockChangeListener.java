@@ -0,0 +1,15 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.StockChange;
+
+/**
+ * 쓰기 커밋 후 알림. 커밋 직후 쓰기 잠금(SQLite 쓰기 커넥션 / 메모리 저장소 writeLock)을 쥔 채 호출되므로
+ * 알림은 커밋 순서대로 하나씩 도착한다 (그룹 커밋 모드 포함). 그동안 다음 쓰기가 기다리므로 오래 걸리는 일은 하지 않는다.
+ */
+public interface StockChangeListener {
+
+    void onChange(StockChange change);
+
+    /** 행 단위로 알리지 않는 대량 변경(CSV 가져오기 등) 후: 필요하면 전체를 다시 읽는다 */
+    default void onBulkChange() { }
+}
@@ -1,15 +1,84 @@
 package org.example.project3.dao;
 
+import org.example.project3.csv.CsvReader;
+import org.example.project3.dto.HistoryPoint;
+import org.example.project3.dto.ImportResult;
+import org.example.project3.dto.ScreenCriteria;
+import org.example.project3.dto.StockChange;
 import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.StockPage;
+import org.example.project3.dto.WriteResult;
+import org.example.project3.metrics.Metrics;
+import org.example.project3.util.TimestampCodec;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+public class StockDao implements StockRepository {
+    private static final String SELECT_COLS = "SELECT id, stock_code, stock_name, pbr, per, create_date, version ";
+    /*
+     * 이름순 정렬 키: NULL 이름은 빈 문자열과 같은 자리 (StockDTO 가 빈 이름을 null 로 읽으므로 둘을 구분할 수 없다).
+     * 키셋 비교에 NULL 이 끼면 결과가 NULL(= 거짓)이 되어 NULL 이름 행에서 페이지/스트림이 끊기지 않도록.
+     * ix_stocks_name_key 가 같은 식의 인덱스다.
+     */
+    private static final String NAME_KEY = "IFNULL(stock_name, '') COLLATE NOCASE";
+    /* 쓰기 결과 행 (SELECT_COLS 와 같은 순서라 mapRow 로 읽는다) */
+    private static final String RETURNING_COLS = " RETURNING id, stock_code, stock_name, pbr, per, create_date, version";
+    /*
+     * 쓰기 커넥션 전용 TEMP 트리거: UPDATE 직전 값을 한 칸짜리 TEMP 테이블에 남긴다.
+     * RETURNING 안의 하위 질의는 바뀐 뒤 값을 보므로 이전 값은 이 칸에서 읽는다 - 변경 알림을 위해 SELECT 를 따로 하지 않도록.
+     * (id/생성일은 그대로, 버전은 하나 작다)
+     * 트리거는 코드/이름/PBR/PER 를 바꾸는 UPDATE 마다 행당 한 번 돈다. importCsv 는 트랜잭션 동안 bulk 를 켜서
+     * 이 비용을 빼고(알림은 fireBulk 한 번), 생성일만 바꾸는 변환은 열 목록에 걸리지 않는다.
+     * 남는 비용은 WHEN 의 한 칸 조회와 단건 수정의 한 칸 UPDATE 뿐이다.
+     */
+    private static final List<String> BEFORE_IMAGE_SQL = List.of(
+            "CREATE TEMP TABLE IF NOT EXISTS stock_before " +
+                    "(slot INTEGER PRIMARY KEY, stock_code TEXT, stock_name TEXT, pbr REAL, per REAL, bulk INTEGER NOT NULL DEFAULT 0)",
+            "INSERT OR IGNORE INTO temp.stock_before (slot) VALUES (0)",
+            // 칸을 고쳐 쓰기만 한다: 트리거 안 INSERT OR REPLACE 는 바깥 문장(UPSERT)의 충돌 처리에 덮여 실패한다
+            "CREATE TEMP TRIGGER IF NOT EXISTS stock_before_bu BEFORE UPDATE OF stock_code, stock_name, pbr, per ON main.Stocks " +
+                    "WHEN (SELECT bulk FROM stock_before WHERE slot = 0) = 0 BEGIN " +
+                    "UPDATE stock_before SET stock_code = OLD.stock_code, stock_name = OLD.stock_name, " +
+                    "pbr = OLD.pbr, per = OLD.per WHERE slot = 0; END");
+    /* RETURNING_COLS 뒤 8~11번 열 = 이전 코드, 이름, PBR, PER */
+    private static final String RETURNING_BEFORE =
+            ", (SELECT stock_code FROM temp.stock_before WHERE slot = 0)" +
+            ", (SELECT stock_name FROM temp.stock_before WHERE slot = 0)" +
+            ", (SELECT pbr FROM temp.stock_before WHERE slot = 0)" +
+            ", (SELECT per FROM temp.stock_before WHERE slot = 0)";
+    /* importCsv 트랜잭션 안에서만 켠다: 롤백되면 함께 꺼진다 */
+    private static final String SQL_BULK_ON = "UPDATE temp.stock_before SET bulk = 1 WHERE slot = 0";
+    private static final String SQL_BULK_OFF = "UPDATE temp.stock_before SET bulk = 0 WHERE slot = 0";
+    private static final String SQL_BY_CODE = SELECT_COLS + "FROM Stocks WHERE stock_code = ?";
+    private static final String SQL_BY_ID = SELECT_COLS + "FROM Stocks WHERE id = ?";
+    /* findByCodes 의 IN 목록 한 번 크기 (구버전 SQLite 의 바인드 변수 한도 999 아래) */
+    static final int CODE_CHUNK = 256;
+    private static final int MIN_CODE_SLOTS = 8;
 
-public class StockDao {
     private final String url;
+    private final SqlitePool pool;
+    private final boolean ftsEnabled;
+    private final int schemaVersion;
+    private volatile GroupCommitWriter groupCommit;
+    private volatile boolean epochCreateDate;
+    private final StockSnapshotCache cache = new StockSnapshotCache(this::loadAllOrderById);
+    private final Metrics metrics = new Metrics();
+    private final List<StockChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     static {
         try {
@@ -20,205 +89,1199 @@ public class StockDao {
     }
 
     public StockDao(String sqliteUrl) {
+        this(sqliteUrl, SqlitePool.DEFAULT_READERS, SqlitePool.DEFAULT_ACQUIRE_TIMEOUT_MS,
+                SqlitePool.DEFAULT_STATEMENT_CACHE);
+    }
+
+    /** 풀 크기 지정 (web.xml 의 sqlite.pool.* context-param) */
+    public StockDao(String sqliteUrl, int readers, long acquireTimeoutMs, int statementCacheSize) {
         if (sqliteUrl == null || !sqliteUrl.startsWith("jdbc:sqlite:")) {
             throw new IllegalArgumentException("잘못된 SQLite URL: " + sqliteUrl);
         }
         this.url = sqliteUrl;
-        ensureTable();
+        try {
+            this.pool = new SqlitePool(sqliteUrl, readers, acquireTimeoutMs, statementCacheSize);
+        } catch (SQLException e) {
+            throw failure("커넥션 풀 생성 실패", e);
+        }
+        metrics.registerAcquire("read", pool.readAcquireLatency());
+        metrics.registerAcquire("write", pool.writeAcquireLatency());
+        try {
+            this.schemaVersion = SchemaMigrator.migrate(pool);
+            try (SqlitePool.Lease l = pool.read(); Statement st = l.connection().createStatement()) {
+                this.ftsEnabled = SchemaMigrator.tableExists(st, "Stocks_fts");
+            }
+        } catch (SQLException e) {
+            pool.close();
+            throw failure("스키마 마이그레이션 실패", e);
+        }
+        try {
+            pool.setupWriter(BEFORE_IMAGE_SQL);
+        } catch (SQLException e) {
+            pool.close();
+            throw failure("쓰기 커넥션 준비 실패", e);
+        }
     }
 
-    private Connection conn() throws SQLException {
-        return DriverManager.getConnection(url);
+    @Override
+    public void close() {
+        if (groupCommit != null) groupCommit.close();
+        pool.close();
     }
 
-    private void ensureTable() {
-        String sql = "CREATE TABLE IF NOT EXISTS Stocks (" +
-                " id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                " stock_code TEXT UNIQUE NOT NULL," +
-                " stock_name TEXT," +
-                " create_date TEXT DEFAULT (datetime('now','localtime'))," +
-                " pbr REAL," +
-                " per REAL" +
-                ")";
-        try (Connection c = conn(); Statement st = c.createStatement()) {
-            st.execute(sql);
+    /** 적용된 스키마 버전 (PRAGMA user_version) */
+    public int schemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * 시작 시 워밍업: 스냅샷 캐시와 스크리닝 인덱스를 미리 만들고,
+     * 모든 읽기 커넥션에 자주 쓰는 PreparedStatement 를 준비해 둔다.
+     * 첫 요청이 전체 적재/SQL 컴파일 비용을 치르지 않도록 서블릿이 요청을 받기 전에 부른다. 반환값 = 준비한 문장 수
+     */
+    public int warmUp() {
+        StockSnapshotCache.Snapshot snap = cache.get();
+        if (snap != null) snap.screenIndex();
+        // 검색 SQL 은 키워드 길이(FTS trigram 은 3자 이상)와 페이지/키셋 여부에 따라 모양이 다르다
+        List<String> sqls = new ArrayList<>(List.of(SQL_BY_CODE, SQL_BY_ID, "SELECT COUNT(*) FROM Stocks"));
+        for (int slots = MIN_CODE_SLOTS; slots <= CODE_CHUNK; slots <<= 1) sqls.add(byCodesSql(slots));
+        for (String kw : new String[]{"warm", "w"}) {
+            sqls.add(rankedSearchSql(kw, false, false));
+            sqls.add(rankedSearchSql(kw, false, true));
+            sqls.add(rankedSearchSql(kw, true, true));
+            sqls.add("SELECT COUNT(*) FROM " + searchFrom(kw));
+        }
+        try {
+            pool.forEachReader(l -> {
+                for (String sql : sqls) l.prepare(sql);
+            });
         } catch (SQLException e) {
-            throw new RuntimeException(detail("테이블 생성 실패", e), e);
+            throw failure("워밍업 실패", e);
         }
+        return sqls.size() * pool.readerCount();
+    }
+
+    /** 지연 시간/오류 지표 (/stocks/metrics) */
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /** 커넥션 풀 (지표 출력용) */
+    public SqlitePool pool() {
+        return pool;
+    }
+
+    /** 스냅샷 캐시 (hit/miss 통계 확인용) */
+    public StockSnapshotCache cache() {
+        return cache;
     }
 
     public List<StockDTO> findAllOrderByName() {
-        String sql = "SELECT id, stock_code, stock_name, pbr, per, create_date " +
-                "FROM Stocks ORDER BY stock_name COLLATE NOCASE ASC, id ASC";
-        try (Connection c = conn();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+        return timedRows("findAllOrderByName", this::allByName, List::size);
+    }
+
+    /*
+     * 아래 계측 없는 본문들은 다른 공개 메서드 안에서 재사용할 때 쓴다 (검색어가 비면 전체 목록 등).
+     * 공개 메서드를 그대로 부르면 바깥 타이머 안에서 한 번 더 재어 두 메서드에 모두 잡힌다.
+     */
+    private List<StockDTO> allByName() {
+        StockSnapshotCache.Snapshot snap = cache.get();
+        if (snap != null) return snap.byName();
+
+        String sql = SELECT_COLS + "FROM Stocks ORDER BY " + NAME_KEY + " ASC, id ASC";
+        try (SqlitePool.Lease l = pool.read();
+             ResultSet rs = l.prepare(sql).executeQuery()) {
             return mapList(rs);
         } catch (SQLException e) {
-            throw new RuntimeException(detail("SELECT 실패(이름순)", e), e);
+            throw failure("SELECT 실패(이름순)", e);
         }
     }
 
     public List<StockDTO> findAllOrderByInserted() {
-        String sql = "SELECT id, stock_code, stock_name, pbr, per, create_date " +
-                "FROM Stocks ORDER BY id ASC";
-        try (Connection c = conn();
-             PreparedStatement ps = c.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+        return timedRows("findAllOrderByInserted", () -> {
+            StockSnapshotCache.Snapshot snap = cache.get();
+            if (snap != null) return snap.byInserted();
+            return loadAllOrderById();
+        }, List::size);
+    }
+
+    private List<StockDTO> loadAllOrderById() {
+        String sql = SELECT_COLS + "FROM Stocks ORDER BY id ASC";
+        try (SqlitePool.Lease l = pool.read();
+             ResultSet rs = l.prepare(sql).executeQuery()) {
             return mapList(rs);
         } catch (SQLException e) {
-            throw new RuntimeException(detail("SELECT 실패(입력순)", e), e);
+            throw failure("SELECT 실패(입력순)", e);
         }
     }
 
+    /** 검색(전체): 코드 정확 일치 > 코드 접두사 > 이름 접두사 > 부분 일치 순 */
     public List<StockDTO> search(String keyword) {
+        return timedRows("search", () -> {
+            String kw = keyword == null ? "" : keyword.trim();
+            if (kw.isEmpty()) return allByName();
+
+            String sql = rankedSearchSql(kw, false, false);
+            try (SqlitePool.Lease l = pool.read()) {
+                PreparedStatement ps = l.prepare(sql);
+                bindSearch(ps, kw);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return mapList(rs);
+                }
+            } catch (SQLException e) {
+                throw failure("SEARCH 실패", e);
+            }
+        }, List::size);
+    }
+
+    /* ===== 스트리밍 조회 (행 단위 콜백, 메모리 일정) ===== */
+
+    /** 스트리밍 한 번에 읽기 커넥션을 잡고 읽는 행 수 */
+    static final int STREAM_CHUNK = 1000;
+
+    private static final String SQL_NAME_FIRST =
+            SELECT_COLS + "FROM Stocks ORDER BY " + NAME_KEY + " ASC, id ASC LIMIT ?";
+    private static final String SQL_NAME_AFTER = SELECT_COLS + "FROM Stocks " +
+            "WHERE " + NAME_KEY + " >= ? AND (" + NAME_KEY + ", id) > (?, ?) " +
+            "ORDER BY " + NAME_KEY + " ASC, id ASC LIMIT ?";
+    private static final String SQL_ID_AFTER = SELECT_COLS + "FROM Stocks WHERE id > ? ORDER BY id ASC LIMIT ?";
+
+    /** 이름순 전체를 한 행씩 넘긴다. 반환값 = 행 수 */
+    public long streamAllOrderByName(RowHandler h) {
+        return timedRows("streamAllOrderByName", () -> streamByName(h), n -> n);
+    }
+
+    private long streamByName(RowHandler h) {
+        return stream("STREAM 실패(이름순)", SQL_NAME_FIRST, SQL_NAME_AFTER, (ps, last) -> {
+            if (last == null) return 1;
+            String name = nameKey(last);
+            ps.setString(1, name);
+            ps.setString(2, name);
+            ps.setLong(3, last.getId());
+            return 4;
+        }, h);
+    }
+
+    /** 입력순 전체를 한 행씩 넘긴다. 반환값 = 행 수 */
+    public long streamAllOrderByInserted(RowHandler h) {
+        return timedRows("streamAllOrderByInserted", () -> {
+            return stream("STREAM 실패(입력순)", SQL_ID_AFTER, SQL_ID_AFTER, (ps, last) -> {
+                ps.setLong(1, last == null ? Long.MIN_VALUE : last.getId());
+                return 2;
+            }, h);
+        }, n -> n);
+    }
+
+    /** 검색 결과(순위순)를 한 행씩 넘긴다. 반환값 = 행 수 */
+    public long streamSearch(String keyword, RowHandler h) {
+        return timedRows("streamSearch", () -> {
+            String kw = keyword == null ? "" : keyword.trim();
+            if (kw.isEmpty()) return streamByName(h);
+            return stream("STREAM 실패(검색)", rankedSearchSql(kw, false, true), rankedSearchSql(kw, true, true),
+                    (ps, last) -> {
+                        int i = bindSearch(ps, kw);
+                        if (last != null) {
+                            ps.setLong(i++, searchTier(last, kw));
+                            ps.setString(i++, nameKey(last));
+                            ps.setLong(i++, last.getId());
+                        }
+                        return i;
+                    }, h);
+        }, n -> n);
+    }
+
+    /* NAME_KEY 자리에 바인딩할 값 (null 이름 = 빈 문자열) */
+    private static String nameKey(StockDTO d) {
+        return d.getStockName() == null ? "" : d.getStockName();
+    }
+
+    /* 키셋 청크 질의 바인딩: last = 앞 청크의 마지막 행 (첫 청크면 null), 반환값 = LIMIT 자리 */
+    @FunctionalInterface
+    private interface ChunkBinder {
+        int bind(PreparedStatement ps, StockDTO last) throws SQLException;
+    }
+
+    /*
+     * STREAM_CHUNK 행씩 키셋으로 읽어 콜백 호출. 읽기 커넥션은 청크를 읽는 동안만 잡고, 콜백(느린 클라이언트 전송)
+     * 중에는 반납한다 - 내려받기 하나가 풀의 커넥션과 읽기 트랜잭션을 끝까지 붙잡지 않도록.
+     * 청크마다 따로 읽으므로 전체가 한 시점의 스냅샷은 아니다 (도중에 바뀐 행은 바뀐 값으로, 정렬 키가 바뀌면 빠지거나 두 번 나올 수 있다).
+     * 콜백의 IOException(클라이언트 끊김 등)은 UncheckedIOException 으로 전달.
+     */
+    private long stream(String errMsg, String firstSql, String nextSql, ChunkBinder binder, RowHandler h) {
+        long n = 0;
+        StockDTO last = null;
+        try {
+            while (true) {
+                List<StockDTO> chunk;
+                try (SqlitePool.Lease l = pool.read()) {
+                    PreparedStatement ps = l.prepare(last == null ? firstSql : nextSql);
+                    ps.setInt(binder.bind(ps, last), STREAM_CHUNK);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        chunk = mapList(rs);
+                    }
+                }
+                for (StockDTO d : chunk) h.handle(d);
+                n += chunk.size();
+                if (chunk.size() < STREAM_CHUNK) return n;
+                last = chunk.get(chunk.size() - 1);
+            }
+        } catch (SQLException e) {
+            throw failure(errMsg, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 데이터 버전: 이 DAO 를 통한 쓰기가 커밋될 때마다 증가.
+     * (조건부 GET 의 ETag 재료, 다른 프로세스의 직접 수정은 반영되지 않음)
+     */
+    public long dataVersion() {
+        return cache.generation();
+    }
+
+    /** 마지막 쓰기 커밋 시각 (Last-Modified 용, 쓰기가 없었으면 DAO 생성 시각) */
+    public long lastModifiedMillis() {
+        return cache.modifiedMillis();
+    }
+
+    /* ===== 키셋 페이지네이션 ===== */
+
+    /** 이름순 페이지: 커서 = (stock_name NOCASE, id) */
+    public StockPage findPageOrderByName(String cursor, int size) {
+        return timedRows("findPageOrderByName", () -> pageByName(cursor, size), pg -> pg.getItems().size());
+    }
+
+    private StockPage pageByName(String cursor, int size) {
+        int n = StockRepository.clampPageSize(size);
+        String[] after = PageCursor.decode(cursor, 2);
+        Long afterId = after == null ? null : PageCursor.toLong(after[1]);
+
+        StockSnapshotCache.Snapshot snap = cache.get();
+        if (snap != null) return snap.pageByName(cursor, n);
+
+        String sql = afterId == null ? SQL_NAME_FIRST : SQL_NAME_AFTER;
+        return queryPage("SELECT 실패(이름순 페이지)", sql, ps -> {
+            int i = 1;
+            if (afterId != null) {
+                ps.setString(i++, after[0]);
+                ps.setString(i++, after[0]);
+                ps.setLong(i++, afterId);
+            }
+            ps.setInt(i, n + 1);
+        }, n, StockSnapshotCache::nameCursor, countRows());
+    }
+
+    /** 입력순 페이지: 커서 = id */
+    public StockPage findPageOrderByInserted(String cursor, int size) {
+        return timedRows("findPageOrderByInserted", () -> {
+            int n = StockRepository.clampPageSize(size);
+            String[] after = PageCursor.decode(cursor, 1);
+            Long afterId = after == null ? null : PageCursor.toLong(after[0]);
+
+            StockSnapshotCache.Snapshot snap = cache.get();
+            if (snap != null) return snap.pageByInserted(cursor, n);
+
+            return queryPage("SELECT 실패(입력순 페이지)", SQL_ID_AFTER, ps -> {
+                ps.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+                ps.setInt(2, n + 1);
+            }, n, StockSnapshotCache::idCursor, countRows());
+        }, pg -> pg.getItems().size());
+    }
+
+    /** 검색 페이지: 순위(tier) > 이름 > id 정렬, 커서 = (tier, stock_name NOCASE, id) */
+    public StockPage searchPage(String keyword, String cursor, int size) {
+        return timedRows("searchPage", () -> {
+            String kw = keyword == null ? "" : keyword.trim();
+            if (kw.isEmpty()) return pageByName(cursor, size);
+
+            int n = StockRepository.clampPageSize(size);
+            String[] after = PageCursor.decode(cursor, 3);
+            Long afterTier = after == null ? null : PageCursor.toLong(after[0]);
+            Long afterId = after == null ? null : PageCursor.toLong(after[2]);
+            boolean keyset = afterTier != null && afterId != null;
+
+            String sql = rankedSearchSql(kw, keyset, true);
+            return queryPage("SEARCH 실패(페이지)", sql, ps -> {
+                int i = bindSearch(ps, kw);
+                if (keyset) {
+                    ps.setLong(i++, afterTier);
+                    ps.setString(i++, after[1]);
+                    ps.setLong(i++, afterId);
+                }
+                ps.setInt(i, n + 1);
+            }, n, d -> PageCursor.encode(String.valueOf(searchTier(d, kw)), d.getStockName(), String.valueOf(d.getId())),
+                    searchCountRows(kw));
+        }, pg -> pg.getItems().size());
+    }
+
+    /** 검색 결과 건수 */
+    public long searchCount(String keyword) {
+        return timed("searchCount", () -> searchCountRows(keyword));
+    }
+
+    private long searchCountRows(String keyword) {
         String kw = keyword == null ? "" : keyword.trim();
-        if (kw.isEmpty()) return findAllOrderByName();
-
-        String sql = "SELECT id, stock_code, stock_name, pbr, per, create_date " +
-                "FROM Stocks " +
-                "WHERE stock_code LIKE ? OR stock_name LIKE ? " +
-                "ORDER BY stock_name COLLATE NOCASE ASC, id ASC";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
-            String like = "%" + kw + "%";
-            ps.setString(1, like);
-            ps.setString(2, like);
+        if (kw.isEmpty()) return countRows();
+        String sql = "SELECT COUNT(*) FROM " + searchFrom(kw);
+        try (SqlitePool.Lease l = pool.read()) {
+            PreparedStatement ps = l.prepare(sql);
+            bindSearchFrom(ps, 1, kw);
             try (ResultSet rs = ps.executeQuery()) {
-                return mapList(rs);
+                return rs.next() ? rs.getLong(1) : 0L;
             }
         } catch (SQLException e) {
-            throw new RuntimeException(detail("SEARCH 실패", e), e);
+            throw failure("SEARCH COUNT 실패", e);
         }
     }
 
-    /** 정확 일치로 한 건 조회 (code) */
-    public StockDTO findByCode(String code) {
-        String sql = "SELECT id, stock_code, stock_name, pbr, per, create_date FROM Stocks WHERE stock_code = ?";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, code);
+    /* ===== PBR/PER 스크리닝 ===== */
+
+    /**
+     * 범위 조건 + 정렬로 거른 한 페이지. 커서 = 다음 시작 위치(offset).
+     * 스냅샷이 있으면 열 지향 인덱스(정렬된 double[])에서, 없으면 ix_stocks_pbr/per 를 쓰는 SQL 로 처리한다.
+     */
+    public StockPage screen(ScreenCriteria criteria, String cursor, int size) {
+        return timedRows("screen", () -> {
+            ScreenCriteria c = criteria == null ? new ScreenCriteria() : criteria;
+            int n = StockRepository.clampPageSize(size);
+            String[] after = PageCursor.decode(cursor, 1);
+            Long from = after == null ? null : PageCursor.toLong(after[0]);
+            int offset = from == null || from < 0 || from > Integer.MAX_VALUE ? 0 : from.intValue();
+
+            StockSnapshotCache.Snapshot snap = cache.get();
+            if (snap != null) return snap.screenIndex().screen(c, offset, n);
+            return screenSql(c, offset, n);
+        }, pg -> pg.getItems().size());
+    }
+
+    private StockPage screenSql(ScreenCriteria c, int offset, int n) {
+        List<Double> args = new ArrayList<>();
+        String where = screenWhere(c, args);
+        String dir = c.isDescending() ? " DESC" : " ASC";
+        String order;
+        switch (c.getSort()) {
+            case PBR: order = "pbr IS NULL, pbr" + dir + ", id" + dir; break;
+            case PER: order = "per IS NULL, per" + dir + ", id" + dir; break;
+            case NAME: order = NAME_KEY + dir + ", id" + dir; break;
+            default: order = "id" + dir;
+        }
+        Binder bindRange = ps -> {
+            for (int i = 0; i < args.size(); i++) ps.setDouble(i + 1, args.get(i));
+        };
+        long total;
+        try (SqlitePool.Lease l = pool.read()) {
+            PreparedStatement ps = l.prepare("SELECT COUNT(*) FROM Stocks" + where);
+            bindRange.bind(ps);
             try (ResultSet rs = ps.executeQuery()) {
-                List<StockDTO> list = mapList(rs);
-                return list.isEmpty() ? null : list.get(0);
+                total = rs.next() ? rs.getLong(1) : 0L;
             }
         } catch (SQLException e) {
-            throw new RuntimeException(detail("findByCode 실패", e), e);
+            throw failure("SCREEN COUNT 실패", e);
         }
+        String sql = SELECT_COLS + "FROM Stocks" + where + " ORDER BY " + order + " LIMIT ? OFFSET ?";
+        return queryPage("SCREEN 실패", sql, ps -> {
+            bindRange.bind(ps);
+            ps.setInt(args.size() + 1, n + 1);
+            ps.setInt(args.size() + 2, offset);
+        }, n, d -> null, total, offset);
     }
 
-    /** PK로 한 건 조회 (id) */
-    public StockDTO findById(Long id) {
-        String sql = "SELECT id, stock_code, stock_name, pbr, per, create_date FROM Stocks WHERE id = ?";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setLong(1, id);
+    /* 범위가 있으면 NULL 은 비교에서 자연히 빠진다. 범위가 없을 때만 NULL 조건을 붙인다 */
+    private static String screenWhere(ScreenCriteria c, List<Double> args) {
+        List<String> conds = new ArrayList<>();
+        String lo = c.isExclusive() ? " > ?" : " >= ?";
+        String hi = c.isExclusive() ? " < ?" : " <= ?";
+        rangeConds("pbr", c.getPbrMin(), c.getPbrMax(), c.getPbrNulls(), lo, hi, conds, args);
+        rangeConds("per", c.getPerMin(), c.getPerMax(), c.getPerNulls(), lo, hi, conds, args);
+        return conds.isEmpty() ? "" : " WHERE " + String.join(" AND ", conds);
+    }
+
+    private static void rangeConds(String col, Double min, Double max, ScreenCriteria.Nulls nulls,
+                                   String lo, String hi, List<String> conds, List<Double> args) {
+        if (min != null) { conds.add(col + lo); args.add(min); }
+        if (max != null) { conds.add(col + hi); args.add(max); }
+        if (min == null && max == null) {
+            if (nulls == ScreenCriteria.Nulls.EXCLUDE) conds.add(col + " IS NOT NULL");
+            else if (nulls == ScreenCriteria.Nulls.ONLY) conds.add(col + " IS NULL");
+        }
+    }
+
+    /*
+     * 검색 대상 행: 3글자 이상이면 FTS5 trigram 인덱스(부분 문자열 = 트라이그램 구 검색),
+     * 그보다 짧으면 trigram 으로 찾을 수 없으므로 LIKE 스캔.
+     */
+    private boolean useFts(String kw) {
+        return ftsEnabled && kw.codePointCount(0, kw.length()) >= 3;
+    }
+
+    private String searchFrom(String kw) {
+        return useFts(kw)
+                ? "Stocks s JOIN Stocks_fts f ON f.rowid = s.id WHERE Stocks_fts MATCH ?"
+                : "Stocks s WHERE s.stock_code LIKE ? ESCAPE '\\' OR s.stock_name LIKE ? ESCAPE '\\'";
+    }
+
+    private int bindSearchFrom(PreparedStatement ps, int i, String kw) throws SQLException {
+        if (useFts(kw)) {
+            ps.setString(i++, "\"" + kw.replace("\"", "\"\"") + "\"");
+        } else {
+            String like = "%" + likeEscape(kw) + "%";
+            ps.setString(i++, like);
+            ps.setString(i++, like);
+        }
+        return i;
+    }
+
+    private String rankedSearchSql(String kw, boolean keyset, boolean limit) {
+        return "SELECT * FROM (" +
+                "SELECT s.id, s.stock_code, s.stock_name, s.pbr, s.per, s.create_date, s.version, " +
+                "CASE WHEN s.stock_code = ? THEN 0 " +
+                "WHEN s.stock_code LIKE ? ESCAPE '\\' THEN 1 " +
+                "WHEN s.stock_name LIKE ? ESCAPE '\\' THEN 2 ELSE 3 END AS tier " +
+                "FROM " + searchFrom(kw) + ") " +
+                (keyset ? "WHERE (tier, " + NAME_KEY + ", id) > (?, ?, ?) " : "") +
+                "ORDER BY tier ASC, " + NAME_KEY + " ASC, id ASC" +
+                (limit ? " LIMIT ?" : "");
+    }
+
+    /** 순위 계산용 3개 + 검색 대상 바인딩, 다음 파라미터 위치를 돌려준다 */
+    private int bindSearch(PreparedStatement ps, String kw) throws SQLException {
+        String prefix = likeEscape(kw) + "%";
+        ps.setString(1, kw);
+        ps.setString(2, prefix);
+        ps.setString(3, prefix);
+        return bindSearchFrom(ps, 4, kw);
+    }
+
+    /** rankedSearchSql 의 CASE 식과 같은 규칙 (LIKE 는 ASCII 대소문자 무시) */
+    static int searchTier(StockDTO d, String kw) {
+        String code = d.getStockCode(), name = d.getStockName();
+        if (kw.equals(code)) return 0;
+        if (code != null && code.regionMatches(true, 0, kw, 0, kw.length())) return 1;
+        if (name != null && name.regionMatches(true, 0, kw, 0, kw.length())) return 2;
+        return 3;
+    }
+
+    private static String likeEscape(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /** 전체 건수: 스냅샷이 있으면 그 크기, 없으면 COUNT(*) */
+    public long count() {
+        return timed("count", this::countRows);
+    }
+
+    private long countRows() {
+        StockSnapshotCache.Snapshot snap = cache.get();
+        if (snap != null) return snap.size();
+        return countWhere("COUNT 실패", "SELECT COUNT(*) FROM Stocks");
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    /** n+1 행을 읽어 다음 페이지 존재 여부를 판단 */
+    private StockPage queryPage(String errMsg, String sql, Binder binder, int n,
+                                Function<StockDTO, String> cursorOf, long total) {
+        return queryPage(errMsg, sql, binder, n, cursorOf, total, -1);
+    }
+
+    /* offset >= 0 이면 커서 = 다음 offset (스크리닝) */
+    private StockPage queryPage(String errMsg, String sql, Binder binder, int n,
+                                Function<StockDTO, String> cursorOf, long total, int offset) {
+        try (SqlitePool.Lease l = pool.read()) {
+            PreparedStatement ps = l.prepare(sql);
+            binder.bind(ps);
             try (ResultSet rs = ps.executeQuery()) {
-                List<StockDTO> list = mapList(rs);
-                return list.isEmpty() ? null : list.get(0);
+                List<StockDTO> rows = mapList(rs);
+                String next = null;
+                if (rows.size() > n) {
+                    rows = rows.subList(0, n);
+                    next = offset >= 0 ? PageCursor.encode(String.valueOf(offset + n)) : cursorOf.apply(rows.get(n - 1));
+                }
+                return new StockPage(rows, next, total);
             }
         } catch (SQLException e) {
-            throw new RuntimeException(detail("findById 실패", e), e);
+            throw failure(errMsg, e);
         }
     }
 
-    public void insert(StockDTO d) {
-        String sql = "INSERT INTO Stocks (stock_code, stock_name, create_date, pbr, per) " +
-                "VALUES (?, ?, datetime('now','localtime'), ?, ?)";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, d.getStockCode());
-            ps.setString(2, d.getStockName());
-            if (d.getPbr() == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, d.getPbr());
-            if (d.getPer()  == null) ps.setNull(4, Types.REAL); else ps.setDouble(4, d.getPer());
-            ps.executeUpdate();
+    private long countWhere(String errMsg, String sql, String... args) {
+        try (SqlitePool.Lease l = pool.read()) {
+            PreparedStatement ps = l.prepare(sql);
+            for (int i = 0; i < args.length; i++) ps.setString(i + 1, args[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
         } catch (SQLException e) {
-            throw new RuntimeException(detail("INSERT 실패(중복 코드 가능)", e), e);
+            throw failure(errMsg, e);
         }
     }
 
-    /** PK로 업데이트: stock_code까지 함께 변경 가능 */
-    public boolean updateById(Long id, String code, String name, Double pbr, Double per) {
-        String sql = "UPDATE Stocks SET stock_code=?, stock_name=?, pbr=?, per=? WHERE id=?";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
+    /* ===== 대량 가져오기 (CSV/TSV) ===== */
+
+    public static final int IMPORT_BATCH = 1000;
+
+    private String upsertSql() {
+        return "INSERT INTO Stocks (stock_code, stock_name, create_date, pbr, per) " +
+                "VALUES (?, ?, " + nowExpr() + ", ?, ?) " +
+                "ON CONFLICT(stock_code) DO UPDATE SET " +
+                "stock_name = excluded.stock_name, pbr = excluded.pbr, per = excluded.per, version = version + 1";
+    }
+
+    /* 헤더가 없을 때의 열 순서: 코드, 이름, PBR, PER */
+    static final int[] DEFAULT_COLUMNS = {0, 1, 2, 3};
+
+    static final class ImportRow {
+        final long line;
+        final String code, name;
+        final Double pbr, per;
+
+        ImportRow(long line, String code, String name, Double pbr, Double per) {
+            this.line = line;
+            this.code = code;
+            this.name = name;
+            this.pbr = pbr;
+            this.per = per;
+        }
+    }
+
+    /**
+     * CSV/TSV 스트림을 한 트랜잭션으로 업서트.
+     * - 한 레코드씩 읽어 IMPORT_BATCH 건마다 JDBC 배치 실행
+     * - 배치 중 한 행이라도 실패하면 그 배치만 되돌리고 한 건씩 다시 넣어 실패 행을 찾아낸다
+     * - 입력 자체를 읽다 끊기면(IOException) 전체 롤백
+     * 첫 줄이 헤더(stock_code/stock_name/pbr/per 등)면 열 위치를 헤더에서 찾는다.
+     */
+    public ImportResult importCsv(Reader reader, char delimiter) {
+        return timedRows("importCsv", () -> {
+            ImportResult result = new ImportResult();
+            long t0 = System.nanoTime();
+            try (SqlitePool.Lease l = pool.write(); CsvReader csv = new CsvReader(reader, delimiter)) {
+                Connection c = l.connection();
+                PreparedStatement ps = l.prepare(upsertSql());
+                c.setAutoCommit(false);
+                l.prepare(SQL_BULK_ON).executeUpdate();
+
+                int[] cols = null;
+                List<ImportRow> batch = new ArrayList<>(IMPORT_BATCH);
+                String[] rec;
+                while ((rec = csv.next()) != null) {
+                    if (cols == null) {
+                        cols = headerColumns(rec);
+                        if (cols != null) continue;
+                        cols = DEFAULT_COLUMNS;
+                    }
+                    ImportRow row = parseImportRow(rec, cols, csv.lineNumber(), result);
+                    if (row == null) continue;
+                    batch.add(row);
+                    if (batch.size() == IMPORT_BATCH) flushImportBatch(c, ps, batch, result);
+                }
+                flushImportBatch(c, ps, batch, result);
+                l.prepare(SQL_BULK_OFF).executeUpdate();
+                c.commit();
+                c.setAutoCommit(true);
+                // 알림은 쓰기 커넥션을 반납하기 전에: 이후 쓰기의 알림이 앞질러 가지 않도록
+                if (result.getUpserted() > 0) {
+                    cache.invalidate();
+                    fireBulk();
+                }
+            } catch (SQLException e) {
+                throw failure("IMPORT 실패", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            result.finish(System.nanoTime() - t0);
+            return result;
+        }, ImportResult::getProcessed);
+    }
+
+    /** 헤더 행이면 [code, name, pbr, per] 열 위치(-1 = 없음), 아니면 null */
+    static int[] headerColumns(String[] rec) {
+        int[] cols = {-1, -1, -1, -1};
+        for (int i = 0; i < rec.length; i++) {
+            String h = rec[i].trim().toLowerCase().replace("_", "");
+            switch (h) {
+                case "stockcode": case "code": case "종목코드": case "코드": cols[0] = i; break;
+                case "stockname": case "name": case "종목명": case "이름": cols[1] = i; break;
+                case "pbr": cols[2] = i; break;
+                case "per": cols[3] = i; break;
+                default:
+            }
+        }
+        return cols[0] >= 0 ? cols : null;
+    }
+
+    static ImportRow parseImportRow(String[] rec, int[] cols, long line, ImportResult result) {
+        String code = column(rec, cols[0]);
+        String name = column(rec, cols[1]);
+        if (code == null || name == null) {
+            result.failed(line, code, "코드와 이름은 필수입니다");
+            return null;
+        }
+        try {
+            String pbr = column(rec, cols[2]);
+            String per = column(rec, cols[3]);
+            return new ImportRow(line, code, name,
+                    pbr == null ? null : Double.valueOf(pbr),
+                    per == null ? null : Double.valueOf(per));
+        } catch (NumberFormatException e) {
+            result.failed(line, code, "PBR/PER 숫자 형식 오류");
+            return null;
+        }
+    }
+
+    private static String column(String[] rec, int idx) {
+        if (idx < 0 || idx >= rec.length) return null;
+        String v = rec[idx].trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static void bindUpsert(PreparedStatement ps, ImportRow r) throws SQLException {
+        ps.setString(1, r.code);
+        ps.setString(2, r.name);
+        if (r.pbr == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, r.pbr);
+        if (r.per == null) ps.setNull(4, Types.REAL); else ps.setDouble(4, r.per);
+    }
+
+    private static void flushImportBatch(Connection c, PreparedStatement ps, List<ImportRow> batch,
+                                         ImportResult result) throws SQLException {
+        if (batch.isEmpty()) return;
+        Savepoint sp = c.setSavepoint();
+        try {
+            for (ImportRow r : batch) {
+                bindUpsert(ps, r);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            c.releaseSavepoint(sp);
+            result.upserted(batch.size());
+        } catch (SQLException batchError) {
+            ps.clearBatch();
+            c.rollback(sp);
+            c.releaseSavepoint(sp);
+            // 실패 행 찾기: 한 건씩 (SQLite 는 문장 단위로 원자적이므로 실패한 문장만 무효)
+            for (ImportRow r : batch) {
+                try {
+                    bindUpsert(ps, r);
+                    ps.executeUpdate();
+                    result.upserted(1);
+                } catch (SQLException e) {
+                    result.failed(r.line, r.code, detail("업서트 실패", e));
+                }
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /** 정확 일치로 한 건 조회 (code) */
+    public StockDTO findByCode(String code) {
+        return timedRows("findByCode", () -> byCode(code), d -> d == null ? 0 : 1);
+    }
+
+    private StockDTO byCode(String code) {
+        try (SqlitePool.Lease l = pool.read()) {
+            PreparedStatement ps = l.prepare(SQL_BY_CODE);
             ps.setString(1, code);
-            ps.setString(2, name);
-            if (pbr == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, pbr);
-            if (per == null) ps.setNull(4, Types.REAL); else ps.setDouble(4, per);
-            ps.setLong(5, id);
-            return ps.executeUpdate() > 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                List<StockDTO> list = mapList(rs);
+                return list.isEmpty() ? null : list.get(0);
+            }
         } catch (SQLException e) {
-            throw new RuntimeException(detail("updateById 실패", e), e);
+            throw failure("findByCode 실패", e);
         }
     }
 
+    /** PK로 한 건 조회 (id) */
+    public StockDTO findById(Long id) {
+        return timedRows("findById", () -> {
+            try (SqlitePool.Lease l = pool.read()) {
+                PreparedStatement ps = l.prepare(SQL_BY_ID);
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    List<StockDTO> list = mapList(rs);
+                    return list.isEmpty() ? null : list.get(0);
+                }
+            } catch (SQLException e) {
+                throw failure("findById 실패", e);
+            }
+        }, d -> d == null ? 0 : 1);
+    }
+
+    /**
+     * 여러 코드를 한 커넥션에서 IN 목록 쿼리 몇 번으로 조회 (CODE_CHUNK 개씩).
+     * 자리 수를 2의 거듭제곱으로 맞추고 남는 자리는 마지막 코드로 채워 준비된 문장을 재사용한다.
+     */
+    public Map<String, StockDTO> findByCodes(Collection<String> codes) {
+        Map<String, StockDTO> out = StockRepository.lookupOrder(codes);
+        return timedRows("findByCodes", () -> {
+            if (out.isEmpty()) return out;
+            List<String> keys = new ArrayList<>(out.keySet());
+            try (SqlitePool.Lease l = pool.read()) {
+                for (int from = 0; from < keys.size(); from += CODE_CHUNK) {
+                    List<String> chunk = keys.subList(from, Math.min(keys.size(), from + CODE_CHUNK));
+                    int slots = Math.max(MIN_CODE_SLOTS, Integer.highestOneBit(chunk.size() - 1) << 1);
+                    PreparedStatement ps = l.prepare(byCodesSql(slots));
+                    for (int i = 0; i < slots; i++) {
+                        ps.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        for (StockDTO d : mapList(rs)) out.replace(d.getStockCode(), d);
+                    }
+                }
+            } catch (SQLException e) {
+                throw failure("findByCodes 실패", e);
+            }
+            return out;
+        }, m -> m.values().stream().filter(Objects::nonNull).count());
+    }
+
+    private static String byCodesSql(int slots) {
+        StringBuilder sb = new StringBuilder(SELECT_COLS).append("FROM Stocks WHERE stock_code IN (?");
+        for (int i = 1; i < slots; i++) sb.append(", ?");
+        return sb.append(')').toString();
+    }
+
+    /** 추가: 같은 코드가 있으면 예외 대신 DUPLICATE_CODE (INSERT ... ON CONFLICT DO NOTHING RETURNING 한 문장) */
+    public WriteResult insert(StockDTO d) {
+        return timed("insert", () -> {
+            String sql = "INSERT INTO Stocks (stock_code, stock_name, create_date, pbr, per) " +
+                    "VALUES (?, ?, " + nowExpr() + ", ?, ?) ON CONFLICT(stock_code) DO NOTHING" + RETURNING_COLS;
+            try {
+                StockDTO row = write(l -> {
+                    PreparedStatement ps = l.prepare(sql);
+                    ps.setString(1, d.getStockCode());
+                    ps.setString(2, d.getStockName());
+                    if (d.getPbr() == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, d.getPbr());
+                    if (d.getPer()  == null) ps.setNull(4, Types.REAL); else ps.setDouble(4, d.getPer());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? mapRow(rs) : null;
+                    }
+                }, added -> {
+                    if (added == null) return;
+                    cache.invalidate();
+                    fire(new StockChange(StockChange.Type.INSERT, null, added));
+                });
+                return row == null ? WriteResult.duplicateCode() : WriteResult.created(row);
+            } catch (SQLException e) {
+                throw failure("INSERT 실패", e);
+            }
+        });
+    }
+
+    /*
+     * 코드/이름이 NULL 이면 기존 값 유지, 기대 버전(?6)이 NULL 이면 버전 검사 없음.
+     * 다른 행이 쓰는 코드로 바꾸려 하면 UNIQUE 예외 대신 0행이 된다.
+     */
+    private static final String SQL_UPDATE_BY_ID = "UPDATE Stocks SET " +
+            "stock_code = COALESCE(?1, stock_code), stock_name = COALESCE(?2, stock_name), " +
+            "pbr = ?3, per = ?4, version = version + 1 " +
+            "WHERE id = ?5 AND (?6 IS NULL OR version = ?6) " +
+            "AND (?1 IS NULL OR NOT EXISTS (SELECT 1 FROM Stocks o WHERE o.stock_code = ?1 AND o.id <> ?5))" +
+            RETURNING_COLS + RETURNING_BEFORE;
+
+    /**
+     * PK로 수정 (stock_code 까지 변경 가능): 조건 검사와 변경을 UPDATE ... RETURNING 한 문장으로.
+     * code/name 이 null 이면 기존 값 유지, pbr/per 는 null 이면 비운다.
+     * expectedVersion 이 있으면 저장된 버전과 같을 때만 바꾸고, 다르면 CONFLICT (현재 행 포함).
+     *
+     * 변경 알림에 쓸 이전 값도 같은 RETURNING 으로 받는다 (BEFORE_IMAGE_SQL). 실패(0행)일 때만 원인을 가리려고 한 번 더 읽는다.
+     */
+    public WriteResult updateById(Long id, Long expectedVersion, String code, String name, Double pbr, Double per) {
+        return timed("updateById", () -> {
+            if (id == null) return WriteResult.notFound();
+            StockDTO[] before = new StockDTO[1];
+            try {
+                WriteResult r = write(l -> {
+                    PreparedStatement ps = l.prepare(SQL_UPDATE_BY_ID);
+                    ps.setString(1, code);
+                    ps.setString(2, name);
+                    if (pbr == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, pbr);
+                    if (per == null) ps.setNull(4, Types.REAL); else ps.setDouble(4, per);
+                    ps.setLong(5, id);
+                    if (expectedVersion == null) ps.setNull(6, Types.INTEGER); else ps.setLong(6, expectedVersion);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            StockDTO after = mapRow(rs);
+                            before[0] = mapBefore(rs, after);
+                            return WriteResult.updated(after);
+                        }
+                    }
+                    // 0행: 없는 행 / 버전 충돌 / 코드 중복 (실패할 때만 한 번 더 읽는다)
+                    StockDTO cur = selectOne(l, "id = ?", id);
+                    if (cur == null) return WriteResult.notFound();
+                    if (expectedVersion != null && !expectedVersion.equals(cur.getVersion())) {
+                        return WriteResult.conflict(cur);
+                    }
+                    return WriteResult.duplicateCode();
+                }, r1 -> {
+                    if (r1.isApplied()) changed(StockChange.Type.UPDATE, before[0], r1.getRow());
+                });
+                return r;
+            } catch (SQLException e) {
+                throw failure("updateById 실패", e);
+            }
+        });
+    }
+
     /** (참고) 기존 코드 기준 업데이트도 유지하고 싶다면 남겨둠 */
     public boolean update(String code, String name, Double pbr, Double per) {
-        String sql = "UPDATE Stocks SET stock_name=?, pbr=?, per=? WHERE stock_code=?";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, name);
-            if (pbr == null) ps.setNull(2, Types.REAL); else ps.setDouble(2, pbr);
-            if (per == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, per);
-            ps.setString(4, code);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            throw new RuntimeException(detail("UPDATE 실패", e), e);
-        }
+        return timed("update", () -> {
+            String sql = "UPDATE Stocks SET stock_name=?, pbr=?, per=?, version = version + 1 WHERE stock_code=?" +
+                    RETURNING_COLS + RETURNING_BEFORE;
+            try {
+                StockDTO[] before = new StockDTO[1];
+                StockDTO after = write(l -> {
+                    PreparedStatement ps = l.prepare(sql);
+                    ps.setString(1, name);
+                    if (pbr == null) ps.setNull(2, Types.REAL); else ps.setDouble(2, pbr);
+                    if (per == null) ps.setNull(3, Types.REAL); else ps.setDouble(3, per);
+                    ps.setString(4, code);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) return null;
+                        StockDTO row = mapRow(rs);
+                        before[0] = mapBefore(rs, row);
+                        return row;
+                    }
+                }, row -> changed(StockChange.Type.UPDATE, before[0], row));
+                return after != null;
+            } catch (SQLException e) {
+                throw failure("UPDATE 실패", e);
+            }
+        });
     }
 
     public boolean delete(String code) {
-        String sql = "DELETE FROM Stocks WHERE stock_code=?";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, code);
-            return ps.executeUpdate() > 0;
+        return timed("delete", () -> {
+            // 지운 행이 곧 이전 값
+            String sql = "DELETE FROM Stocks WHERE stock_code=?" + RETURNING_COLS;
+            try {
+                StockDTO before = write(l -> {
+                    PreparedStatement ps = l.prepare(sql);
+                    ps.setString(1, code);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? mapRow(rs) : null;
+                    }
+                }, old -> changed(StockChange.Type.DELETE, old, null));
+                return before != null;
+            } catch (SQLException e) {
+                throw failure("DELETE 실패", e);
+            }
+        });
+    }
+
+    /* 쓰기 커넥션에서 현재 행을 읽는다 (실패 원인 가리기용) */
+    private StockDTO selectOne(SqlitePool.Lease l, String where, Object key) throws SQLException {
+        PreparedStatement ps = l.prepare(SELECT_COLS + "FROM Stocks WHERE " + where);
+        ps.setObject(1, key);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? mapRow(rs) : null;
+        }
+    }
+
+    /* ===== PBR/PER 이력 ===== */
+
+    /**
+     * 한 종목의 [from, to] 기간 이력 (시간순).
+     * 점이 maxPoints 보다 많으면 기간을 maxPoints 개 구간으로 나눠 구간 평균으로 줄인다.
+     * 종목이 없으면 빈 목록.
+     */
+    public List<HistoryPoint> history(String code, long fromMillis, long toMillis, int maxPoints) {
+        return timedRows("history", () -> {
+            StockDTO stock = byCode(code);
+            if (stock == null || toMillis < fromMillis) return Collections.<HistoryPoint>emptyList();
+            int points = Math.max(1, maxPoints);
+            try (SqlitePool.Lease l = pool.read()) {
+                PreparedStatement count = l.prepare(
+                        "SELECT COUNT(*) FROM Stocks_history WHERE stock_id = ? AND ts BETWEEN ? AND ?");
+                count.setLong(1, stock.getId());
+                count.setLong(2, fromMillis);
+                count.setLong(3, toMillis);
+                long n;
+                try (ResultSet rs = count.executeQuery()) {
+                    n = rs.next() ? rs.getLong(1) : 0L;
+                }
+                PreparedStatement ps;
+                if (n <= points) {
+                    ps = l.prepare("SELECT ts, pbr, per FROM Stocks_history " +
+                            "WHERE stock_id = ? AND ts BETWEEN ? AND ? ORDER BY ts");
+                } else {
+                    long width = Math.max(1, (toMillis - fromMillis) / points + 1);
+                    ps = l.prepare("SELECT MIN(ts), AVG(pbr), AVG(per) FROM Stocks_history " +
+                            "WHERE stock_id = ? AND ts BETWEEN ? AND ? " +
+                            "GROUP BY (ts - ?) / ? ORDER BY 1");
+                    ps.setLong(4, fromMillis);
+                    ps.setLong(5, width);
+                }
+                ps.setLong(1, stock.getId());
+                ps.setLong(2, fromMillis);
+                ps.setLong(3, toMillis);
+                List<HistoryPoint> out = new ArrayList<>((int) Math.min(n, points));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        double pbr = rs.getDouble(2);
+                        boolean pbrNull = rs.wasNull();
+                        double per = rs.getDouble(3);
+                        boolean perNull = rs.wasNull();
+                        out.add(new HistoryPoint(rs.getLong(1), pbrNull ? null : pbr, perNull ? null : per));
+                    }
+                }
+                return out;
+            } catch (SQLException e) {
+                throw failure("HISTORY 실패", e);
+            }
+        }, List::size);
+    }
+
+    /**
+     * 오래된 이력 압축: olderThanMillis 이전 점들을 종목별 bucketMillis 구간마다 마지막 값 하나만 남긴다
+     * (값은 "그 시점부터 유효"한 계단 함수라 마지막 값이 구간 끝 상태). 반환값 = 지운 행 수
+     */
+    public long compactHistory(long olderThanMillis, long bucketMillis) {
+        return timed("compactHistory", () -> {
+            String sql = "DELETE FROM Stocks_history WHERE ts < ?1 AND (stock_id, ts) NOT IN (" +
+                    "SELECT stock_id, MAX(ts) FROM Stocks_history WHERE ts < ?1 " +
+                    "GROUP BY stock_id, ts / ?2)";
+            try (SqlitePool.Lease l = pool.write()) {
+                PreparedStatement ps = l.prepare(sql);
+                ps.setLong(1, olderThanMillis);
+                ps.setLong(2, Math.max(1, bucketMillis));
+                return (long) ps.executeUpdate();
+            } catch (SQLException e) {
+                throw failure("HISTORY 압축 실패", e);
+            }
+        });
+    }
+
+    /* ===== 변경 알림 ===== */
+
+    /** 커밋 후 변경 알림 등록 (예: 통계 증분 갱신) */
+    public void addChangeListener(StockChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(StockChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /*
+     * 커밋 직후 쓰기 커넥션을 쥔 채(write 의 afterCommit) 호출한다 - 알림이 커밋 순서대로 나가도록.
+     * before 가 null 이면 바뀐 행이 없음.
+     */
+    private void changed(StockChange.Type type, StockDTO before, StockDTO after) {
+        if (before == null) return;
+        cache.invalidate();
+        fire(new StockChange(type, before, after));
+    }
+
+    private void fire(StockChange change) {
+        for (StockChangeListener l : listeners) l.onChange(change);
+    }
+
+    private void fireBulk() {
+        for (StockChangeListener l : listeners) l.onBulkChange();
+    }
+
+    /* ===== create_date 저장 형식 ===== */
+
+    private static final String NOW_TEXT = "datetime('now','localtime')";
+    static final String NOW_EPOCH_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    private String nowExpr() {
+        return epochCreateDate ? NOW_EPOCH_MILLIS : NOW_TEXT;
+    }
+
+    /* Stocks_meta 키: create_date 변환을 확인한 마지막 id (이 id 까지는 텍스트 시각이 없다) */
+    private static final String META_EPOCH_CHECKED = "create_date.epoch.checkedId";
+
+    /**
+     * (선택) create_date 를 epoch 밀리초로 전환.
+     * 이후 INSERT 는 epoch 밀리초로 기록하고, 기존 텍스트 행은 1000건씩 한 트랜잭션으로 변환한다.
+     * 청크마다 확인한 마지막 id 를 Stocks_meta 에 같이 커밋하므로, 다음 시작 때는 그 뒤의 행만 훑는다.
+     * 읽기 쪽 TimestampCodec 이 두 형식을 모두 읽으므로 변환 중간에 중단돼도 안전하다.
+     * 반환값 = 이번에 변환한 행 수
+     */
+    public long migrateCreateDateToEpochMillis() {
+        epochCreateDate = true;
+        // 숫자가 아닌 문자가 섞인 값 = 아직 텍스트 시각
+        String select = "SELECT id, create_date FROM Stocks " +
+                "WHERE id > ? AND id <= ? AND create_date GLOB '*[^0-9]*' ORDER BY id LIMIT 1000";
+        String update = "UPDATE Stocks SET create_date = ? WHERE id = ?";
+        String mark = "INSERT INTO Stocks_meta (key, value) VALUES (?, ?) " +
+                "ON CONFLICT(key) DO UPDATE SET value = excluded.value";
+        long converted = 0;
+        try {
+            // 여기까지 확인하면 끝: 이후 INSERT 는 이미 epoch 밀리초
+            long[] range = write(l -> {
+                PreparedStatement ps = l.prepare("SELECT (SELECT value FROM Stocks_meta WHERE key = ?), " +
+                        "(SELECT MAX(id) FROM Stocks)");
+                ps.setString(1, META_EPOCH_CHECKED);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    long checked = rs.getObject(1) == null ? Long.MIN_VALUE : rs.getLong(1);
+                    return new long[]{checked, rs.getLong(2)};
+                }
+            });
+            long afterId = range[0], upTo = range[1];
+            while (afterId < upTo) {
+                long from = afterId;
+                long[] progress = write(l -> {
+                    // 그룹 커밋 모드면 이미 쓰기 스레드의 트랜잭션 안, 아니면 청크 하나를 직접 트랜잭션으로
+                    Connection c = l.connection();
+                    boolean own = c.getAutoCommit();
+                    if (own) c.setAutoCommit(false);
+                    long last = from, n = 0;
+                    int seen = 0;
+                    PreparedStatement sel = l.prepare(select);
+                    sel.setLong(1, from);
+                    sel.setLong(2, upTo);
+                    List<long[]> rows = new ArrayList<>();
+                    try (ResultSet rs = sel.executeQuery()) {
+                        while (rs.next()) {
+                            last = rs.getLong(1);
+                            seen++;
+                            LocalDateTime t = TimestampCodec.parse(rs.getString(2));
+                            if (t != null) rows.add(new long[]{last, TimestampCodec.toEpochMillis(t)});
+                        }
+                    }
+                    // 청크가 덜 찼으면 upTo 까지 남은 텍스트 행이 없다
+                    if (seen < 1000) last = upTo;
+                    PreparedStatement upd = l.prepare(update);
+                    for (long[] r : rows) {
+                        upd.setLong(1, r[1]);
+                        upd.setLong(2, r[0]);
+                        upd.addBatch();
+                        n++;
+                    }
+                    if (n > 0) upd.executeBatch();
+                    PreparedStatement m = l.prepare(mark);
+                    m.setString(1, META_EPOCH_CHECKED);
+                    m.setLong(2, last);
+                    m.executeUpdate();
+                    if (own) {
+                        c.commit();
+                        c.setAutoCommit(true);
+                    }
+                    return new long[]{last, n};
+                });
+                afterId = progress[0];
+                converted += progress[1];
+            }
         } catch (SQLException e) {
-            throw new RuntimeException(detail("DELETE 실패", e), e);
+            throw failure("create_date 변환 실패", e);
+        }
+        if (converted > 0) cache.invalidate();
+        return converted;
+    }
+
+    /* ===== 쓰기 경로: 직접 실행(auto-commit) 또는 그룹 커밋 큐 ===== */
+
+    /**
+     * 그룹 커밋 모드 켜기: 이후 insert/update/delete 는 단일 쓰기 스레드가 모아서 커밋한다.
+     * (대량 가져오기는 자체 트랜잭션을 쓰므로 대상 아님)
+     */
+    public synchronized void enableGroupCommit(int maxBatch, long maxDelayMs) {
+        if (groupCommit != null) return;
+        groupCommit = new GroupCommitWriter(pool, maxBatch, maxDelayMs);
+    }
+
+    /** 그룹 커밋 지표 (꺼져 있으면 null) */
+    public GroupCommitWriter groupCommit() {
+        return groupCommit;
+    }
+
+    /* 반환 시점에는 이미 커밋되어 있다 */
+    private <T> T write(GroupCommitWriter.Work<T> work) throws SQLException {
+        return write(work, null);
+    }
+
+    /*
+     * afterCommit(결과)는 커밋 직후 쓰기 커넥션을 반납하기 전에 실행된다.
+     * 쓰기는 한 번에 하나뿐이므로 변경 알림이 커밋 순서대로 나간다 (같은 행을 두 스레드가 고쳐도 뒤바뀌지 않음).
+     */
+    private <T> T write(GroupCommitWriter.Work<T> work, Consumer<T> afterCommit) throws SQLException {
+        GroupCommitWriter gc = groupCommit;
+        if (gc != null) return gc.submit(work, afterCommit);
+        try (SqlitePool.Lease l = pool.write()) {
+            T result = work.run(l);
+            if (afterCommit != null) afterCommit.accept(result);
+            return result;
         }
     }
 
-    private List<StockDTO> mapList(ResultSet rs) throws SQLException {
+    /* mapList/parseDate 는 src/bench 의 JMH 벤치마크가 직접 호출하므로 package-private */
+    List<StockDTO> mapList(ResultSet rs) throws SQLException {
         List<StockDTO> out = new ArrayList<>();
         while (rs.next()) {
-            StockDTO d = new StockDTO(
-                    rs.getLong("id"),
-                    rs.getString("stock_code"),
-                    rs.getString("stock_name"),
-                    rs.getObject("pbr") == null ? null : rs.getDouble("pbr"),
-                    rs.getObject("per") == null ? null : rs.getDouble("per"),
-                    parseDate(rs.getString("create_date"))
-            );
-            out.add(d);
+            out.add(mapRow(rs));
         }
         return out;
     }
 
-    private static LocalDateTime parseDate(String raw) {
-        if (raw == null || raw.trim().isEmpty()) return null;
-        String s = raw.trim();
-        try {
-            if (s.contains(" ")) {
-                int dot = s.indexOf('.');
-                if (dot > 0) {
-                    String head = s.substring(0, dot);
-                    String frac = s.substring(dot + 1).replaceAll("[^0-9]", "");
-                    if (frac.length() > 9) frac = frac.substring(0, 9);
-                    String padded = String.format("%-9s", frac).replace(' ', '0');
-                    return LocalDateTime.parse(head.replace(' ', 'T') + "." + padded,
-                            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS"));
-                } else {
-                    return LocalDateTime.parse(s.replace(' ', 'T'),
-                            DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-                }
-            }
-            return LocalDateTime.parse(s, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (Exception ignore) {
-            try {
-                return LocalDateTime.parse(
-                        s.replace(' ', 'T').substring(0, Math.min(s.length(), 19)),
-                        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")
-                );
-            } catch (Exception e2) {
-                return null;
-            }
+    /*
+     * 열 번호로 읽는다: 모든 조회는 SELECT_COLS 순서
+     * (1 id, 2 stock_code, 3 stock_name, 4 pbr, 5 per, 6 create_date, 7 version) 를 지킨다.
+     * REAL 의 NULL 은 getDouble 후 wasNull 로 판별(열을 두 번 읽지 않음).
+     */
+    private StockDTO mapRow(ResultSet rs) throws SQLException {
+        long id = rs.getLong(1);
+        String code = rs.getString(2);
+        String name = rs.getString(3);
+        double pbr = rs.getDouble(4);
+        boolean pbrNull = rs.wasNull();
+        double per = rs.getDouble(5);
+        boolean perNull = rs.wasNull();
+        return new StockDTO(id, code, name,
+                pbrNull ? null : pbr,
+                perNull ? null : per,
+                parseDate(rs.getString(6)),
+                rs.getLong(7));
+    }
+
+    /* RETURNING_COLS + RETURNING_BEFORE 결과의 이전 행 */
+    private StockDTO mapBefore(ResultSet rs, StockDTO after) throws SQLException {
+        double pbr = rs.getDouble(10);
+        boolean pbrNull = rs.wasNull();
+        double per = rs.getDouble(11);
+        boolean perNull = rs.wasNull();
+        return new StockDTO(after.getId(), rs.getString(8), rs.getString(9),
+                pbrNull ? null : pbr,
+                perNull ? null : per,
+                after.getCreateDate(),
+                after.getVersion() - 1);
+    }
+
+    static LocalDateTime parseDate(String raw) {
+        return TimestampCodec.parse(raw);
+    }
+
+    /* ===== 계측 ===== */
+
+    // 타이머는 닫히는 것(close)만으로 기록하므로 본문에서 쓰지 않는다
+    @SuppressWarnings("try")
+    private <T> T timed(String method, Supplier<T> body) {
+        try (Metrics.Timer t = metrics.time(method)) {
+            return body.get();
+        }
+    }
+
+    private <T> T timedRows(String method, Supplier<T> body, ToLongFunction<T> rows) {
+        try (Metrics.Timer t = metrics.time(method)) {
+            T result = body.get();
+            t.rows(rows.applyAsLong(result));
+            return result;
         }
     }
 
+    /* SQLState 별 오류 건수를 세고 호출 측이 던질 예외를 만든다 */
+    private RuntimeException failure(String msg, SQLException e) {
+        metrics.sqlError(e);
+        return new RuntimeException(detail(msg, e), e);
+    }
+
     private static String detail(String msg, SQLException e) {
         return msg + " [SQLState=" + e.getSQLState() + ", ErrorCode=" + e.getErrorCode() + ", Message=" + e.getMessage() + "]";
     }
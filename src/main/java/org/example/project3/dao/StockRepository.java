@@ -0,0 +1,137 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.HistoryPoint;
+import org.example.project3.dto.ImportResult;
+import org.example.project3.dto.ScreenCriteria;
+import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.StockPage;
+import org.example.project3.dto.WriteResult;
+import org.example.project3.metrics.Metrics;
+
+import java.io.Reader;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 종목 저장소. 서블릿/리스너는 이 인터페이스만 쓴다.
+ * - StockDao: SQLite (기본)
+ * - MemoryStockRepository: 전체 행을 메모리에 두고 스냅샷 + WAL 파일로 영속
+ * web.xml 의 repository.type (sqlite | memory) 으로 고른다.
+ *
+ * 돌려주는 StockDTO 는 요청 간에 공유될 수 있으므로 읽기 전용으로만 사용한다.
+ * 오류는 구현에 상관없이 RuntimeException (메시지는 화면/API 에 그대로 노출)
+ */
+public interface StockRepository extends AutoCloseable {
+
+    int DEFAULT_PAGE_SIZE = 100;
+    int MAX_PAGE_SIZE = 1000;
+    /** findByCodes 한 번에 받는 코드 수 상한 */
+    int MAX_BATCH_CODES = 1000;
+
+    static int clampPageSize(int size) {
+        if (size <= 0) return DEFAULT_PAGE_SIZE;
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /* ===== 전체/검색 조회 ===== */
+
+    List<StockDTO> findAllOrderByName();
+
+    List<StockDTO> findAllOrderByInserted();
+
+    /** 검색(전체): 코드 정확 일치 > 코드 접두사 > 이름 접두사 > 부분 일치 순 */
+    List<StockDTO> search(String keyword);
+
+    /** 이름순 전체를 한 행씩 넘긴다. 반환값 = 행 수 */
+    long streamAllOrderByName(RowHandler h);
+
+    /** 입력순 전체를 한 행씩 넘긴다. 반환값 = 행 수 */
+    long streamAllOrderByInserted(RowHandler h);
+
+    /** 검색 결과(순위순)를 한 행씩 넘긴다. 반환값 = 행 수 */
+    long streamSearch(String keyword, RowHandler h);
+
+    /* ===== 페이지 (커서는 구현 간 형식이 같다) ===== */
+
+    StockPage findPageOrderByName(String cursor, int size);
+
+    StockPage findPageOrderByInserted(String cursor, int size);
+
+    StockPage searchPage(String keyword, String cursor, int size);
+
+    long searchCount(String keyword);
+
+    StockPage screen(ScreenCriteria criteria, String cursor, int size);
+
+    long count();
+
+    /* ===== 한 건 ===== */
+
+    StockDTO findByCode(String code);
+
+    StockDTO findById(Long id);
+
+    /** 여러 코드를 한 번에: 요청 순서(공백/중복 제외)대로, 없는 코드는 값이 null */
+    Map<String, StockDTO> findByCodes(Collection<String> codes);
+
+    /** findByCodes 결과 틀: 다듬은 코드 -> null (요청 순서 유지) */
+    static Map<String, StockDTO> lookupOrder(Collection<String> codes) {
+        Map<String, StockDTO> out = new LinkedHashMap<>();
+        if (codes == null) return out;
+        for (String c : codes) {
+            if (c == null || c.isBlank()) continue;
+            out.putIfAbsent(c.trim(), null);
+        }
+        if (out.size() > MAX_BATCH_CODES) {
+            throw new IllegalArgumentException("코드는 한 번에 " + MAX_BATCH_CODES + "개까지: " + out.size());
+        }
+        return out;
+    }
+
+    /* ===== 쓰기 (반환 시점에 커밋/기록 완료, 이후 변경 알림) ===== */
+
+    /** 추가: CREATED 또는 DUPLICATE_CODE (행 버전은 1 부터) */
+    WriteResult insert(StockDTO d);
+
+    /**
+     * PK로 수정: UPDATED / NOT_FOUND / CONFLICT / DUPLICATE_CODE.
+     * code/name 이 null 이면 기존 값 유지, pbr/per 는 null 이면 비운다.
+     * expectedVersion 이 null 이 아니면 저장된 버전과 같을 때만 바꾼다 (낙관적 잠금).
+     */
+    WriteResult updateById(Long id, Long expectedVersion, String code, String name, Double pbr, Double per);
+
+    boolean update(String code, String name, Double pbr, Double per);
+
+    boolean delete(String code);
+
+    ImportResult importCsv(Reader reader, char delimiter);
+
+    /* ===== PBR/PER 이력 ===== */
+
+    List<HistoryPoint> history(String code, long fromMillis, long toMillis, int maxPoints);
+
+    long compactHistory(long olderThanMillis, long bucketMillis);
+
+    /* ===== 상태 ===== */
+
+    /** 쓰기 커밋마다 증가 (조건부 GET 의 ETag 재료) */
+    long dataVersion();
+
+    long lastModifiedMillis();
+
+    Metrics metrics();
+
+    StockSnapshotCache cache();
+
+    void addChangeListener(StockChangeListener listener);
+
+    void removeChangeListener(StockChangeListener listener);
+
+    /** 시작 시 캐시/준비 작업, 반환값 = 구현별 준비 항목 수 */
+    int warmUp();
+
+    @Override
+    void close();
+}
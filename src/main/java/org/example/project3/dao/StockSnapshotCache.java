@@ -0,0 +1,199 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.StockPage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Stocks 전체 행의 불변 스냅샷 캐시 (read-through).
+ * - 이름순/입력순 두 정렬을 미리 계산해 둔다
+ * - 쓰기 후 invalidate() 로 세대(generation)를 올리면 다음 읽기에서 다시 만든다
+ * - 재구성은 한 스레드만 하고, 그동안 다른 읽기는 기다리지 않고 DB 로 직접 간다(get() == null)
+ *
+ * 스냅샷 안의 StockDTO 는 요청 간에 공유되므로 읽기 전용으로만 사용해야 한다.
+ */
+public class StockSnapshotCache {
+
+    /** SQLite 의 "IFNULL(stock_name, '') COLLATE NOCASE ASC, id ASC" 와 같은 순서 */
+    public static final Comparator<StockDTO> NAME_ORDER = (a, b) -> {
+        int c = compareNoCase(a.getStockName(), b.getStockName());
+        return c != 0 ? c : Long.compare(a.getId(), b.getId());
+    };
+
+    @FunctionalInterface
+    public interface Loader {
+        /** 전체 행을 id ASC 순서로 읽는다 */
+        List<StockDTO> loadAllOrderById();
+    }
+
+    public static final class Snapshot {
+        private final long generation;
+        private final List<StockDTO> byName;
+        private final List<StockDTO> byInserted;
+
+        private Snapshot(long generation, List<StockDTO> rowsById) {
+            this.generation = generation;
+            this.byInserted = Collections.unmodifiableList(new ArrayList<>(rowsById));
+            List<StockDTO> sorted = new ArrayList<>(rowsById);
+            sorted.sort(NAME_ORDER);
+            this.byName = Collections.unmodifiableList(sorted);
+        }
+
+        public long generation() { return generation; }
+        public List<StockDTO> byName() { return byName; }
+        public List<StockDTO> byInserted() { return byInserted; }
+        public int size() { return byInserted.size(); }
+
+        /** 이름순 페이지: 커서 = (stock_name NOCASE, id) */
+        public StockPage pageByName(String cursor, int n) {
+            String[] after = PageCursor.decode(cursor, 2);
+            Long afterId = after == null ? null : PageCursor.toLong(after[1]);
+            int from = 0;
+            if (afterId != null) {
+                StockDTO probe = new StockDTO(afterId, null, after[0], null, null, null);
+                int i = Collections.binarySearch(byName, probe, NAME_ORDER);
+                from = i >= 0 ? i + 1 : -i - 1;
+            }
+            return slice(byName, from, n, size(), StockSnapshotCache::nameCursor);
+        }
+
+        /** 입력순 페이지: 커서 = id */
+        public StockPage pageByInserted(String cursor, int n) {
+            String[] after = PageCursor.decode(cursor, 1);
+            Long afterId = after == null ? null : PageCursor.toLong(after[0]);
+            int from = 0;
+            if (afterId != null) {
+                int lo = 0, hi = byInserted.size();
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (byInserted.get(mid).getId() <= afterId) lo = mid + 1; else hi = mid;
+                }
+                from = lo;
+            }
+            return slice(byInserted, from, n, size(), StockSnapshotCache::idCursor);
+        }
+
+        /* 스크리닝 인덱스는 처음 쓰일 때 만든다 (경합 시 두 번 만들어질 수 있지만 결과는 같다) */
+        private volatile ScreenIndex screenIndex;
+
+        ScreenIndex screenIndex() {
+            ScreenIndex s = screenIndex;
+            if (s == null) screenIndex = s = new ScreenIndex(byInserted, byName);
+            return s;
+        }
+    }
+
+    private final Loader loader;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long modifiedMillis = System.currentTimeMillis();
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StockSnapshotCache(Loader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * 최신 스냅샷. 낡았으면 재구성을 시도하고,
+     * 다른 스레드가 이미 재구성 중이면 기다리지 않고 null 을 돌려준다(호출 측은 DB 직접 조회).
+     */
+    public Snapshot get() {
+        Snapshot s = current.get();
+        if (s != null && s.generation == generation.get()) {
+            hits.increment();
+            return s;
+        }
+        misses.increment();
+        if (!buildLock.tryLock()) return null;
+        try {
+            s = current.get();
+            long gen = generation.get();
+            if (s != null && s.generation == gen) return s;
+
+            Snapshot fresh = new Snapshot(gen, loader.loadAllOrderById());
+            // 로딩 중에 쓰기가 있었다면 저장하지 않는다(이번 호출에만 사용)
+            if (generation.get() == gen) current.set(fresh);
+            return fresh;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * get() 과 같지만 다른 스레드가 재구성 중이면 기다린다.
+     * 돌아갈 DB 경로가 없는 저장소(MemoryStockRepository)용.
+     */
+    public Snapshot await() {
+        Snapshot s = get();
+        if (s != null) return s;
+        buildLock.lock();
+        try {
+            return get();
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    /** 쓰기 커밋 후 호출 */
+    public void invalidate() {
+        modifiedMillis = System.currentTimeMillis();
+        generation.incrementAndGet();
+    }
+
+    public long generation() { return generation.get(); }
+    /** 마지막 invalidate() 시각 (없으면 생성 시각) */
+    public long modifiedMillis() { return modifiedMillis; }
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+
+    @Override
+    public String toString() {
+        Snapshot s = current.get();
+        return "StockSnapshotCache[hits=" + hits() + ", misses=" + misses()
+                + ", rows=" + (s == null ? "-" : String.valueOf(s.size())) + "]";
+    }
+
+    static String nameCursor(StockDTO d) {
+        return PageCursor.encode(d.getStockName(), String.valueOf(d.getId()));
+    }
+
+    static String idCursor(StockDTO d) {
+        return PageCursor.encode(String.valueOf(d.getId()));
+    }
+
+    static StockPage slice(List<StockDTO> all, int from, int n, long total,
+                           Function<StockDTO, String> cursorOf) {
+        int to = Math.min(all.size(), from + n);
+        if (from >= to) return new StockPage(Collections.emptyList(), null, total);
+        List<StockDTO> items = all.subList(from, to);
+        String next = to < all.size() ? cursorOf.apply(items.get(items.size() - 1)) : null;
+        return new StockPage(items, next, total);
+    }
+
+    /** NOCASE: ASCII 만 소문자로 접고 코드포인트(= UTF-8 바이트) 순 비교, NULL 은 빈 문자열과 같다 */
+    static int compareNoCase(String a, String b) {
+        if (a == null) a = "";
+        if (b == null) b = "";
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i), cb = b.codePointAt(j);
+            if (ca >= 'A' && ca <= 'Z') ca += 32;
+            if (cb >= 'A' && cb <= 'Z') cb += 32;
+            if (ca != cb) return Integer.compare(ca, cb);
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
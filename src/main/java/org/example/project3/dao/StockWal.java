@@ -0,0 +1,417 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.HistoryPoint;
+import org.example.project3.dto.StockDTO;
+import org.example.project3.util.TimestampCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * MemoryStockRepository 의 파일 영속 계층: 바이너리 스냅샷 1개 + 추가만 하는 WAL 파일들.
+ *
+ * - WAL 파일 이름은 wal-{첫 순번}.log, 레코드 = [길이 int][CRC32 int][본문]
+ * - 스냅샷(stocks.snap)은 임시 파일에 쓰고 fsync 후 원자적 이름 변경, 디렉터리까지 fsync 한 뒤 이전 WAL 을 지운다. 본문 끝에 CRC32
+ * - 복구: 스냅샷을 읽고 그 순번 이후의 WAL 레코드를 차례로 재생.
+ *   마지막 파일 끝의 잘린/깨진 레코드(쓰는 도중 종료)는 잘라내고, 그 앞 파일이 깨졌으면 실패한다.
+ *
+ * 스레드 안전하지 않다: 호출 측(쓰기 락)이 직렬화한다.
+ */
+final class StockWal implements AutoCloseable {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte COMPACT = 3;
+    /* 파일에만 쓰는 종류: 행 버전이 붙은 PUT (읽으면 PUT 으로 돌려준다, 예전 PUT 은 버전 1) */
+    private static final byte PUT_VERSIONED = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x53544B53;   // "STKS"
+    /* 1: 행 버전 없음 (읽을 때 1), 2: 행마다 버전 */
+    private static final int SNAPSHOT_FORMAT = 2;
+    private static final String SNAPSHOT = "stocks.snap";
+    private static final int MAX_RECORD = 1 << 20;
+
+    /** WAL 한 레코드 (PUT: row, DELETE: id, COMPACT: olderThan/bucket) */
+    static final class Record {
+        final byte op;
+        final long seq;
+        final long ts;
+        final StockDTO row;
+        final long a, b;
+
+        Record(byte op, long seq, long ts, StockDTO row, long a, long b) {
+            this.op = op;
+            this.seq = seq;
+            this.ts = ts;
+            this.row = row;
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    /** 스냅샷 내용 */
+    static final class State {
+        long lastSeq;
+        long nextId = 1;
+        List<StockDTO> rows = new ArrayList<>();
+        Map<Long, HistoryPoint[]> history = Collections.emptyMap();
+    }
+
+    @FunctionalInterface
+    interface Replay {
+        void apply(Record r);
+    }
+
+    private final Path dir;
+    private final boolean fsync;
+    private FileChannel current;
+    private Path currentPath;
+
+    StockWal(Path dir, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+    }
+
+    boolean isEmpty() throws IOException {
+        return !Files.exists(dir.resolve(SNAPSHOT)) && walFiles().isEmpty();
+    }
+
+    /* ===== 복구 ===== */
+
+    /**
+     * 스냅샷(없으면 빈 상태)을 base 로 넘긴 뒤 그 이후 WAL 레코드를 replay 로 넘긴다.
+     * 끝나면 새 WAL 파일을 열고 마지막 순번을 돌려준다.
+     */
+    long recover(Consumer<State> base, Replay replay) throws IOException {
+        State st = readSnapshot();
+        base.accept(st);
+        long seq = st.lastSeq;
+        List<Path> wals = walFiles();
+        for (int i = 0; i < wals.size(); i++) {
+            Path p = wals.get(i);
+            long good = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(p)))) {
+                while (true) {
+                    Frame f;
+                    try {
+                        f = readFrame(in);
+                    } catch (EOFException | CorruptRecord e) {
+                        if (good < Files.size(p) && i < wals.size() - 1) {
+                            throw new IOException("WAL 손상(마지막 파일이 아님): " + p + " @" + good, e);
+                        }
+                        break;
+                    }
+                    good += 8 + f.size;
+                    if (f.record.seq <= seq) continue;
+                    replay.apply(f.record);
+                    seq = f.record.seq;
+                }
+            }
+            if (good < Files.size(p)) {
+                // 쓰는 도중 끝난 꼬리 레코드
+                try (FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE)) {
+                    ch.truncate(good);
+                }
+            }
+        }
+        rotate(seq + 1);
+        return seq;
+    }
+
+    private static final class CorruptRecord extends IOException {
+        CorruptRecord(String msg) { super(msg); }
+    }
+
+    private static final class Frame {
+        final Record record;
+        final int size;
+
+        Frame(Record record, int size) {
+            this.record = record;
+            this.size = size;
+        }
+    }
+
+    private static Frame readFrame(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        int crc = in.readInt();
+        if (len <= 0 || len > MAX_RECORD) throw new CorruptRecord("레코드 길이 오류: " + len);
+        byte[] body = new byte[len];
+        in.readFully(body);
+        CRC32 c = new CRC32();
+        c.update(body);
+        if ((int) c.getValue() != crc) throw new CorruptRecord("CRC 불일치");
+        DataInputStream d = new DataInputStream(new ByteArrayInputStream(body));
+        byte op = d.readByte();
+        long seq = d.readLong();
+        long ts = d.readLong();
+        switch (op) {
+            case PUT: return new Frame(new Record(PUT, seq, ts, readRow(d, false), 0, 0), len);
+            case PUT_VERSIONED: return new Frame(new Record(PUT, seq, ts, readRow(d, true), 0, 0), len);
+            case DELETE: return new Frame(new Record(op, seq, ts, null, d.readLong(), 0), len);
+            case COMPACT: return new Frame(new Record(op, seq, ts, null, d.readLong(), d.readLong()), len);
+            default: throw new CorruptRecord("알 수 없는 레코드 종류: " + op);
+        }
+    }
+
+    /* ===== 기록 ===== */
+
+    /** 레코드들을 한 번에 현재 WAL 파일 끝에 붙인다 (fsync 설정이면 디스크까지) */
+    void append(List<Record> records) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(128 * records.size());
+        DataOutputStream out = new DataOutputStream(buf);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+        DataOutputStream b = new DataOutputStream(body);
+        for (Record r : records) {
+            body.reset();
+            b.writeByte(r.op == PUT ? PUT_VERSIONED : r.op);
+            b.writeLong(r.seq);
+            b.writeLong(r.ts);
+            switch (r.op) {
+                case PUT: writeRow(b, r.row); break;
+                case DELETE: b.writeLong(r.a); break;
+                default: b.writeLong(r.a); b.writeLong(r.b);
+            }
+            b.flush();
+            CRC32 c = new CRC32();
+            c.update(body.toByteArray());
+            out.writeInt(body.size());
+            out.writeInt((int) c.getValue());
+            body.writeTo(out);
+        }
+        out.flush();
+        ByteBuffer bb = ByteBuffer.wrap(buf.toByteArray());
+        long start = current.size();
+        try {
+            while (bb.hasRemaining()) current.write(bb);
+            if (fsync) current.force(false);
+        } catch (IOException e) {
+            // 반쯤 쓴 레코드가 남으면 이후 레코드까지 복구 때 버려지므로 되돌린다
+            try { current.truncate(start); } catch (IOException ignore) { }
+            throw e;
+        }
+    }
+
+    /** 지금 WAL 파일을 닫고 firstSeq 부터 담을 새 파일을 연다 */
+    void rotate(long firstSeq) throws IOException {
+        closeCurrent();
+        currentPath = dir.resolve(String.format("wal-%020d.log", firstSeq));
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        // fsync 한 기록이 새 파일째 사라지지 않도록 디렉터리 항목도 내린다
+        if (fsync) syncDir();
+    }
+
+    /* 디렉터리 fsync: 파일 생성/이름 바꾸기를 디스크에 확정 (디렉터리를 열 수 없는 플랫폼(Windows)은 건너뜀) */
+    private void syncDir() throws IOException {
+        FileChannel d;
+        try {
+            d = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException unsupported) {
+            return;
+        }
+        try (FileChannel ch = d) {
+            ch.force(true);
+        }
+    }
+
+    /** 현재 WAL 파일을 포함한 전체 WAL 크기 (바이트) */
+    long walBytes() throws IOException {
+        long n = 0;
+        for (Path p : walFiles()) n += Files.size(p);
+        return n;
+    }
+
+    /* ===== 스냅샷 ===== */
+
+    /**
+     * 스냅샷을 쓰고, 그 순번까지만 담은 이전 WAL 파일을 지운다.
+     * 호출 전에 rotate(lastSeq + 1) 로 새 파일이 열려 있어야 한다 (쓰기 락 밖에서 불러도 된다).
+     */
+    void writeSnapshot(State st) throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream crc = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(crc);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeLong(st.lastSeq);
+            out.writeLong(st.nextId);
+            out.writeInt(st.rows.size());
+            for (StockDTO d : st.rows) writeRow(out, d);
+            out.writeInt(st.history.size());
+            for (Map.Entry<Long, HistoryPoint[]> e : st.history.entrySet()) {
+                out.writeLong(e.getKey());
+                out.writeInt(e.getValue().length);
+                for (HistoryPoint h : e.getValue()) {
+                    out.writeLong(h.getTime());
+                    writeDouble(out, h.getPbr());
+                    writeDouble(out, h.getPer());
+                }
+            }
+            out.flush();
+            long sum = crc.getChecksum().getValue();
+            ByteBuffer tail = ByteBuffer.allocate(8).putLong(sum);
+            tail.flip();
+            while (tail.hasRemaining()) ch.write(tail);
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // 이름 바꾸기가 확정되기 전에 WAL 을 지우면, 그 사이 장애 시 옛 스냅샷 + 지워진 WAL 로 되살아난다
+        syncDir();
+        for (Path p : walFiles()) {
+            if (!p.equals(currentPath) && firstSeq(p) <= st.lastSeq) Files.deleteIfExists(p);
+        }
+    }
+
+    private State readSnapshot() throws IOException {
+        State st = new State();
+        Path p = dir.resolve(SNAPSHOT);
+        if (!Files.exists(p)) return st;
+        long size = Files.size(p);
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(p), 1 << 16)) {
+            CheckedInputStream crc = new CheckedInputStream(new LimitedInputStream(raw, size - 8), new CRC32());
+            DataInputStream in = new DataInputStream(crc);
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("스냅샷 형식 아님: " + p);
+            int format = in.readInt();
+            if (format < 1 || format > SNAPSHOT_FORMAT) throw new IOException("지원하지 않는 스냅샷 버전: " + format);
+            st.lastSeq = in.readLong();
+            st.nextId = in.readLong();
+            int n = in.readInt();
+            st.rows = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) st.rows.add(readRow(in, format >= 2));
+            int stocks = in.readInt();
+            st.history = new HashMap<>(stocks * 2);
+            for (int i = 0; i < stocks; i++) {
+                long id = in.readLong();
+                HistoryPoint[] pts = new HistoryPoint[in.readInt()];
+                for (int j = 0; j < pts.length; j++) {
+                    pts[j] = new HistoryPoint(in.readLong(), readDouble(in), readDouble(in));
+                }
+                st.history.put(id, pts);
+            }
+            long expected = new DataInputStream(raw).readLong();
+            if (crc.getChecksum().getValue() != expected) throw new IOException("스냅샷 CRC 불일치: " + p);
+        }
+        return st;
+    }
+
+    /* 스냅샷 본문만 읽히도록 (끝 8바이트 = CRC) */
+    private static final class LimitedInputStream extends InputStream {
+        private final InputStream in;
+        private long left;
+
+        LimitedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.left = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (left <= 0) return -1;
+            int b = in.read();
+            if (b >= 0) left--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (left <= 0) return -1;
+            int n = in.read(b, off, (int) Math.min(len, left));
+            if (n > 0) left -= n;
+            return n;
+        }
+    }
+
+    /* ===== 행 인코딩 ===== */
+
+    private static void writeRow(DataOutput out, StockDTO d) throws IOException {
+        out.writeLong(d.getId());
+        out.writeUTF(d.getStockCode());
+        out.writeBoolean(d.getStockName() != null);
+        if (d.getStockName() != null) out.writeUTF(d.getStockName());
+        writeDouble(out, d.getPbr());
+        writeDouble(out, d.getPer());
+        out.writeLong(d.getCreateDate() == null ? Long.MIN_VALUE : TimestampCodec.toEpochMillis(d.getCreateDate()));
+        out.writeLong(d.getVersion() == null ? 1 : d.getVersion());
+    }
+
+    private static StockDTO readRow(DataInput in, boolean versioned) throws IOException {
+        long id = in.readLong();
+        String code = in.readUTF();
+        String name = in.readBoolean() ? in.readUTF() : null;
+        Double pbr = readDouble(in);
+        Double per = readDouble(in);
+        long created = in.readLong();
+        long version = versioned ? in.readLong() : 1;
+        return new StockDTO(id, code, name, pbr, per,
+                created == Long.MIN_VALUE ? null : TimestampCodec.ofEpochMillis(created), version);
+    }
+
+    private static void writeDouble(DataOutput out, Double v) throws IOException {
+        out.writeBoolean(v != null);
+        if (v != null) out.writeDouble(v);
+    }
+
+    private static Double readDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    /* ===== 파일 ===== */
+
+    private List<Path> walFiles() throws IOException {
+        List<Path> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "wal-*.log")) {
+            for (Path p : ds) out.add(p);
+        }
+        out.sort(null);   // 0 채움 순번이라 이름순 = 순번순
+        return out;
+    }
+
+    private static long firstSeq(Path p) {
+        String n = p.getFileName().toString();
+        return Long.parseLong(n.substring(4, n.length() - 4));
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.force(false);
+            current.close();
+            current = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.project3.dto;
+
+import java.io.Serializable;
+
+/** PBR/PER 이력 한 점 (time = epoch 밀리초). 다운샘플된 점은 구간 평균, time 은 구간의 첫 시각 */
+public class HistoryPoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long time;
+    private final Double pbr;
+    private final Double per;
+
+    public HistoryPoint(long time, Double pbr, Double per) {
+        this.time = time;
+        this.pbr = pbr;
+        this.per = per;
+    }
+
+    public long getTime() { return time; }
+    public Double getPbr() { return pbr; }
+    public Double getPer() { return per; }
+
+    @Override
+    public String toString() {
+        return "HistoryPoint[" + time + " pbr=" + pbr + ", per=" + per + "]";
+    }
+}
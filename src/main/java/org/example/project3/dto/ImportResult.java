@@ -0,0 +1,69 @@
+package org.example.project3.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** 대량 가져오기 결과: 처리/반영/실패 건수, 행별 오류(앞쪽 일부), 처리 속도 */
+public class ImportResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /* 오류가 아주 많을 때 응답이 커지지 않도록 앞쪽만 보관 */
+    public static final int MAX_ERRORS = 100;
+
+    public static class RowError implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final long line;
+        private final String stockCode;
+        private final String message;
+
+        public RowError(long line, String stockCode, String message) {
+            this.line = line;
+            this.stockCode = stockCode;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public String getStockCode() { return stockCode; }
+        public String getMessage() { return message; }
+    }
+
+    private long processed;
+    private long upserted;
+    private long failed;
+    private long elapsedNanos;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void upserted(int n) {
+        processed += n;
+        upserted += n;
+    }
+
+    public void failed(long line, String stockCode, String message) {
+        processed++;
+        failed++;
+        if (errors.size() < MAX_ERRORS) errors.add(new RowError(line, stockCode, message));
+    }
+
+    public void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getProcessed() { return processed; }
+    public long getUpserted() { return upserted; }
+    public long getFailed() { return failed; }
+    public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000L; }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos <= 0 ? 0.0 : processed * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportResult[processed=%d, upserted=%d, failed=%d, %dms, %.0f rows/s]",
+                processed, upserted, failed, getElapsedMillis(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.project3.dto;
+
+import java.io.Serializable;
+
+/**
+ * PBR/PER 스크리닝 조건.
+ * - 범위: 각 열의 min/max (null = 제한 없음), exclusive=true 면 경계 제외(예: 5 < PER < 12)
+ * - NULL: 범위가 있으면 NULL 행은 항상 제외. 범위가 없으면 pbrNulls/perNulls 로 포함/제외/NULL만 선택
+ * - 정렬: pbr/per/name/id, 값 정렬에서 NULL 은 방향과 무관하게 항상 뒤
+ */
+public class ScreenCriteria implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum SortKey { PBR, PER, NAME, ID }
+
+    public enum Nulls { INCLUDE, EXCLUDE, ONLY }
+
+    private Double pbrMin, pbrMax, perMin, perMax;
+    private boolean exclusive;
+    private Nulls pbrNulls = Nulls.INCLUDE;
+    private Nulls perNulls = Nulls.INCLUDE;
+    private SortKey sort = SortKey.PER;
+    private boolean descending;
+
+    /* ===== Getters ===== */
+    public Double getPbrMin() { return pbrMin; }
+    public Double getPbrMax() { return pbrMax; }
+    public Double getPerMin() { return perMin; }
+    public Double getPerMax() { return perMax; }
+    public boolean isExclusive() { return exclusive; }
+    public Nulls getPbrNulls() { return pbrNulls; }
+    public Nulls getPerNulls() { return perNulls; }
+    public SortKey getSort() { return sort; }
+    public boolean isDescending() { return descending; }
+
+    public boolean hasPbrRange() { return pbrMin != null || pbrMax != null; }
+    public boolean hasPerRange() { return perMin != null || perMax != null; }
+
+    /* ===== Setters ===== */
+    public void setPbrMin(Double v) { this.pbrMin = finite(v); }
+    public void setPbrMax(Double v) { this.pbrMax = finite(v); }
+    public void setPerMin(Double v) { this.perMin = finite(v); }
+    public void setPerMax(Double v) { this.perMax = finite(v); }
+    public void setExclusive(boolean exclusive) { this.exclusive = exclusive; }
+    public void setPbrNulls(Nulls v) { this.pbrNulls = v == null ? Nulls.INCLUDE : v; }
+    public void setPerNulls(Nulls v) { this.perNulls = v == null ? Nulls.INCLUDE : v; }
+    public void setSort(SortKey v) { this.sort = v == null ? SortKey.PER : v; }
+    public void setDescending(boolean descending) { this.descending = descending; }
+
+    private static Double finite(Double v) {
+        return v == null || v.isNaN() || v.isInfinite() ? null : v;
+    }
+
+    @Override
+    public String toString() {
+        return "ScreenCriteria[pbr=" + pbrMin + ".." + pbrMax + ", per=" + perMin + ".." + perMax
+                + (exclusive ? " (exclusive)" : "") + ", nulls=" + pbrNulls + "/" + perNulls
+                + ", sort=" + sort + (descending ? " desc" : "") + "]";
+    }
+}
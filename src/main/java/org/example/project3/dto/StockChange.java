@@ -0,0 +1,29 @@
+package org.example.project3.dto;
+
+import java.io.Serializable;
+
+/** 커밋된 한 행의 변경: INSERT 는 before 가, DELETE 는 after 가 null */
+public class StockChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type { INSERT, UPDATE, DELETE }
+
+    private final Type type;
+    private final StockDTO before;
+    private final StockDTO after;
+
+    public StockChange(Type type, StockDTO before, StockDTO after) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+    }
+
+    public Type getType() { return type; }
+    public StockDTO getBefore() { return before; }
+    public StockDTO getAfter() { return after; }
+
+    @Override
+    public String toString() {
+        return "StockChange[" + type + ", before=" + before + ", after=" + after + "]";
+    }
+}
@@ -1,8 +1,9 @@
 package org.example.project3.dto;
 
+import org.example.project3.util.TimestampCodec;
+
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 
 public class StockDTO implements Serializable {
@@ -14,6 +15,8 @@ public class StockDTO implements Serializable {
     private Double pbr;
     private Double per;
     private LocalDateTime createDate;
+    /* 낙관적 잠금용 행 버전 (쓰기마다 +1, 알 수 없으면 null) */
+    private Long version;
 
     public StockDTO() {}
 
@@ -26,6 +29,12 @@ public class StockDTO implements Serializable {
         this.createDate = createDate;
     }
 
+    public StockDTO(Long id, String stockCode, String stockName, Double pbr, Double per, LocalDateTime createDate,
+                    Long version) {
+        this(id, stockCode, stockName, pbr, per, createDate);
+        this.version = version;
+    }
+
     /* ===== Getters ===== */
     public Long getId() { return id; }
     public String getStockCode() { return stockCode; }
@@ -33,11 +42,11 @@ public class StockDTO implements Serializable {
     public Double getPbr() { return pbr; }
     public Double getPer() { return per; }
     public LocalDateTime getCreateDate() { return createDate; }
+    public Long getVersion() { return version; }
 
     /* JSP에서 문자열 바로 출력 */
     public String getCreateDateText() {
-        if (createDate == null) return "";
-        return createDate.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        return TimestampCodec.format(createDate);
     }
 
     /* ===== Setters ===== */
@@ -56,6 +65,7 @@ public class StockDTO implements Serializable {
     public void setPbr(Double pbr) { this.pbr = pbr; }
     public void setPer(Double per) { this.per = per; }
     public void setCreateDate(LocalDateTime createDate) { this.createDate = createDate; }
+    public void setVersion(Long version) { this.version = version; }
 
     /* ===== equals/hashCode: 고유키 stockCode 기준 ===== */
     @Override
@@ -0,0 +1,34 @@
+package org.example.project3.dto;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/** 키셋 페이지 한 장: 행 목록 + 다음 페이지 커서 + 전체 건수 */
+public class StockPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<StockDTO> items;
+    private final String nextCursor;
+    private final long total;
+
+    public StockPage(List<StockDTO> items, String nextCursor, long total) {
+        this.items = items == null ? Collections.emptyList() : items;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+
+    public List<StockDTO> getItems() { return items; }
+
+    /* 마지막 페이지면 null */
+    public String getNextCursor() { return nextCursor; }
+
+    public long getTotal() { return total; }
+
+    public boolean isHasNext() { return nextCursor != null; }
+
+    @Override
+    public String toString() {
+        return "StockPage[items=" + items.size() + ", total=" + total + ", next=" + nextCursor + "]";
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.project3.dto;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 한 지표(PBR 또는 PER)의 시장 전체 통계 (불변).
+ * 분위수는 스케치 추정값(상대 오차 0.5% 이내), 건수/평균/구간 건수는 정확한 값.
+ * 값이 하나도 없으면 mean/p10/median/p90 은 null.
+ */
+public class ValuationSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** 히스토그램 구간 [lower, upper), 끝이 열린 구간은 null */
+    public static class Bucket implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Double lower;
+        private final Double upper;
+        private final long count;
+
+        public Bucket(Double lower, Double upper, long count) {
+            this.lower = lower;
+            this.upper = upper;
+            this.count = count;
+        }
+
+        public Double getLower() { return lower; }
+        public Double getUpper() { return upper; }
+        public long getCount() { return count; }
+
+        public String getLabel() {
+            if (lower == null) return "< " + num(upper);
+            if (upper == null) return num(lower) + " 이상";
+            return num(lower) + " ~ " + num(upper);
+        }
+
+        private static String num(Double v) {
+            return v == Math.rint(v) ? String.valueOf(v.longValue()) : String.valueOf(v);
+        }
+    }
+
+    private final String metric;
+    private final long count;
+    private final long nulls;
+    private final Double mean;
+    private final Double p10;
+    private final Double median;
+    private final Double p90;
+    private final List<Bucket> buckets;
+
+    public ValuationSummary(String metric, long count, long nulls, Double mean,
+                            Double p10, Double median, Double p90, List<Bucket> buckets) {
+        this.metric = metric;
+        this.count = count;
+        this.nulls = nulls;
+        this.mean = mean;
+        this.p10 = p10;
+        this.median = median;
+        this.p90 = p90;
+        this.buckets = buckets == null ? Collections.emptyList() : Collections.unmodifiableList(buckets);
+    }
+
+    public String getMetric() { return metric; }
+    public long getCount() { return count; }
+    public long getNulls() { return nulls; }
+    public Double getMean() { return mean; }
+    public Double getP10() { return p10; }
+    public Double getMedian() { return median; }
+    public Double getP90() { return p90; }
+    public List<Bucket> getBuckets() { return buckets; }
+
+    @Override
+    public String toString() {
+        return "ValuationSummary[" + metric + " n=" + count + ", nulls=" + nulls + ", mean=" + mean
+                + ", p10=" + p10 + ", median=" + median + ", p90=" + p90 + "]";
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.project3.dto;
+
+import java.io.Serializable;
+
+/**
+ * 한 건 쓰기(추가/수정) 결과. 중복 코드/없는 행/버전 충돌은 예외가 아니라 상태로 돌려준다.
+ * row: CREATED/UPDATED 면 반영된 행(새 버전 포함), CONFLICT 면 지금 저장된 행, 그 밖에는 null.
+ */
+public final class WriteResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Status { CREATED, UPDATED, NOT_FOUND, CONFLICT, DUPLICATE_CODE }
+
+    private final Status status;
+    private final StockDTO row;
+
+    private WriteResult(Status status, StockDTO row) {
+        this.status = status;
+        this.row = row;
+    }
+
+    public static WriteResult created(StockDTO row) { return new WriteResult(Status.CREATED, row); }
+    public static WriteResult updated(StockDTO row) { return new WriteResult(Status.UPDATED, row); }
+    public static WriteResult notFound() { return new WriteResult(Status.NOT_FOUND, null); }
+    public static WriteResult conflict(StockDTO current) { return new WriteResult(Status.CONFLICT, current); }
+    public static WriteResult duplicateCode() { return new WriteResult(Status.DUPLICATE_CODE, null); }
+
+    public Status getStatus() { return status; }
+    public StockDTO getRow() { return row; }
+
+    /** 실제로 반영되었는가 (CREATED / UPDATED) */
+    public boolean isApplied() {
+        return status == Status.CREATED || status == Status.UPDATED;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteResult[" + status + (row == null ? "" : ", " + row + ", version=" + row.getVersion()) + "]";
+    }
+}
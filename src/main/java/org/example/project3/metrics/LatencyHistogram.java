@@ -0,0 +1,53 @@
+package org.example.project3.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 고정 버킷 지연 시간 히스토그램 (Prometheus histogram 과 같은 경계, 초 단위).
+ * 기록은 LongAdder 증가 몇 번뿐이라 요청 경로에 넣어도 부담이 작다.
+ * 버킷은 구간별로 세고, 누적(le) 값은 내보낼 때 계산한다.
+ */
+public final class LatencyHistogram {
+
+    /** 버킷 상한 (초) */
+    public static final double[] BOUNDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final long[] BOUND_NANOS = new long[BOUNDS.length];
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) BOUND_NANOS[i] = (long) (BOUNDS[i] * 1_000_000_000L);
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];   // 마지막 = +Inf
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public void observeNanos(long nanos) {
+        if (nanos < 0) nanos = 0;
+        int i = 0;
+        while (i < BOUND_NANOS.length && nanos > BOUND_NANOS[i]) i++;
+        buckets[i].increment();
+        sumNanos.add(nanos);
+    }
+
+    /** 구간별(비누적) 건수, 길이 = BOUNDS.length + 1 */
+    public long[] bucketCounts() {
+        long[] out = new long[buckets.length];
+        for (int i = 0; i < out.length; i++) out[i] = buckets[i].sum();
+        return out;
+    }
+
+    public long count() {
+        long n = 0;
+        for (LongAdder b : buckets) n += b.sum();
+        return n;
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.project3.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * DAO/웹 계층 공용 지표 저장소.
+ * - DAO 메서드별 지연 시간, 반환 행 수
+ * - SQL 오류 건수 (SQLState 별)
+ * - 커넥션 대여 대기 시간 (read/write)
+ * - 서블릿 경로별 지연 시간/응답 코드, 뷰(JSP) 렌더링 시간
+ * - 느린 쿼리 로그: 임계값(slowQueryMillis) 이상 걸린 DAO 호출을 한 줄씩 남긴다
+ *
+ * writePrometheus() 로 Prometheus text format(0.0.4) 을 출력한다.
+ */
+public final class Metrics {
+
+    public static final long DEFAULT_SLOW_QUERY_MS = 200;
+
+    /** 경로 라벨 수 상한. 넘으면 새 라벨은 OTHER_ROUTE 로 기록한다 */
+    public static final int MAX_ROUTES = 200;
+    public static final String OTHER_ROUTE = "other";
+
+    private static final Logger SLOW_LOG = Logger.getLogger("org.example.project3.slowquery");
+
+    private final Map<String, LatencyHistogram> daoLatency = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> daoRows = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> sqlErrors = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> acquireLatency = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> routeLatency = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> routeStatus = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> viewLatency = new ConcurrentHashMap<>();
+    private final LongAdder slowQueries = new LongAdder();
+
+    private volatile long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_QUERY_MS);
+
+    /** 느린 쿼리 임계값 (0 이하면 로그 끔) */
+    public void setSlowQueryMillis(long ms) {
+        this.slowQueryNanos = ms <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    /* ===== DAO ===== */
+
+    /** DAO 호출 하나의 측정 시작 (try-with-resources 로 닫으면 기록) */
+    public Timer time(String method) {
+        return new Timer(method);
+    }
+
+    public final class Timer implements AutoCloseable {
+        private final String method;
+        private final long start = System.nanoTime();
+        private long rows = -1;
+
+        private Timer(String method) { this.method = method; }
+
+        /** 반환 행 수 (조회가 아니면 호출하지 않음) */
+        public void rows(long n) { this.rows = n; }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - start;
+            histogram(daoLatency, method).observeNanos(nanos);
+            if (rows >= 0) counter(daoRows, method).add(rows);
+            if (nanos >= slowQueryNanos) {
+                slowQueries.increment();
+                SLOW_LOG.warning(String.format("[SLOW] %s %.1fms%s", method, nanos / 1_000_000.0,
+                        rows >= 0 ? " rows=" + rows : ""));
+            }
+        }
+    }
+
+    public void sqlError(SQLException e) {
+        String state = e.getSQLState() == null ? "unknown" : e.getSQLState();
+        counter(sqlErrors, state).increment();
+    }
+
+    /** 커넥션 풀 대여 대기 시간 히스토그램 등록 (kind = read|write) */
+    public void registerAcquire(String kind, LatencyHistogram h) {
+        acquireLatency.put(kind, h);
+    }
+
+    /* ===== 웹 ===== */
+
+    public void route(String route, int status, long nanos) {
+        if (!routeLatency.containsKey(route) && routeLatency.size() >= MAX_ROUTES) route = OTHER_ROUTE;
+        histogram(routeLatency, route).observeNanos(nanos);
+        counter(routeStatus, route + '\u0000' + status).increment();
+    }
+
+    public void view(String view, long nanos) {
+        histogram(viewLatency, view).observeNanos(nanos);
+    }
+
+    /* ===== 출력 ===== */
+
+    public void writePrometheus(Writer out) throws IOException {
+        histograms(out, "stock_dao_seconds", "DAO 메서드 지연 시간", "method", daoLatency);
+        counters(out, "stock_dao_rows_total", "DAO 메서드가 돌려준 행 수", new String[]{"method"}, daoRows);
+        counters(out, "stock_sql_errors_total", "SQL 오류 건수", new String[]{"sqlstate"}, sqlErrors);
+        gauge(out, "stock_slow_queries_total", "counter", "느린 쿼리 임계값을 넘은 DAO 호출 수", slowQueries.sum());
+        histograms(out, "sqlite_pool_acquire_seconds", "커넥션 대여 대기 시간", "kind", acquireLatency);
+        histograms(out, "stock_http_request_seconds", "서블릿 경로별 처리 시간", "route", routeLatency);
+        counters(out, "stock_http_requests_total", "서블릿 경로별 응답 수", new String[]{"route", "status"}, routeStatus);
+        histograms(out, "stock_view_render_seconds", "JSP 렌더링 시간", "view", viewLatency);
+    }
+
+    /** 단일 값 지표 한 줄 (TYPE 포함) */
+    public static void gauge(Writer out, String name, String type, String help, double value) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+        out.write(name + " " + number(value) + "\n");
+    }
+
+    private static void histograms(Writer out, String name, String help, String label,
+                                   Map<String, LatencyHistogram> map) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " histogram\n");
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(map).entrySet()) {
+            String l = label + "=\"" + escape(e.getKey()) + "\"";
+            long[] counts = e.getValue().bucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                String le = i < LatencyHistogram.BOUNDS.length ? number(LatencyHistogram.BOUNDS[i]) : "+Inf";
+                out.write(name + "_bucket{" + l + ",le=\"" + le + "\"} " + cumulative + "\n");
+            }
+            out.write(name + "_sum{" + l + "} " + number(e.getValue().sumSeconds()) + "\n");
+            out.write(name + "_count{" + l + "} " + cumulative + "\n");
+        }
+    }
+
+    /* 키가 여러 라벨이면 \0 으로 이어 붙여 둔다 */
+    private static void counters(Writer out, String name, String help, String[] labels,
+                                 Map<String, LongAdder> map) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " counter\n");
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(map).entrySet()) {
+            String[] values = e.getKey().split("\u0000", -1);
+            StringBuilder sb = new StringBuilder(name).append('{');
+            for (int i = 0; i < labels.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(labels[i]).append("=\"").append(escape(i < values.length ? values[i] : "")).append('"');
+            }
+            sb.append("} ").append(e.getValue().sum()).append('\n');
+            out.write(sb.toString());
+        }
+    }
+
+    private static String number(double v) {
+        if (v == Math.rint(v) && !Double.isInfinite(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+        return Double.toString(v);
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static LatencyHistogram histogram(Map<String, LatencyHistogram> map, String key) {
+        LatencyHistogram h = map.get(key);
+        return h != null ? h : map.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> map, String key) {
+        LongAdder a = map.get(key);
+        return a != null ? a : map.computeIfAbsent(key, k -> new LongAdder());
+    }
+}
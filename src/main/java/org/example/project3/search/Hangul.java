@@ -0,0 +1,101 @@
+package org.example.project3.search;
+
+/**
+ * 한글 음절/자모 계산 (유니코드 음절 = 0xAC00 + (초성 * 21 + 중성) * 28 + 종성).
+ * 자모는 키보드로 입력되는 호환 자모(ㄱ U+3131 ...)로 다룬다.
+ */
+final class Hangul {
+
+    static final char BASE = 0xAC00;
+    static final char LAST = 0xD7A3;
+    static final int JUNG_COUNT = 21;
+    static final int JONG_COUNT = 28;
+
+    /* 초성 19 / 종성 28(0 = 없음) 의 호환 자모 */
+    static final String CHO = "ㄱㄲㄴㄷㄸㄹㅁㅂㅃㅅㅆㅇㅈㅉㅊㅋㅌㅍㅎ";
+    static final String JONG = "\0ㄱㄲㄳㄴㄵㄶㄷㄹㄺㄻㄼㄽㄾㄿㅀㅁㅂㅄㅅㅆㅇㅈㅊㅋㅌㅍㅎ";
+
+    /* 중성 확장: ㅗ -> ㅘㅙㅚ, ㅜ -> ㅝㅞㅟ, ㅡ -> ㅢ (입력 중인 "고" 는 "과" 의 앞부분) */
+    private static final int[][] JUNG_EXT = new int[JUNG_COUNT][];
+    /* 종성 확장: ㄱ -> ㄳ, ㄴ -> ㄵㄶ, ㄹ -> ㄺ~ㅀ, ㅂ -> ㅄ */
+    private static final int[][] JONG_EXT = new int[JONG_COUNT][];
+    /* 겹받침 분리: 종성 -> {남는 종성, 다음 글자 초성} (예: ㄺ -> ㄹ + ㄱ) */
+    private static final int[][] JONG_SPLIT = new int[JONG_COUNT][];
+
+    static {
+        for (int i = 0; i < JUNG_COUNT; i++) JUNG_EXT[i] = new int[0];
+        JUNG_EXT[8] = new int[]{9, 10, 11};
+        JUNG_EXT[13] = new int[]{14, 15, 16};
+        JUNG_EXT[18] = new int[]{19};
+
+        for (int i = 0; i < JONG_COUNT; i++) JONG_EXT[i] = new int[0];
+        JONG_EXT[1] = new int[]{3};
+        JONG_EXT[4] = new int[]{5, 6};
+        JONG_EXT[8] = new int[]{9, 10, 11, 12, 13, 14, 15};
+        JONG_EXT[17] = new int[]{18};
+
+        for (int j = 1; j < JONG_COUNT; j++) {
+            int cho = CHO.indexOf(JONG.charAt(j));
+            if (cho >= 0) JONG_SPLIT[j] = new int[]{0, cho};
+        }
+        int[][] compound = {{3, 1, 'ㅅ'}, {5, 4, 'ㅈ'}, {6, 4, 'ㅎ'}, {9, 8, 'ㄱ'}, {10, 8, 'ㅁ'}, {11, 8, 'ㅂ'},
+                {12, 8, 'ㅅ'}, {13, 8, 'ㅌ'}, {14, 8, 'ㅍ'}, {15, 8, 'ㅎ'}, {18, 17, 'ㅅ'}};
+        for (int[] c : compound) JONG_SPLIT[c[0]] = new int[]{c[1], CHO.indexOf((char) c[2])};
+    }
+
+    private Hangul() {}
+
+    static boolean isSyllable(char c) {
+        return c >= BASE && c <= LAST;
+    }
+
+    /** 호환 자음 (ㄱ~ㅎ) */
+    static boolean isConsonant(char c) {
+        return c >= 'ㄱ' && c <= 'ㅎ';
+    }
+
+    static int cho(char s) { return (s - BASE) / (JUNG_COUNT * JONG_COUNT); }
+    static int jung(char s) { return (s - BASE) / JONG_COUNT % JUNG_COUNT; }
+    static int jong(char s) { return (s - BASE) % JONG_COUNT; }
+
+    static char compose(int cho, int jung, int jong) {
+        return (char) (BASE + (cho * JUNG_COUNT + jung) * JONG_COUNT + jong);
+    }
+
+    /** 초성이 cho 인 첫/마지막 음절 (가~깋 처럼 연속 구간) */
+    static char firstWithCho(int cho) { return compose(cho, 0, 0); }
+    static char lastWithCho(int cho) { return compose(cho, JUNG_COUNT - 1, JONG_COUNT - 1); }
+
+    static int[] jungExtensions(int jung) { return JUNG_EXT[jung]; }
+    static int[] jongExtensions(int jong) { return JONG_EXT[jong]; }
+    /** {남는 종성, 다음 초성}, 종성이 없으면 null */
+    static int[] splitJong(int jong) { return JONG_SPLIT[jong]; }
+
+    /** 호환 자음의 초성 번호 (ㄳ 처럼 초성이 될 수 없으면 -1) */
+    static int choIndex(char consonant) { return CHO.indexOf(consonant); }
+
+    /** 호환 자음의 종성 번호 (ㄸ 처럼 종성이 될 수 없으면 -1) */
+    static int jongIndex(char consonant) {
+        int j = JONG.indexOf(consonant);
+        return j > 0 ? j : -1;
+    }
+
+    /** 두 종성을 겹받침으로 (ㄹ + ㄱ -> ㄺ), 안 되면 -1 */
+    static int combineJong(int jong, char consonant) {
+        for (int e : JONG_EXT[jong]) {
+            int[] s = JONG_SPLIT[e];
+            if (s[0] == jong && CHO.charAt(s[1]) == consonant) return e;
+        }
+        return -1;
+    }
+
+    /** 초성 문자열: 음절은 초성 자모로, 그 밖의 글자는 그대로 (공백 제외) */
+    static String initials(String normalized) {
+        StringBuilder sb = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            sb.append(isSyllable(c) ? CHO.charAt(cho(c)) : c);
+        }
+        return sb.toString();
+    }
+}
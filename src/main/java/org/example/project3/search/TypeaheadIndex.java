@@ -0,0 +1,576 @@
+package org.example.project3.search;
+
+import org.example.project3.dao.StockChangeListener;
+import org.example.project3.dto.StockChange;
+import org.example.project3.dto.StockDTO;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 입력 중 자동완성: 접두사로 종목코드/종목명 상위 N 건을 메모리에서 찾는다.
+ *
+ * 키는 네 종류(코드, 종목명, 종목명 중간 단어 시작, 초성)이고 각각 정렬된 배열(기본)에서 이진 탐색한다.
+ * 기본 배열은 불변이라 잠금 없이 읽고, 커밋된 쓰기(StockChangeListener)는 작은 동시 스킵리스트(델타)에 반영한다.
+ * 델타가 커지면 백그라운드에서 새 기본 배열을 만들어 바꿔 끼운다.
+ * 변경은 행 버전을 비교해 이미 반영한 것보다 새 것만 적용한다 (다시 읽기/합치기에 이미 들어간 변경이 다시 와도 되돌아가지 않음).
+ *
+ * 한글은 입력 중인 마지막 글자를 음절 구간으로 바꿔 찾는다 ("삼서" -> 삼 + [서~섷], "삼ㅅ" -> 삼 + [사~싷]).
+ * 질의가 자음과 영숫자로만 되어 있으면 초성 키("ㅅㅅㅈㅈ" -> 삼성전자)도 찾는다.
+ */
+public class TypeaheadIndex implements StockChangeListener {
+
+    /** 전체 다시 읽기: 모든 행을 sink 로 넘긴다 */
+    @FunctionalInterface
+    public interface Loader {
+        void forEachRow(Consumer<StockDTO> sink);
+    }
+
+    /** 어떤 키로 맞았는지 (순서 = 결과 순위) */
+    public enum Match {
+        CODE, NAME, WORD, INITIAL;
+
+        public String label() { return name().toLowerCase(Locale.ROOT); }
+    }
+
+    public static final class Suggestion {
+        private final StockDTO stock;
+        private final Match match;
+
+        Suggestion(StockDTO stock, Match match) {
+            this.stock = stock;
+            this.match = match;
+        }
+
+        public StockDTO getStock() { return stock; }
+        public Match getMatch() { return match; }
+    }
+
+    /* 델타가 이 크기(또는 기본 행 수의 1/16) 를 넘으면 합친다 */
+    static final int MERGE_MIN = 4096;
+
+    private static final Match[] MATCHES = Match.values();
+
+    private final Loader loader;
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stock-typeahead-merge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile State state;
+    /* 아래는 this 로 보호 */
+    private long generation;
+    private boolean mergeQueued;
+    private List<StockChange> duringMerge;
+
+    public TypeaheadIndex(Loader loader) {
+        this.loader = loader;
+        reload();
+    }
+
+    /**
+     * prefix 로 시작하는 종목 최대 limit 건 (코드 > 종목명 > 단어 > 초성 순, 같은 종류 안에서는 짧은/사전순 키 먼저).
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String q = normalize(prefix);
+        if (q.isEmpty() || limit <= 0) return List.of();
+        State s = state;
+        Map<Long, Suggestion> out = new LinkedHashMap<>();
+        List<Range> ranges = ranges(q);
+        for (int tier = 0; tier < Match.INITIAL.ordinal() && out.size() < limit; tier++) {
+            s.collect(tier, ranges, limit, out);
+        }
+        if (out.size() < limit && isInitialsQuery(q)) {
+            s.collect(Match.INITIAL.ordinal(), List.of(new Range(q)), limit, out);
+        }
+        return new ArrayList<>(out.values());
+    }
+
+    /** 기본 배열의 키 수 */
+    public long keys() {
+        State s = state;
+        long n = 0;
+        for (Tier t : s.base.tiers) n += t.size();
+        return n;
+    }
+
+    /** 아직 기본 배열에 합쳐지지 않은 변경 항목 수 (델타 + 가려진 기본 항목) */
+    public int pending() {
+        return state.pending();
+    }
+
+    /** 전체를 다시 읽어 처음부터 만든다 (진행 중인 합치기 결과는 버린다) */
+    public synchronized void reload() {
+        List<StockDTO> rows = new ArrayList<>();
+        loader.forEachRow(rows::add);
+        generation++;
+        duringMerge = null;
+        state = new State(Base.build(rows));
+    }
+
+    @Override
+    public synchronized void onChange(StockChange change) {
+        state.apply(change);
+        if (duringMerge != null) duringMerge.add(change);
+        State s = state;
+        if (!mergeQueued && s.pending() > Math.max(MERGE_MIN, s.base.rows.length / 16)) {
+            mergeQueued = true;
+            merger.execute(this::merge);
+        }
+    }
+
+    @Override
+    public void onBulkChange() {
+        reload();
+    }
+
+    public void close() {
+        merger.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        State s = state;
+        return "TypeaheadIndex[rows=" + s.base.rows.length + ", keys=" + keys() + ", pending=" + s.pending() + "]";
+    }
+
+    /* 현재 행으로 새 기본 배열을 만들고, 만드는 동안 들어온 변경을 새 델타에 다시 적용한다 */
+    private void merge() {
+        List<StockDTO> rows;
+        long gen;
+        synchronized (this) {
+            rows = state.liveRows();
+            gen = generation;
+            duringMerge = new ArrayList<>();
+        }
+        Base base = null;
+        try {
+            base = Base.build(rows);
+        } finally {
+            synchronized (this) {
+                if (base != null && gen == generation) {
+                    State next = new State(base);
+                    for (StockChange c : duringMerge) next.apply(c);
+                    state = next;
+                }
+                if (gen == generation) duringMerge = null;
+                mergeQueued = false;
+            }
+        }
+    }
+
+    /* ---------------- 키 ---------------- */
+
+    /** 소문자, NFC, 공백 제거 (키와 질의 모두) */
+    static String normalize(String s) {
+        if (s == null) return "";
+        String n = Normalizer.normalize(s, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(n.length());
+        for (int i = 0; i < n.length(); i++) {
+            char c = n.charAt(i);
+            if (!Character.isWhitespace(c)) sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /* 종류별 키 (같은 종목 안에서 중복 없이) */
+    static String[][] keysOf(StockDTO d) {
+        String code = normalize(d.getStockCode());
+        String name = normalize(d.getStockName());
+        List<String> words = new ArrayList<>();
+        String raw = d.getStockName() == null ? "" : d.getStockName().toLowerCase(Locale.ROOT);
+        for (int i = 1; i < raw.length(); i++) {
+            if (wordStart(raw.charAt(i - 1), raw.charAt(i))) {
+                String w = normalize(raw.substring(i));
+                if (!w.isEmpty() && !w.equals(name) && !words.contains(w)) words.add(w);
+            }
+        }
+        String initials = "";
+        for (int i = 0; i < name.length(); i++) {
+            if (Hangul.isSyllable(name.charAt(i))) {
+                initials = Hangul.initials(name);
+                break;
+            }
+        }
+        return new String[][]{
+                code.isEmpty() ? new String[0] : new String[]{code},
+                name.isEmpty() ? new String[0] : new String[]{name},
+                words.toArray(new String[0]),
+                initials.isEmpty() ? new String[0] : new String[]{initials}};
+    }
+
+    /* 구분자 뒤, 또는 한글과 영숫자가 바뀌는 곳 ("LG디스플레이" -> 디스플레이) */
+    private static boolean wordStart(char prev, char c) {
+        if (!Character.isLetterOrDigit(c)) return false;
+        if (!Character.isLetterOrDigit(prev)) return true;
+        return Hangul.isSyllable(prev) != Hangul.isSyllable(c);
+    }
+
+    private static boolean isInitialsQuery(String q) {
+        boolean consonant = false;
+        for (int i = 0; i < q.length(); i++) {
+            char c = q.charAt(i);
+            if (Hangul.isSyllable(c)) return false;
+            if (Hangul.isConsonant(c)) consonant = true;
+        }
+        return consonant;
+    }
+
+    /**
+     * 질의의 마지막 글자가 입력 중일 수 있으므로 찾을 구간 목록으로 바꾼다.
+     * 음절(받침 없음): 받침/겹모음이 더 붙을 수 있다.  음절(받침 있음): 받침이 다음 글자의 초성일 수 있다.
+     * 자음: 다음 글자의 초성이거나 앞 음절의 받침.
+     */
+    static List<Range> ranges(String q) {
+        List<Range> out = new ArrayList<>(4);
+        int n = q.length();
+        char last = q.charAt(n - 1);
+        String head = q.substring(0, n - 1);
+        if (Hangul.isSyllable(last)) {
+            int cho = Hangul.cho(last), jung = Hangul.jung(last), jong = Hangul.jong(last);
+            if (jong == 0) {
+                out.add(syllables(head, cho, jung));
+                for (int v : Hangul.jungExtensions(jung)) out.add(syllables(head, cho, v));
+            } else {
+                out.add(new Range(head, last, last));
+                for (int e : Hangul.jongExtensions(jong)) {
+                    char c = Hangul.compose(cho, jung, e);
+                    out.add(new Range(head, c, c));
+                }
+                int[] split = Hangul.splitJong(jong);
+                out.add(new Range(head + Hangul.compose(cho, jung, split[0]),
+                        Hangul.firstWithCho(split[1]), Hangul.lastWithCho(split[1])));
+            }
+        } else if (Hangul.isConsonant(last)) {
+            int cho = Hangul.choIndex(last);
+            if (cho >= 0) out.add(new Range(head, Hangul.firstWithCho(cho), Hangul.lastWithCho(cho)));
+            char prev = head.isEmpty() ? 0 : head.charAt(head.length() - 1);
+            if (Hangul.isSyllable(prev)) {
+                String stem = head.substring(0, head.length() - 1);
+                int pj = Hangul.jong(prev);
+                int j = pj == 0 ? Hangul.jongIndex(last) : Hangul.combineJong(pj, last);
+                if (j > 0) {
+                    char c = Hangul.compose(Hangul.cho(prev), Hangul.jung(prev), j);
+                    out.add(new Range(stem, c, c));
+                    if (pj == 0) {
+                        for (int e : Hangul.jongExtensions(j)) {
+                            char x = Hangul.compose(Hangul.cho(prev), Hangul.jung(prev), e);
+                            out.add(new Range(stem, x, x));
+                        }
+                    }
+                }
+            }
+            if (out.isEmpty()) out.add(new Range(q));
+        } else {
+            out.add(new Range(q));
+        }
+        return out;
+    }
+
+    /* head 뒤에 초성/중성이 같은 음절(받침 28가지) */
+    private static Range syllables(String head, int cho, int jung) {
+        return new Range(head, Hangul.compose(cho, jung, 0), Hangul.compose(cho, jung, Hangul.JONG_COUNT - 1));
+    }
+
+    /** prefix 로 시작하고 그 다음 글자가 [lo, hi] 인 키 (lo == 0 이면 prefix 만) */
+    static final class Range {
+        final String prefix;
+        final char lo, hi;
+        final String start;
+
+        Range(String prefix) {
+            this(prefix, (char) 0, (char) 0);
+        }
+
+        Range(String prefix, char lo, char hi) {
+            this.prefix = prefix;
+            this.lo = lo;
+            this.hi = hi;
+            this.start = lo == 0 ? prefix : prefix + lo;
+        }
+
+        boolean matches(String key) {
+            if (!key.startsWith(prefix)) return false;
+            if (lo == 0) return true;
+            if (key.length() <= prefix.length()) return false;
+            char c = key.charAt(prefix.length());
+            return c >= lo && c <= hi;
+        }
+
+        boolean matches(Tier t, int i) {
+            int from = t.start[i], len = t.start[i + 1] - from, p = prefix.length();
+            if (len < p) return false;
+            for (int k = 0; k < p; k++) {
+                if (t.chars[from + k] != prefix.charAt(k)) return false;
+            }
+            if (lo == 0) return true;
+            if (len == p) return false;
+            char c = t.chars[from + p];
+            return c >= lo && c <= hi;
+        }
+    }
+
+    /* ---------------- 저장 구조 ---------------- */
+
+    /** 기본 배열 + 그 뒤 변경(델타). 기본 배열은 불변, 델타는 onChange(잠금) 에서만 바뀐다 */
+    private static final class State {
+        final Base base;
+        /* 기본 배열의 항목이 더 이상 맞지 않는 종목 id (수정/삭제) */
+        final Set<Long> stale = ConcurrentHashMap.newKeySet();
+        /* 기본 배열 이후 바뀐 종목의 현재 값 */
+        final Map<Long, StockDTO> changed = new ConcurrentHashMap<>();
+        final List<ConcurrentSkipListMap<Key, StockDTO>> delta = new ArrayList<>(MATCHES.length);
+
+        State(Base base) {
+            this.base = base;
+            for (int i = 0; i < MATCHES.length; i++) delta.add(new ConcurrentSkipListMap<>());
+        }
+
+        int pending() {
+            return stale.size() + changed.size();
+        }
+
+        void apply(StockChange c) {
+            StockDTO a = c.getAfter();
+            long id = c.getBefore() != null ? c.getBefore().getId() : a.getId();
+            if (!newer(id, c)) return;
+            // 새 키를 먼저 넣는다: 잠깐 둘 다 보일 수는 있어도 둘 다 안 보이지는 않게
+            StockDTO old = a != null ? changed.put(id, a) : changed.remove(id);
+            String[][] keys = a != null ? keysOf(a) : new String[MATCHES.length][0];
+            for (int t = 0; t < keys.length; t++) {
+                for (String k : keys[t]) delta.get(t).put(new Key(k, id), a);
+            }
+            if (c.getBefore() != null) stale.add(id);
+            if (old == null) return;
+            // 이전 델타 키 중 새 키에 없는 것만 지운다 (같은 키는 위에서 값이 바뀌었다)
+            String[][] oldKeys = keysOf(old);
+            for (int t = 0; t < oldKeys.length; t++) {
+                for (String k : oldKeys[t]) {
+                    if (!Arrays.asList(keys[t]).contains(k)) delta.get(t).remove(new Key(k, id));
+                }
+            }
+        }
+
+        /* 알고 있는 행보다 새 변경인가 (버전이 없으면 적용) */
+        private boolean newer(long id, StockChange c) {
+            StockDTO cur = changed.get(id);
+            if (cur == null) {
+                // 델타에 없는데 가려졌으면 삭제된 행: 새로 추가될 때만
+                if (stale.contains(id)) return c.getType() == StockChange.Type.INSERT;
+                cur = base.find(id);
+                if (cur == null) return true;
+            }
+            StockDTO ref = c.getAfter() != null ? c.getAfter() : c.getBefore();
+            Long known = cur.getVersion(), v = ref.getVersion();
+            if (known == null || v == null) return true;
+            // 삭제는 지우는 시점의 버전(before)이 현재와 같으면 적용
+            return c.getAfter() != null ? v > known : v >= known;
+        }
+
+        /* 합치기용 현재 행 전체 (잠금 안에서 호출) */
+        List<StockDTO> liveRows() {
+            List<StockDTO> rows = new ArrayList<>(base.rows.length + changed.size());
+            for (StockDTO d : base.rows) {
+                if (!stale.contains(d.getId())) rows.add(d);
+            }
+            rows.addAll(changed.values());
+            return rows;
+        }
+
+        /* 한 종류에서 구간마다 limit 건씩 모아 키 순으로 out 에 더한다 */
+        void collect(int tier, List<Range> ranges, int limit, Map<Long, Suggestion> out) {
+            List<Hit> hits = new ArrayList<>();
+            Tier t = base.tiers[tier];
+            ConcurrentSkipListMap<Key, StockDTO> d = delta.get(tier);
+            for (Range r : ranges) {
+                int found = 0;
+                for (int i = t.lowerBound(r.start); i < t.size() && found < limit && r.matches(t, i); i++) {
+                    StockDTO row = base.rows[t.row[i]];
+                    if (stale.contains(row.getId())) continue;
+                    hits.add(new Hit(t.key(i), row));
+                    found++;
+                }
+                if (d.isEmpty()) continue;
+                found = 0;
+                for (Map.Entry<Key, StockDTO> e : d.tailMap(new Key(r.start, Long.MIN_VALUE)).entrySet()) {
+                    if (found >= limit || !r.matches(e.getKey().text)) break;
+                    hits.add(new Hit(e.getKey().text, e.getValue()));
+                    found++;
+                }
+            }
+            hits.sort(Hit.ORDER);
+            Match match = MATCHES[tier];
+            for (Hit h : hits) {
+                if (out.size() >= limit) break;
+                out.putIfAbsent(h.row.getId(), new Suggestion(h.row, match));
+            }
+        }
+    }
+
+    private static final class Hit {
+        static final Comparator<Hit> ORDER = Comparator.<Hit, String>comparing(h -> h.key)
+                .thenComparingLong(h -> h.row.getId());
+        final String key;
+        final StockDTO row;
+
+        Hit(String key, StockDTO row) {
+            this.key = key;
+            this.row = row;
+        }
+    }
+
+    /** 델타 키 (같은 키의 종목은 id 순) */
+    private static final class Key implements Comparable<Key> {
+        final String text;
+        final long id;
+
+        Key(String text, long id) {
+            this.text = text;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int c = text.compareTo(o.text);
+            return c != 0 ? c : Long.compare(id, o.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id && ((Key) o).text.equals(text);
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode() * 31 + Long.hashCode(id);
+        }
+    }
+
+    /** 불변 기본 배열: 행(id 순) + 종류별 정렬된 키 */
+    private static final class Base {
+        private static final Comparator<StockDTO> BY_ID = Comparator.comparingLong(StockDTO::getId);
+
+        final StockDTO[] rows;
+        final Tier[] tiers;
+
+        private Base(StockDTO[] rows, Tier[] tiers) {
+            this.rows = rows;
+            this.tiers = tiers;
+        }
+
+        static Base build(List<StockDTO> list) {
+            StockDTO[] rows = list.toArray(new StockDTO[0]);
+            Arrays.sort(rows, BY_ID);
+            List<List<Entry>> entries = new ArrayList<>(MATCHES.length);
+            for (int i = 0; i < MATCHES.length; i++) entries.add(new ArrayList<>(i == Match.WORD.ordinal() ? rows.length * 2 : rows.length));
+            for (int r = 0; r < rows.length; r++) {
+                String[][] keys = keysOf(rows[r]);
+                for (int t = 0; t < keys.length; t++) {
+                    for (String k : keys[t]) entries.get(t).add(new Entry(k, r, rows[r].getId()));
+                }
+            }
+            Tier[] tiers = new Tier[MATCHES.length];
+            for (int t = 0; t < tiers.length; t++) tiers[t] = Tier.of(entries.get(t));
+            return new Base(rows, tiers);
+        }
+
+        StockDTO find(long id) {
+            int lo = 0, hi = rows.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long m = rows[mid].getId();
+                if (m < id) lo = mid + 1;
+                else if (m > id) hi = mid - 1;
+                else return rows[mid];
+            }
+            return null;
+        }
+    }
+
+    private static final class Entry {
+        static final Comparator<Entry> ORDER = Comparator.<Entry, String>comparing(e -> e.key)
+                .thenComparingLong(e -> e.id);
+        final String key;
+        final int row;
+        final long id;
+
+        Entry(String key, int row, long id) {
+            this.key = key;
+            this.row = row;
+            this.id = id;
+        }
+    }
+
+    /** 정렬된 키를 한 char[] 에 이어 붙인 것 (키 i = chars[start[i], start[i+1])) */
+    static final class Tier {
+        final char[] chars;
+        final int[] start;
+        final int[] row;
+
+        private Tier(char[] chars, int[] start, int[] row) {
+            this.chars = chars;
+            this.start = start;
+            this.row = row;
+        }
+
+        static Tier of(List<Entry> entries) {
+            Entry[] sorted = entries.toArray(new Entry[0]);
+            Arrays.parallelSort(sorted, Entry.ORDER);
+            int total = 0;
+            for (Entry e : sorted) total += e.key.length();
+            char[] chars = new char[total];
+            int[] start = new int[sorted.length + 1];
+            int[] row = new int[sorted.length];
+            int p = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                String k = sorted[i].key;
+                k.getChars(0, k.length(), chars, p);
+                start[i] = p;
+                p += k.length();
+                row[i] = sorted[i].row;
+            }
+            start[sorted.length] = p;
+            return new Tier(chars, start, row);
+        }
+
+        int size() {
+            return row.length;
+        }
+
+        String key(int i) {
+            return new String(chars, start[i], start[i + 1] - start[i]);
+        }
+
+        /** 키 >= s 인 첫 위치 */
+        int lowerBound(String s) {
+            int lo = 0, hi = row.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(mid, s) < 0) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        private int compare(int i, String s) {
+            int from = start[i], len = start[i + 1] - from, n = Math.min(len, s.length());
+            for (int k = 0; k < n; k++) {
+                char a = chars[from + k], b = s.charAt(k);
+                if (a != b) return a - b;
+            }
+            return len - s.length();
+        }
+    }
+}
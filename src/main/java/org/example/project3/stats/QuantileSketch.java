@@ -0,0 +1,77 @@
+package org.example.project3.stats;
+
+/**
+ * 삭제를 지원하는 상대 오차 분위수 스케치 (DDSketch 방식의 로그 버킷 + Fenwick 트리).
+ * - 값 x 는 |x| 의 log_gamma 버킷에 들어가며, 분위수 추정값의 상대 오차는 ALPHA 이하
+ * - add/remove/quantile 모두 O(log 버킷 수), 버킷 수는 고정(약 9천 개)
+ * - 같은 설정의 스케치끼리 버킷 카운트를 더하면 병합된다
+ * |x| 가 MIN_MAGNITUDE 미만이면 0 버킷, MAX_MAGNITUDE 를 넘으면 끝 버킷으로 모은다.
+ */
+public final class QuantileSketch {
+
+    static final double ALPHA = 0.005;
+    private static final double GAMMA = (1 + ALPHA) / (1 - ALPHA);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final double MIN_MAGNITUDE = 1e-4;
+    private static final double MAX_MAGNITUDE = 1e8;
+
+    private static final int MIN_KEY = key(MIN_MAGNITUDE);
+    private static final int KEYS = key(MAX_MAGNITUDE) - MIN_KEY + 1;
+    /* 배치: [0, KEYS) 음수(절댓값 큰 쪽이 앞), KEYS = 0, (KEYS, 2*KEYS] 양수 */
+    private static final int SIZE = 2 * KEYS + 1;
+
+    private final long[] tree = new long[SIZE + 1];   // Fenwick (1-based)
+    private long count;
+
+    private static int key(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    private static int index(double x) {
+        double m = Math.abs(x);
+        if (m < MIN_MAGNITUDE) return KEYS;
+        int k = Math.min(key(Math.min(m, MAX_MAGNITUDE)) - MIN_KEY, KEYS - 1);
+        return x > 0 ? KEYS + 1 + k : KEYS - 1 - k;
+    }
+
+    /* 버킷의 대표값: (gamma^(k-1), gamma^k] 의 상대 오차 중앙 */
+    private static double value(int index) {
+        if (index == KEYS) return 0.0;
+        int k = index > KEYS ? index - KEYS - 1 : KEYS - 1 - index;
+        double v = 2 * Math.pow(GAMMA, k + MIN_KEY) / (GAMMA + 1);
+        return index > KEYS ? v : -v;
+    }
+
+    public void add(double x) { update(index(x), 1); }
+
+    public void remove(double x) { update(index(x), -1); }
+
+    public long count() { return count; }
+
+    public void clear() {
+        java.util.Arrays.fill(tree, 0);
+        count = 0;
+    }
+
+    /** q(0~1) 분위수, 비어 있으면 NaN. 순위는 floor(q * (n - 1)) (0부터) */
+    public double quantile(double q) {
+        if (count <= 0) return Double.NaN;
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, q)) * (count - 1));
+        // prefix(i) > rank 인 가장 작은 i 를 Fenwick 하강으로 찾는다
+        int pos = 0;
+        long remaining = rank;
+        for (int step = Integer.highestOneBit(SIZE); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= SIZE && tree[next] <= remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        return value(Math.min(pos, SIZE - 1));   // pos 는 0-based 인덱스
+    }
+
+    private void update(int index, long delta) {
+        count += delta;
+        for (int i = index + 1; i <= SIZE; i += i & -i) tree[i] += delta;
+    }
+}
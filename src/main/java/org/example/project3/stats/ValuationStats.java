@@ -0,0 +1,286 @@
+package org.example.project3.stats;
+
+import org.example.project3.dao.StockChangeListener;
+import org.example.project3.dto.StockChange;
+import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.ValuationSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * PBR/PER 시장 통계를 증분으로 유지한다.
+ * 시작 시 한 번 전체를 읽고, 이후에는 커밋된 변경(StockChangeListener)마다 이전 값을 빼고 새 값을 더한다.
+ * 변경 때마다 불변 요약(ValuationSummary)을 새로 만들어 두므로 읽기는 필드 하나 읽기다.
+ *
+ * 대량 변경(onBulkChange) 뒤의 다시 읽기는 백그라운드 스레드에서 한다 (그동안은 이전 통계에 증분만 반영).
+ * 읽는 동안 들어온 변경은 모아 두었다가, 읽은 행 상태 이후의 것만 새 통계에 적용한다 - 읽기에 이미 들어간 변경을 두 번 더하지 않도록.
+ */
+public class ValuationStats implements StockChangeListener {
+
+    /** 전체 다시 읽기: 모든 행을 sink 로 넘긴다 */
+    @FunctionalInterface
+    public interface Loader {
+        void forEachRow(Consumer<StockDTO> sink);
+    }
+
+    /* 화면 히스토그램 구간 경계 (그 밖은 양 끝 열린 구간) */
+    static final double[] PBR_EDGES = {0, 0.5, 1, 1.5, 2, 3, 5};
+    static final double[] PER_EDGES = {0, 5, 10, 15, 20, 30, 50};
+
+    private static final Logger LOG = Logger.getLogger(ValuationStats.class.getName());
+
+    private final Loader loader;
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stock-valuation-reload");
+        t.setDaemon(true);
+        return t;
+    });
+    /* 다시 읽기는 한 번에 하나 */
+    private final Object reloadLock = new Object();
+
+    /* 아래는 this 로 보호 */
+    private Column pbr = new Column("pbr", PBR_EDGES);
+    private Column per = new Column("per", PER_EDGES);
+    private boolean reloadQueued;
+    /* 다시 읽는 중에 들어온 변경 (읽는 중이 아니면 null) */
+    private List<StockChange> duringReload;
+
+    private volatile ValuationSummary pbrSummary;
+    private volatile ValuationSummary perSummary;
+
+    public ValuationStats(Loader loader) {
+        this.loader = loader;
+        reload();
+    }
+
+    public ValuationSummary pbr() { return pbrSummary; }
+    public ValuationSummary per() { return perSummary; }
+
+    /**
+     * 전체를 다시 읽어 처음부터 만든다 (호출 스레드에서).
+     * 읽는 동안의 변경은 계속 받고, 끝나면 읽은 행 상태 이후 것만 새 통계에 적용해 바꿔 끼운다.
+     */
+    public void reload() {
+        synchronized (reloadLock) {
+            synchronized (this) {
+                duringReload = new ArrayList<>();
+            }
+            List<StockChange> queued = null;
+            try {
+                Column p = new Column("pbr", PBR_EDGES);
+                Column e = new Column("per", PER_EDGES);
+                RowValues seen = new RowValues();
+                loader.forEachRow(d -> {
+                    p.add(d.getPbr(), 1);
+                    e.add(d.getPer(), 1);
+                    seen.add(d.getId(), d.getPbr(), d.getPer());
+                });
+                synchronized (this) {
+                    queued = duringReload;
+                    duringReload = null;
+                    for (StockChange c : catchUp(queued, seen)) apply(p, e, c);
+                    pbr = p;
+                    per = e;
+                    publish();
+                }
+            } finally {
+                if (queued == null) {
+                    synchronized (this) {
+                        duringReload = null;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onChange(StockChange change) {
+        apply(pbr, per, change);
+        if (duringReload != null) duringReload.add(change);
+        publish();
+    }
+
+    /** 다시 읽기를 백그라운드에 맡긴다 (이미 대기 중이면 합친다) - 가져오기 요청 스레드가 전체 읽기를 기다리지 않도록 */
+    @Override
+    public synchronized void onBulkChange() {
+        if (reloadQueued) return;
+        reloadQueued = true;
+        try {
+            reloader.execute(() -> {
+                synchronized (this) {
+                    reloadQueued = false;
+                }
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "통계 다시 읽기 실패", e);
+                }
+            });
+        } catch (RejectedExecutionException closed) {
+            reloadQueued = false;
+        }
+    }
+
+    public void close() {
+        reloader.shutdownNow();
+    }
+
+    private static void apply(Column pbr, Column per, StockChange change) {
+        StockDTO b = change.getBefore(), a = change.getAfter();
+        if (b != null) {
+            pbr.add(b.getPbr(), -1);
+            per.add(b.getPer(), -1);
+        }
+        if (a != null) {
+            pbr.add(a.getPbr(), 1);
+            per.add(a.getPer(), 1);
+        }
+    }
+
+    /* 읽는 동안 모인 변경 중 읽은 행에 아직 없는 것만 (행별로, 받은 순서대로) */
+    private static List<StockChange> catchUp(List<StockChange> queued, RowValues seen) {
+        if (queued.isEmpty()) return queued;
+        Map<Long, List<StockChange>> byId = new LinkedHashMap<>();
+        for (StockChange c : queued) {
+            long id = c.getBefore() != null ? c.getBefore().getId() : c.getAfter().getId();
+            byId.computeIfAbsent(id, k -> new ArrayList<>()).add(c);
+        }
+        Map<Long, double[]> values = seen.find(byId.keySet());
+        List<StockChange> out = new ArrayList<>();
+        for (Map.Entry<Long, List<StockChange>> en : byId.entrySet()) {
+            List<StockChange> changes = en.getValue();
+            int from = start(changes, values.get(en.getKey()));
+            out.addAll(changes.subList(from, changes.size()));
+        }
+        return out;
+    }
+
+    /*
+     * 읽은 행이 그 행의 변경 순서 중 어디인가: i 번째 변경 직전 상태와 (PBR, PER) 가 같으면 i (read = null 은 없던 행).
+     * 읽기는 모으기 시작 뒤에 하므로 어딘가와 맞는다. 같은 값의 상태가 여럿이어도 그 뒤 변경들의 합은 같다
+     * (통계에 남는 것은 처음 상태를 빼고 마지막 상태를 더한 것).
+     */
+    private static int start(List<StockChange> changes, double[] read) {
+        for (int i = 0; i <= changes.size(); i++) {
+            StockDTO st = i == 0 ? changes.get(0).getBefore() : changes.get(i - 1).getAfter();
+            if (st == null ? read == null
+                    : read != null && same(st.getPbr(), read[0]) && same(st.getPer(), read[1])) return i;
+        }
+        return changes.size();
+    }
+
+    /* Column.add 와 같은 기준: NULL/NaN/무한대는 모두 "값 없음" */
+    private static boolean same(Double v, double read) {
+        boolean none = v == null || v.isNaN() || v.isInfinite();
+        return none ? Double.isNaN(read) : v == read;
+    }
+
+    private void publish() {
+        pbrSummary = pbr.summary();
+        perSummary = per.summary();
+    }
+
+    @Override
+    public String toString() {
+        return "ValuationStats[" + pbrSummary + ", " + perSummary + "]";
+    }
+
+    /* 다시 읽는 동안 본 (id, PBR, PER): 행마다 객체를 만들지 않도록 배열에 이어 붙인다 (값 없음 = NaN) */
+    private static final class RowValues {
+        private long[] ids = new long[1024];
+        private double[] values = new double[2048];
+        private int size;
+
+        void add(long id, Double pbr, Double per) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                values = Arrays.copyOf(values, size * 4);
+            }
+            ids[size] = id;
+            values[2 * size] = valueOf(pbr);
+            values[2 * size++ + 1] = valueOf(per);
+        }
+
+        private static double valueOf(Double v) {
+            return v == null || v.isInfinite() ? Double.NaN : v;
+        }
+
+        /* wanted 중 읽은 id -> {PBR, PER} */
+        Map<Long, double[]> find(Set<Long> wanted) {
+            Map<Long, double[]> out = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (wanted.contains(ids[i])) out.put(ids[i], new double[]{values[2 * i], values[2 * i + 1]});
+            }
+            return out;
+        }
+    }
+
+    /* 한 지표: 스케치(분위수) + 합계(평균) + 구간 건수(히스토그램) */
+    private static final class Column {
+        final String metric;
+        final double[] edges;
+        final QuantileSketch sketch = new QuantileSketch();
+        final long[] buckets;
+        /* 더하고 빼기를 오래 반복해도 평균이 흐르지 않도록 보정 합 (Neumaier): sum + sumError 가 실제 합 */
+        double sum, sumError;
+        long nulls;
+
+        Column(String metric, double[] edges) {
+            this.metric = metric;
+            this.edges = edges;
+            this.buckets = new long[edges.length + 1];
+        }
+
+        void add(Double v, int sign) {
+            if (v == null || v.isNaN() || v.isInfinite()) {
+                nulls += sign;
+                return;
+            }
+            if (sign > 0) sketch.add(v); else sketch.remove(v);
+            buckets[bucket(v)] += sign;
+            if (sketch.count() == 0) {
+                sum = sumError = 0;
+                return;
+            }
+            double x = sign * v, t = sum + x;
+            sumError += Math.abs(sum) >= Math.abs(x) ? (sum - t) + x : (x - t) + sum;
+            sum = t;
+        }
+
+        /* edges[i-1] <= v < edges[i] -> i */
+        private int bucket(double v) {
+            int i = 0;
+            while (i < edges.length && v >= edges[i]) i++;
+            return i;
+        }
+
+        ValuationSummary summary() {
+            long n = sketch.count();
+            List<ValuationSummary.Bucket> list = new ArrayList<>(buckets.length);
+            for (int i = 0; i < buckets.length; i++) {
+                Double lo = i == 0 ? null : edges[i - 1];
+                Double hi = i == edges.length ? null : edges[i];
+                list.add(new ValuationSummary.Bucket(lo, hi, buckets[i]));
+            }
+            if (n == 0) return new ValuationSummary(metric, 0, nulls, null, null, null, null, list);
+            return new ValuationSummary(metric, n, nulls, round((sum + sumError) / n),
+                    round(sketch.quantile(0.10)), round(sketch.quantile(0.50)), round(sketch.quantile(0.90)), list);
+        }
+
+        private static double round(double v) {
+            return Math.round(v * 10_000) / 10_000.0;
+        }
+    }
+}
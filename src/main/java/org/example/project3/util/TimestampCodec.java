@@ -0,0 +1,117 @@
+package org.example.project3.util;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * create_date 전용 손으로 짠 파서/포매터 (정규식, String.format, DateTimeFormatter 없음).
+ * 읽을 수 있는 형식:
+ *  - "yyyy-MM-dd HH:mm:ss"  /  "yyyy-MM-ddTHH:mm:ss"
+ *  - 위 형식 + ".f" ~ ".fffffffff" (소수 초, 9자리 넘으면 버림)
+ *  - 숫자만 있는 값 = epoch 밀리초 (시스템 시간대 기준 로컬 시각으로 변환)
+ */
+public final class TimestampCodec {
+
+    private TimestampCodec() {}
+
+    /** 형식이 맞지 않으면 null */
+    public static LocalDateTime parse(String raw) {
+        if (raw == null) return null;
+        int from = 0, to = raw.length();
+        while (from < to && raw.charAt(from) <= ' ') from++;
+        while (to > from && raw.charAt(to - 1) <= ' ') to--;
+        int len = to - from;
+        if (len == 0) return null;
+
+        if (allDigits(raw, from, to)) {
+            if (len > 18) return null;
+            return ofEpochMillis(Long.parseLong(raw, from, to, 10));
+        }
+        if (len < 19) return null;
+
+        char sep = raw.charAt(from + 10);
+        if (raw.charAt(from + 4) != '-' || raw.charAt(from + 7) != '-'
+                || (sep != ' ' && sep != 'T')
+                || raw.charAt(from + 13) != ':' || raw.charAt(from + 16) != ':') {
+            return null;
+        }
+        int year = digits(raw, from, 4);
+        int month = digits(raw, from + 5, 2);
+        int day = digits(raw, from + 8, 2);
+        int hour = digits(raw, from + 11, 2);
+        int minute = digits(raw, from + 14, 2);
+        int second = digits(raw, from + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) return null;
+
+        int nano = 0;
+        int p = from + 19;
+        if (p < to && raw.charAt(p) == '.') {
+            int scale = 100_000_000;
+            for (p++; p < to && scale > 0; p++) {
+                int d = raw.charAt(p) - '0';
+                if (d < 0 || d > 9) break;
+                nano += d * scale;
+                scale /= 10;
+            }
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    public static LocalDateTime ofEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    public static long toEpochMillis(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /** "yyyy-MM-dd HH:mm:ss" (초 미만 버림) */
+    public static String format(LocalDateTime t) {
+        if (t == null) return "";
+        char[] c = new char[19];
+        put(c, 0, t.getYear(), 4);
+        c[4] = '-';
+        put(c, 5, t.getMonthValue(), 2);
+        c[7] = '-';
+        put(c, 8, t.getDayOfMonth(), 2);
+        c[10] = ' ';
+        put(c, 11, t.getHour(), 2);
+        c[13] = ':';
+        put(c, 14, t.getMinute(), 2);
+        c[16] = ':';
+        put(c, 17, t.getSecond(), 2);
+        return new String(c);
+    }
+
+    private static boolean allDigits(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') return false;
+        }
+        return true;
+    }
+
+    /* 고정 자리 숫자, 숫자가 아니면 -1 */
+    private static int digits(String s, int at, int n) {
+        int v = 0;
+        for (int i = at; i < at + n; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static void put(char[] c, int at, int v, int n) {
+        for (int i = at + n - 1; i >= at; i--) {
+            c[i] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.project3.web;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 지문 붙은 정적 자원 (/assets/css/style.1a2b3c4d5e.css).
+ * URL 이 내용과 함께 바뀌므로 1년 immutable 캐시, gzip 을 받는 클라이언트에는 미리 압축해 둔 본문을 보낸다.
+ * 옛 지문(재배포 전 URL)은 404 - 페이지가 새 URL 을 다시 받아 간다.
+ */
+public class AssetServlet extends HttpServlet {
+
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private StaticAssets assets;
+
+    @Override
+    public void init() {
+        assets = StockContextListener.assets(getServletContext());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        StaticAssets.Asset a = assets.find(req.getPathInfo());
+        if (a == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        boolean gz = a.gzip != null && GzipFilter.acceptsGzip(req);
+        // 인코딩별로 다른 본문이므로 ETag 도 나눈다
+        String etag = gz ? a.etag.substring(0, a.etag.length() - 1) + "-gz\"" : a.etag;
+        resp.setHeader("Cache-Control", CACHE_CONTROL);
+        resp.setHeader("ETag", etag);
+        if (ConditionalGet.etagMatches(req.getHeader("If-None-Match"), etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        byte[] body = gz ? a.gzip : a.body;
+        resp.setContentType(a.contentType);
+        if (gz) resp.setHeader("Content-Encoding", "gzip");
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+}
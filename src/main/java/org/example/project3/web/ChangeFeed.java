@@ -0,0 +1,285 @@
+package org.example.project3.web;
+
+import org.example.project3.dao.StockChangeListener;
+import org.example.project3.dto.StockChange;
+import org.example.project3.dto.StockDTO;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 행 단위 변경 피드 (Server-Sent Events).
+ * DAO 변경 알림마다 순번을 붙여 최근 replay 건을 링 버퍼에 두고, 전송 스레드 하나가 구독자 큐에 넣어 논블로킹으로 내보낸다.
+ * 대기 중인 구독자는 AsyncContext 와 작은 큐뿐이라 스레드를 차지하지 않는다.
+ *
+ * 이벤트 id 는 "부팅ID-순번". Last-Event-ID 가 링 버퍼 범위 밖(오래됨/재시작 전)이면 reset 을 보내 전체 다시 읽기를 알린다.
+ * 큐가 maxPending 을 넘는 느린 구독자는 끊는다 - 브라우저가 Last-Event-ID 로 다시 붙는다.
+ */
+public class ChangeFeed implements StockChangeListener {
+
+    public static final int DEFAULT_REPLAY = 1024;
+    public static final int DEFAULT_MAX_PENDING = 256;
+    public static final long DEFAULT_HEARTBEAT_MS = 15_000;
+
+    /* 재연결 대기 (브라우저 EventSource 기본값 대신) */
+    private static final long RETRY_MS = 3000;
+    private static final String BOOT_ID = Long.toString(System.currentTimeMillis(), 36);
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final class Event {
+        final long seq;
+        final byte[] bytes;
+
+        Event(long seq, byte[] bytes) {
+            this.seq = seq;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Event[] ring;
+    private final int maxPending;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService sender;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /* 마지막 순번 (this 로 보호) */
+    private long seq;
+
+    public ChangeFeed() {
+        this(DEFAULT_REPLAY, DEFAULT_MAX_PENDING, DEFAULT_HEARTBEAT_MS);
+    }
+
+    public ChangeFeed(int replay, int maxPending, long heartbeatMs) {
+        this.ring = new Event[Math.max(1, replay)];
+        this.maxPending = Math.max(1, maxPending);
+        this.sender = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-events");
+            t.setDaemon(true);
+            return t;
+        });
+        if (heartbeatMs > 0) {
+            // 프록시 유휴 타임아웃 방지 + 끊어진 연결 발견
+            sender.scheduleWithFixedDelay(this::ping, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public int subscriberCount() { return subscribers.size(); }
+    public long publishedCount() { return published.sum(); }
+    public long droppedCount() { return dropped.sum(); }
+
+    /**
+     * 현재 피드 위치 ("부팅ID-순번"). 페이지를 읽기 전에 얻어 lastEventId 로 넘기면
+     * 렌더링과 구독 사이에 커밋된 변경도 다시 받는다 (알림은 커밋 직후에 나가므로 읽은 데이터보다 뒤처지지 않는다).
+     */
+    public synchronized String position() {
+        return BOOT_ID + "-" + seq;
+    }
+
+    /* ===== DAO 알림 (쓰기 스레드: 직렬화와 큐잉만) ===== */
+
+    @Override
+    public void onChange(StockChange change) {
+        publish(change.getType().name().toLowerCase(Locale.ROOT), change.getBefore(), change.getAfter());
+    }
+
+    /** 행 단위로 알 수 없는 대량 변경: 클라이언트가 전체를 다시 읽는다 */
+    @Override
+    public void onBulkChange() {
+        publish("reset", null, null);
+    }
+
+    private void publish(String type, StockDTO before, StockDTO after) {
+        Event e;
+        synchronized (this) {
+            e = event(++seq, type, before, after);
+            ring[(int) (e.seq % ring.length)] = e;
+        }
+        published.increment();
+        try {
+            sender.execute(() -> {
+                for (Subscriber s : subscribers) s.send(e);
+            });
+        } catch (RejectedExecutionException closed) {
+            // 종료 중
+        }
+    }
+
+    private static Event event(long seq, String type, StockDTO before, StockDTO after) {
+        StringWriter sw = new StringWriter(256);
+        try {
+            JsonWriter w = new JsonWriter(sw);
+            w.beginObject().name("seq").value(seq).name("type").value(type);
+            if (before != null) {
+                w.name("before");
+                StockApiServlet.writeStock(w, before);
+            }
+            if (after != null) {
+                w.name("after");
+                StockApiServlet.writeStock(w, after);
+            }
+            w.endObject();
+        } catch (IOException impossible) {
+            throw new IllegalStateException(impossible);
+        }
+        String text = "id: " + BOOT_ID + "-" + seq + "\nevent: " + type + "\ndata: " + sw + "\n\n";
+        return new Event(seq, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void ping() {
+        for (Subscriber s : subscribers) s.sendRaw(PING);
+    }
+
+    /* ===== 구독 ===== */
+
+    /**
+     * 비동기로 시작된 요청을 구독자로 등록한다 (컨테이너 스레드에서 호출).
+     * lastEventId 이후 이벤트가 링 버퍼에 남아 있으면 먼저 다시 보낸다.
+     */
+    public void subscribe(AsyncContext ac, String lastEventId) throws IOException {
+        ServletOutputStream out = ac.getResponse().getOutputStream();
+        Subscriber s = new Subscriber(ac, out);
+        s.sendRaw(("retry: " + RETRY_MS + "\n\n").getBytes(StandardCharsets.UTF_8));
+
+        // 링 읽기와 등록을 한 번에: 그 사이 발행된 이벤트는 lastSeq 로 걸러진다 (아직 큐에만 쌓임)
+        synchronized (this) {
+            long last = lastSeq(lastEventId);
+            if (lastEventId != null && last != seq) {
+                if (last < 0 || last > seq || seq - last > Math.min(ring.length, maxPending - 2)) {
+                    // 다른 부팅의 id 이거나, 링에서 밀려났거나, 다시 보내면 큐 한도를 넘는 경우
+                    s.sendRaw(event(seq, "reset", null, null).bytes);
+                } else {
+                    for (long i = last + 1; i <= seq; i++) s.sendRaw(ring[(int) (i % ring.length)].bytes);
+                }
+            }
+            s.lastSeq = seq;
+            subscribers.add(s);
+        }
+
+        ac.addListener(new AsyncListener() {
+            @Override public void onComplete(AsyncEvent e) { s.close(); }
+            @Override public void onTimeout(AsyncEvent e) { s.close(); }
+            @Override public void onError(AsyncEvent e) { s.close(); }
+            @Override public void onStartAsync(AsyncEvent e) { }
+        });
+        // 이후 쓰기는 논블로킹: 첫 onWritePossible 에서 쌓인 것부터 내보낸다
+        out.setWriteListener(s);
+    }
+
+    /* "부팅ID-순번" -> 순번, 이번 부팅 것이 아니거나 형식이 다르면 -1 */
+    private static long lastSeq(String id) {
+        if (id == null) return -1;
+        int dash = id.lastIndexOf('-');
+        if (dash < 0 || !BOOT_ID.equals(id.substring(0, dash).trim())) return -1;
+        try {
+            return Long.parseLong(id.substring(dash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** 모든 구독을 끝내고 전송 스레드를 멈춘다 */
+    public void close() {
+        sender.shutdownNow();
+        for (Subscriber s : subscribers) s.close();
+    }
+
+    private final class Subscriber implements WriteListener {
+        private final AsyncContext ac;
+        private final ServletOutputStream out;
+        private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        /* 마지막으로 큐에 넣은 순번: 등록과 발행이 겹칠 때 같은 이벤트를 두 번 넣지 않도록 */
+        private volatile long lastSeq;
+        /* setWriteListener 이후에만 쓴다 (그 전에는 스트림이 블로킹 모드) */
+        private boolean listening;
+        private boolean unflushed;
+        private volatile boolean closed;
+
+        Subscriber(AsyncContext ac, ServletOutputStream out) {
+            this.ac = ac;
+            this.out = out;
+        }
+
+        void send(Event e) {
+            if (e.seq <= lastSeq) return;
+            lastSeq = e.seq;
+            sendRaw(e.bytes);
+        }
+
+        void sendRaw(byte[] bytes) {
+            if (closed) return;
+            if (pending.incrementAndGet() > maxPending) {
+                dropped.increment();
+                close();
+                return;
+            }
+            queue.add(bytes);
+            drain();
+        }
+
+        @Override
+        public void onWritePossible() {
+            synchronized (this) {
+                listening = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        private synchronized void drain() {
+            if (!listening || closed) return;
+            try {
+                while (out.isReady()) {
+                    byte[] b = queue.poll();
+                    if (b == null) {
+                        if (unflushed) {
+                            unflushed = false;
+                            out.flush();
+                            continue;
+                        }
+                        return;
+                    }
+                    pending.decrementAndGet();
+                    out.write(b);
+                    unflushed = true;
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            try {
+                ac.complete();
+            } catch (IllegalStateException alreadyDone) {
+                // 이미 끝난 요청
+            }
+        }
+    }
+}
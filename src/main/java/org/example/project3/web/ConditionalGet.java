@@ -0,0 +1,65 @@
+package org.example.project3.web;
+
+import org.example.project3.dao.StockRepository;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 데이터 버전 기반 조건부 GET (ETag / Last-Modified -> 304).
+ * 버전은 DAO 쓰기 커밋마다 올라가는 카운터라서 검사에 DB 조회가 필요 없다.
+ */
+final class ConditionalGet {
+
+    /* 재시작 후 버전 카운터가 0부터 다시 시작해도 ETag 가 겹치지 않도록 */
+    private static final String BOOT_ID = Long.toString(System.currentTimeMillis(), 36);
+
+    private ConditionalGet() { }
+
+    static String etag(StockRepository dao) {
+        return "\"" + BOOT_ID + "-" + dao.dataVersion() + "\"";
+    }
+
+    /**
+     * ETag/Last-Modified 헤더를 붙이고, 요청의 If-None-Match(없으면 If-Modified-Since)가
+     * 현재 버전과 맞으면 304 를 보내고 true.
+     */
+    static boolean notModified(StockRepository dao, HttpServletRequest req, HttpServletResponse resp) {
+        // 버전을 조회보다 먼저 읽는다: 그 사이 쓰기가 있으면 옛 ETag 가 나가고 다음 요청에서 새로 받는다
+        String etag = etag(dao);
+        long modified = dao.lastModifiedMillis();
+        resp.setHeader("ETag", etag);
+        resp.setDateHeader("Last-Modified", modified);
+        resp.setHeader("Cache-Control", "no-cache");
+
+        String inm = req.getHeader("If-None-Match");
+        boolean match;
+        if (inm != null) {
+            match = etagMatches(inm, etag);
+        } else {
+            long ims = ifModifiedSince(req);
+            // HTTP 날짜는 초 단위
+            match = ims >= 0 && modified / 1000 <= ims / 1000;
+        }
+        if (match) resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return match;
+    }
+
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String t : ifNoneMatch.split(",")) {
+            String v = t.trim();
+            if (v.startsWith("W/")) v = v.substring(2);
+            if (v.equals("*") || v.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static long ifModifiedSince(HttpServletRequest req) {
+        try {
+            return req.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return -1;   // 형식 오류는 무시
+        }
+    }
+}
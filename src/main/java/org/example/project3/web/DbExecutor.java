@@ -0,0 +1,123 @@
+package org.example.project3.web;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DAO 작업 전용 실행기 (비동기 서블릿용).
+ * Tomcat 요청 스레드 대신 여기서 DB 작업을 돌려, 쓰기 잠금 대기나 큰 조회가 요청 스레드를 묶지 않게 한다.
+ * - 스레드 수/대기열 길이가 정해져 있고, 넘치면 즉시 RejectedExecutionException (-> 503)
+ * - virtualThreads=true 이고 JDK 21+ 이면 가상 스레드로 실행(동시 작업 수는 같은 한도로 제한),
+ *   지원하지 않는 JDK 면 일반 스레드 풀로 대체한다
+ */
+public final class DbExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_THREADS = 8;
+    public static final int DEFAULT_QUEUE = 100;
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;     // 가상 스레드 모드에서만 사용 (실행 중 + 대기 한도)
+    private final ThreadPoolExecutor pool;
+    private final boolean virtual;
+    private final int limit;
+    private final LongAdder rejected = new LongAdder();
+
+    public DbExecutor(int threads, int queue, boolean virtualThreads) {
+        int n = Math.max(1, threads);
+        int q = Math.max(0, queue);
+        this.limit = n + q;
+        ExecutorService v = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (v != null) {
+            this.delegate = v;
+            this.permits = new Semaphore(limit);
+            this.pool = null;
+            this.virtual = true;
+        } else {
+            AtomicInteger seq = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS,
+                    q == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(q),
+                    r -> {
+                        Thread t = new Thread(r, "stock-db-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.delegate = pool;
+            this.permits = null;
+            this.virtual = false;
+        }
+    }
+
+    /** JDK 21 의 Executors.newVirtualThreadPerTaskExecutor() (컴파일 대상이 17 이라 리플렉션) */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /** 한도를 넘으면 RejectedExecutionException */
+    public Future<?> submit(Runnable task) {
+        if (permits == null) {
+            try {
+                return pool.submit(task);
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                throw e;
+            }
+        }
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new RejectedExecutionException("DB 작업 한도 초과");
+        }
+        try {
+            return delegate.submit(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public boolean isVirtual() { return virtual; }
+    public long rejectedCount() { return rejected.sum(); }
+
+    /** 실행 중 + 대기 중 작업 수 */
+    public int inFlight() {
+        return pool != null ? pool.getActiveCount() + pool.getQueue().size() : limit - permits.availablePermits();
+    }
+
+    @Override
+    public String toString() {
+        return "DbExecutor[" + (virtual ? "virtual" : "platform") + ", limit=" + limit + ", rejected=" + rejectedCount() + "]";
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(5, TimeUnit.SECONDS)) delegate.shutdownNow();
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
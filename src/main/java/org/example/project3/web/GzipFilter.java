@@ -0,0 +1,372 @@
+package org.example.project3.web;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 응답 gzip 압축 (요청의 Accept-Encoding 이 gzip 을 허용할 때만).
+ * 처음 minSize 바이트까지만 모아 두고, 넘는 순간 압축 여부를 정한 뒤 이후는 그대로 흘려 보낸다
+ * - 페이지 전체를 버퍼링하지 않으므로 큰 목록도 첫 바이트가 일찍 나간다.
+ * 텍스트 계열 Content-Type 만 압축하고, 이미 Content-Encoding 이 있는 응답(/assets 의 .gz 등)과
+ * text/event-stream(SSE, 이벤트마다 바로 보내야 함)은 건드리지 않는다.
+ */
+public class GzipFilter implements Filter {
+
+    static final int DEFAULT_MIN_SIZE = 1024;
+    static final String DEFAULT_MIME_TYPES = "text/html,text/css,text/plain,text/csv,text/tab-separated-values,"
+            + "text/javascript,application/javascript,application/json,application/xml,text/xml,image/svg+xml";
+
+    /* 압축 스트림 버퍼 (원래 응답 버퍼와 별개) */
+    private static final int GZIP_BUFFER = 8 * 1024;
+    /*
+     * 이만큼(원본 바이트) 쓸 때마다 SYNC_FLUSH. deflater 는 반복이 많은 HTML 을 수백 KB 씩 쥐고 있다가 내보내므로
+     * 그냥 두면 평문보다 첫 바이트가 늦다. 플러시 한 번에 몇 바이트씩만 늘어난다.
+     */
+    private static final int GZIP_FLUSH_BYTES = 32 * 1024;
+
+    private int minSize;
+    private Set<String> mimeTypes;
+
+    @Override
+    public void init(FilterConfig cfg) {
+        String min = cfg.getInitParameter("minSize");
+        minSize = (min == null || min.isBlank()) ? DEFAULT_MIN_SIZE : Integer.parseInt(min.trim());
+        String types = cfg.getInitParameter("mimeTypes");
+        mimeTypes = mimeTypes((types == null || types.isBlank()) ? DEFAULT_MIME_TYPES : types);
+    }
+
+    /** 쉼표로 구분한 Content-Type 목록 (소문자, 파라미터 없이) */
+    static Set<String> mimeTypes(String csv) {
+        Set<String> set = new HashSet<>();
+        for (String t : csv.split(",")) {
+            if (!t.isBlank()) set.add(t.trim().toLowerCase(Locale.ROOT));
+        }
+        // SSE 는 설정과 무관하게 제외 (gzip 블록 단위로 묶이면 이벤트가 늦게 도착)
+        set.remove("text/event-stream");
+        return set;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest hreq = (HttpServletRequest) req;
+        HttpServletResponse hres = (HttpServletResponse) res;
+        hres.addHeader("Vary", "Accept-Encoding");
+        // 부분 요청(Range)은 원래 바이트 구간을 돌려줘야 하므로 압축하지 않는다
+        if (!acceptsGzip(hreq) || hreq.getHeader("Range") != null) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        GzipResponse gz = new GzipResponse(hres, minSize, mimeTypes);
+        boolean async;
+        try {
+            chain.doFilter(req, gz);
+            async = req.isAsyncStarted();
+        } catch (IOException | ServletException | RuntimeException e) {
+            // 오류 페이지가 gzip 헤더를 달고 평문으로 나가지 않도록
+            gz.discard();
+            throw e;
+        }
+        if (async) {
+            // 비동기 요청은 AsyncContext 가 끝날 때 남은 바이트/gzip 트레일러를 보낸다
+            req.getAsyncContext().addListener(new AsyncListener() {
+                @Override public void onComplete(AsyncEvent e) throws IOException { gz.finish(); }
+                @Override public void onTimeout(AsyncEvent e) { }
+                @Override public void onError(AsyncEvent e) { }
+                @Override public void onStartAsync(AsyncEvent e) { }
+            });
+        } else {
+            gz.finish();
+        }
+    }
+
+    /** Accept-Encoding 에 gzip (또는 *) 이 q=0 이 아닌 값으로 있는지 */
+    static boolean acceptsGzip(HttpServletRequest req) {
+        String ae = req.getHeader("Accept-Encoding");
+        if (ae == null) return false;
+        for (String part : ae.split(",")) {
+            String[] p = part.split(";");
+            String coding = p[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("*")) continue;
+            double q = 1;
+            for (int i = 1; i < p.length; i++) {
+                String param = p[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (q > 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /*
+     * 압축 여부를 정하기 전까지 본문 앞부분(minSize 바이트)만 들고 있는 응답.
+     * 정한 뒤에는 원래 응답 스트림(또는 그 위의 gzip 스트림)으로 바로 쓴다.
+     * Content-Length 는 압축하면 알 수 없으므로 정할 때까지 보류한다.
+     */
+    private static final class GzipResponse extends HttpServletResponseWrapper {
+
+        private final int minSize;
+        private final Set<String> mimeTypes;
+
+        private byte[] head;
+        private int count;
+        /* null 이면 아직 미정 */
+        private OutputStream target;
+        private GZIPOutputStream gzip;
+        private int sinceFlush;
+        private long contentLength = -1;
+
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+        private boolean finished;
+
+        GzipResponse(HttpServletResponse resp, int minSize, Set<String> mimeTypes) {
+            super(resp);
+            this.minSize = minSize;
+            this.mimeTypes = mimeTypes;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (writer != null) throw new IllegalStateException("getWriter() 가 이미 호출됨");
+            if (stream == null) stream = new Body();
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) throw new IllegalStateException("getOutputStream() 이 이미 호출됨");
+                stream = new Body();
+                writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (target == null) contentLength = len;
+            else if (gzip == null) super.setContentLengthLong(len);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+            else super.setHeader(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+            else super.addHeader(name, value);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if ("Content-Length".equalsIgnoreCase(name)) setContentLengthLong(value);
+            else super.setIntHeader(name, value);
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if ("Content-Length".equalsIgnoreCase(name)) setContentLengthLong(value);
+            else super.addIntHeader(name, value);
+        }
+
+        /* 미정 상태에서 커밋하면 Content-Encoding 을 더 못 붙이므로 minSize 를 넘을 때까지 미룬다 */
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) writer.flush();
+            if (target == null) return;
+            target.flush();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            count = 0;
+            if (gzip != null) {
+                // 원래 버퍼에 있던 gzip 헤더도 지워졌으므로 새 스트림으로 다시 시작
+                try {
+                    gzip = new GZIPOutputStream(getResponse().getOutputStream(), GZIP_BUFFER, true);
+                    target = gzip;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            // 헤더(Content-Encoding 포함)까지 지워졌으니 처음부터 다시 정한다
+            target = null;
+            gzip = null;
+            count = 0;
+            contentLength = -1;
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            discard();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            discard();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            discard();
+            super.sendRedirect(location);
+        }
+
+        /* 컨테이너가 본문을 직접 쓰는 경우(오류 페이지/리다이렉트): 모은 바이트는 버리고 이후 쓰기는 무시 */
+        void discard() {
+            if (gzip != null && !isCommitted()) getResponse().reset();
+            head = null;
+            count = 0;
+            gzip = null;
+            target = OutputStream.nullOutputStream();
+            finished = true;
+        }
+
+        /** 요청 끝: minSize 미만이면 평문으로 보내고, 압축 중이면 gzip 트레일러를 쓴다 */
+        void finish() throws IOException {
+            if (finished) return;
+            if (writer != null) writer.flush();
+            finished = true;
+            if (target == null) {
+                if (count == 0) {
+                    if (contentLength >= 0) super.setContentLengthLong(contentLength);
+                    return;
+                }
+                start(false);
+            }
+            if (gzip != null) gzip.finish();
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            if (target == null) {
+                if (count + len <= minSize) {
+                    if (head == null) head = new byte[minSize];
+                    System.arraycopy(b, off, head, count, len);
+                    count += len;
+                    return;
+                }
+                start(compressible());
+            }
+            target.write(b, off, len);
+            if (gzip != null && (sinceFlush += len) >= GZIP_FLUSH_BYTES) {
+                gzip.flush();
+                sinceFlush = 0;
+            }
+        }
+
+        private void start(boolean compress) throws IOException {
+            HttpServletResponse resp = (HttpServletResponse) getResponse();
+            if (compress) {
+                resp.setHeader("Content-Encoding", "gzip");
+                // 인코딩이 다른 본문이므로 강한 ETag 는 약한 ETag 로 (ConditionalGet 은 W/ 를 무시하고 비교)
+                String etag = resp.getHeader("ETag");
+                if (etag != null && etag.startsWith("\"")) resp.setHeader("ETag", "W/" + etag);
+                gzip = new GZIPOutputStream(resp.getOutputStream(), GZIP_BUFFER, true);
+                target = gzip;
+            } else {
+                if (contentLength >= 0) resp.setContentLengthLong(contentLength);
+                target = resp.getOutputStream();
+            }
+            if (count > 0) target.write(head, 0, count);
+            // 압축이면 헤더와 앞부분을 바로 보낸다 (평문은 원래 응답 버퍼가 차면 나감)
+            if (gzip != null) gzip.flush();
+            head = null;
+            count = 0;
+            sinceFlush = 0;
+        }
+
+        private boolean compressible() {
+            int status = getStatus();
+            if (status < 200 || status == SC_NO_CONTENT || status == SC_PARTIAL_CONTENT || status == SC_NOT_MODIFIED) {
+                return false;
+            }
+            if (getHeader("Content-Encoding") != null) return false;
+            if (contentLength >= 0 && contentLength < minSize) return false;
+            String type = getContentType();
+            if (type == null) return false;
+            int semi = type.indexOf(';');
+            return mimeTypes.contains((semi < 0 ? type : type.substring(0, semi)).trim().toLowerCase(Locale.ROOT));
+        }
+
+        private final class Body extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                GzipResponse.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                GzipResponse.this.write(b, off, len);
+            }
+
+            /* 미정이면 minSize 를 넘거나 요청이 끝날 때까지 보류 (평문/압축을 아직 모름) */
+            @Override
+            public void flush() throws IOException {
+                if (target != null) target.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                finish();
+            }
+
+            @Override
+            public boolean isReady() {
+                try {
+                    return target == null || getResponse().getOutputStream().isReady();
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                try {
+                    getResponse().getOutputStream().setWriteListener(listener);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
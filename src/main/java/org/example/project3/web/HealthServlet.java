@@ -0,0 +1,37 @@
+package org.example.project3.web;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * GET /stocks/health : 준비 상태 (로드밸런서/오케스트레이터의 readiness 검사용).
+ * 마이그레이션과 워밍업이 끝났으면 200, 아직이거나 종료 중이면 503. 본문에 시작 단계별 소요 시간.
+ */
+public class HealthServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        StartupReport r = (StartupReport) getServletContext().getAttribute(StockContextListener.ATTR_STARTUP);
+        boolean ready = r != null && r.isReady()
+                && getServletContext().getAttribute(StockContextListener.ATTR_DAO) != null;
+
+        resp.setStatus(ready ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        resp.setContentType("application/json;charset=UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginObject().name("status").value(ready ? "UP" : "STARTING");
+        if (r != null && r.isReady()) {
+            w.name("startupMs").value(r.totalMillis())
+                    .name("schemaVersion").value(r.schemaVersion())
+                    .name("journalMode").value(r.journalMode())
+                    .name("phasesMs").beginObject();
+            for (Map.Entry<String, Long> e : r.phases().entrySet()) w.name(e.getKey()).value(e.getValue());
+            w.endObject();
+        }
+        w.endObject();
+        w.flush();
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.project3.web;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 최소한의 스트리밍 JSON 작성기 (외부 라이브러리 없이).
+ * 값을 바로 Writer 로 흘려보내므로 결과 전체를 메모리에 만들지 않는다.
+ */
+public final class JsonWriter {
+
+    private final Writer out;
+    /* 중첩 단계별 "첫 원소인가" 플래그 */
+    private boolean[] first = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException { return open('{'); }
+    public JsonWriter endObject() throws IOException { return close('}'); }
+    public JsonWriter beginArray() throws IOException { return open('['); }
+    public JsonWriter endArray() throws IOException { return close(']'); }
+
+    public JsonWriter name(String name) throws IOException {
+        separator();
+        string(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String v) throws IOException {
+        if (v == null) return nullValue();
+        separator();
+        string(v);
+        return this;
+    }
+
+    public JsonWriter value(long v) throws IOException {
+        separator();
+        out.write(Long.toString(v));
+        return this;
+    }
+
+    public JsonWriter value(boolean v) throws IOException {
+        separator();
+        out.write(v ? "true" : "false");
+        return this;
+    }
+
+    /** NaN/Infinity 는 JSON 에 없으므로 null */
+    public JsonWriter value(Double v) throws IOException {
+        if (v == null || v.isNaN() || v.isInfinite()) return nullValue();
+        separator();
+        out.write(Double.toString(v));
+        return this;
+    }
+
+    public JsonWriter value(Long v) throws IOException {
+        return v == null ? nullValue() : value(v.longValue());
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        separator();
+        out.write("null");
+        return this;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private JsonWriter open(char c) throws IOException {
+        separator();
+        out.write(c);
+        if (++depth == first.length) {
+            boolean[] grown = new boolean[first.length * 2];
+            System.arraycopy(first, 0, grown, 0, first.length);
+            first = grown;
+        }
+        first[depth] = true;
+        return this;
+    }
+
+    private JsonWriter close(char c) throws IOException {
+        if (depth == 0) throw new IllegalStateException("닫을 JSON 구조가 없습니다.");
+        depth--;
+        out.write(c);
+        return this;
+    }
+
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (first[depth]) first[depth] = false;
+            else out.write(',');
+        }
+    }
+
+    private void string(String s) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            String esc;
+            switch (ch) {
+                case '"': esc = "\\\""; break;
+                case '\\': esc = "\\\\"; break;
+                case '\n': esc = "\\n"; break;
+                case '\r': esc = "\\r"; break;
+                case '\t': esc = "\\t"; break;
+                case '<': esc = "\\u003c"; break;   // </script> 삽입 방지
+                default:
+                    if (ch < 0x20 || ch == '\u2028' || ch == '\u2029') {
+                        esc = String.format("\\u%04x", (int) ch);
+                    } else {
+                        continue;
+                    }
+            }
+            if (i > start) out.write(s, start, i - start);
+            out.write(esc);
+            start = i + 1;
+        }
+        if (start < s.length()) out.write(s, start, s.length() - start);
+        out.write('"');
+    }
+}
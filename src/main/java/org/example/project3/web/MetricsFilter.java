@@ -0,0 +1,79 @@
+package org.example.project3.web;
+
+import org.example.project3.metrics.Metrics;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * 서블릿 경로별 처리 시간/응답 코드 기록.
+ * 경로 라벨은 servletPath + pathInfo 의 첫 단계까지만 쓴다(/stocks/api/code/005930 -> /stocks/api/code)
+ * - 코드/id 가 라벨에 들어가 시계열 수가 늘어나지 않도록.
+ * 아는 경로(ROUTES)가 아니면 전부 Metrics.OTHER_ROUTE 하나로 모은다 - 404/스캐너 요청마다 히스토그램이 생기지 않게.
+ */
+public class MetricsFilter implements Filter {
+
+    /* 라벨로 쓰는 경로: 서블릿 매핑 + 각 서블릿이 처리하는 첫 단계 */
+    private static final Set<String> ROUTES = Set.of(
+            "/stocks", "/stocks/list", "/stocks/new", "/stocks/edit",
+            "/stocks/create", "/stocks/update", "/stocks/delete",
+            "/stocks/api", "/stocks/api/list", "/stocks/api/search", "/stocks/api/suggest", "/stocks/api/stats",
+            "/stocks/api/screen", "/stocks/api/export", "/stocks/api/history", "/stocks/api/codes",
+            "/stocks/api/code", "/stocks/api/id", "/stocks/api/import",
+            "/stocks/metrics", "/stocks/health", "/stocks/events");
+
+    private static final Set<String> METHODS = Set.of("GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS");
+
+    private Metrics metrics;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        this.metrics = StockContextListener.dao(filterConfig.getServletContext()).metrics();
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        long t0 = System.nanoTime();
+        HttpServletRequest hreq = (HttpServletRequest) req;
+        HttpServletResponse hres = (HttpServletResponse) res;
+        String route = (METHODS.contains(hreq.getMethod()) ? hreq.getMethod() : "OTHER") + " " + route(hreq);
+        boolean async = false;
+        try {
+            chain.doFilter(req, res);
+            async = req.isAsyncStarted();
+        } finally {
+            if (async) {
+                // 비동기 요청은 AsyncContext 가 끝날 때 기록
+                req.getAsyncContext().addListener(new AsyncListener() {
+                    @Override public void onComplete(AsyncEvent e) {
+                        metrics.route(route, hres.getStatus(), System.nanoTime() - t0);
+                    }
+                    @Override public void onTimeout(AsyncEvent e) { }
+                    @Override public void onError(AsyncEvent e) { }
+                    @Override public void onStartAsync(AsyncEvent e) { }
+                });
+            } else {
+                metrics.route(route, hres.getStatus(), System.nanoTime() - t0);
+            }
+        }
+    }
+
+    static String route(HttpServletRequest req) {
+        String path = req.getServletPath() == null ? "" : req.getServletPath();
+        String info = req.getPathInfo();
+        if (info != null && info.length() > 1) {
+            int slash = info.indexOf('/', 1);
+            path += slash < 0 ? info : info.substring(0, slash);
+        }
+        if (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+        return ROUTES.contains(path) ? path : Metrics.OTHER_ROUTE;
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
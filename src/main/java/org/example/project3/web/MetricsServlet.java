@@ -0,0 +1,105 @@
+package org.example.project3.web;
+
+import org.example.project3.dao.GroupCommitWriter;
+import org.example.project3.dao.MemoryStockRepository;
+import org.example.project3.dao.SqlitePool;
+import org.example.project3.dao.StockDao;
+import org.example.project3.dao.StockRepository;
+import org.example.project3.dao.StockSnapshotCache;
+import org.example.project3.metrics.Metrics;
+import org.example.project3.search.TypeaheadIndex;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * GET /stocks/metrics : Prometheus text format.
+ * DAO/HTTP 지표(Metrics) + 커넥션 풀/스냅샷 캐시/그룹 커밋 상태값.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private StockRepository dao;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            this.dao = StockContextListener.dao(getServletContext());
+        } catch (Exception e) {
+            getServletContext().log("[MetricsServlet] init 실패", e);
+            throw new ServletException(e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType(CONTENT_TYPE);
+        resp.setHeader("Cache-Control", "no-store");
+        Writer out = resp.getWriter();
+        dao.metrics().writePrometheus(out);
+
+        // SQLite 저장소 전용 상태
+        StockDao sqlite = dao instanceof StockDao ? (StockDao) dao : null;
+        if (sqlite != null) {
+            SqlitePool pool = sqlite.pool();
+            Metrics.gauge(out, "sqlite_pool_readers", "gauge", "읽기 커넥션 수", pool.readerCount());
+            Metrics.gauge(out, "sqlite_pool_readers_idle", "gauge", "대여 가능한 읽기 커넥션 수", pool.idleReaderCount());
+        }
+
+        // 메모리 저장소 전용 상태
+        if (dao instanceof MemoryStockRepository) {
+            MemoryStockRepository mem = (MemoryStockRepository) dao;
+            Metrics.gauge(out, "stock_memory_seq", "counter", "WAL 에 기록된 마지막 순번", mem.lastSeq());
+            Metrics.gauge(out, "stock_memory_unsnapshotted", "gauge", "재시작 때 재생할 WAL 레코드 수",
+                    mem.lastSeq() - mem.snapshotSeq());
+            Metrics.gauge(out, "stock_memory_wal_bytes", "gauge", "WAL 파일 크기 합(바이트)", mem.walBytes());
+        }
+
+        StockSnapshotCache cache = dao.cache();
+        Metrics.gauge(out, "stock_snapshot_hits_total", "counter", "스냅샷 캐시 적중", cache.hits());
+        Metrics.gauge(out, "stock_snapshot_misses_total", "counter", "스냅샷 캐시 미스", cache.misses());
+        Metrics.gauge(out, "stock_data_version", "gauge", "데이터 버전(쓰기 커밋마다 증가)", dao.dataVersion());
+
+        StartupReport startup = (StartupReport) getServletContext().getAttribute(StockContextListener.ATTR_STARTUP);
+        if (startup != null) {
+            Metrics.gauge(out, "stock_ready", "gauge", "마이그레이션/워밍업 완료 여부", startup.isReady() ? 1 : 0);
+            Metrics.gauge(out, "stock_startup_seconds", "gauge", "시작부터 준비 완료까지 걸린 시간", startup.totalMillis() / 1000.0);
+        }
+        if (sqlite != null) {
+            Metrics.gauge(out, "stock_schema_version", "gauge", "적용된 스키마 버전(PRAGMA user_version)", sqlite.schemaVersion());
+        }
+
+        DbExecutor ex = (DbExecutor) getServletContext().getAttribute(StockContextListener.ATTR_EXECUTOR);
+        if (ex != null) {
+            Metrics.gauge(out, "stock_db_executor_in_flight", "gauge", "DB 실행기 실행 중+대기 작업 수", ex.inFlight());
+            Metrics.gauge(out, "stock_db_executor_rejected_total", "counter", "DB 실행기 한도 초과로 503 응답한 수", ex.rejectedCount());
+        }
+
+        TypeaheadIndex typeahead = (TypeaheadIndex) getServletContext().getAttribute(StockContextListener.ATTR_TYPEAHEAD);
+        if (typeahead != null) {
+            Metrics.gauge(out, "stock_typeahead_keys", "gauge", "자동완성 색인 키 수(기본 배열)", typeahead.keys());
+            Metrics.gauge(out, "stock_typeahead_pending", "gauge", "자동완성 색인에 아직 합쳐지지 않은 변경 항목 수", typeahead.pending());
+        }
+
+        ChangeFeed feed = (ChangeFeed) getServletContext().getAttribute(StockContextListener.ATTR_FEED);
+        if (feed != null) {
+            Metrics.gauge(out, "stock_events_subscribers", "gauge", "변경 피드(SSE) 구독자 수", feed.subscriberCount());
+            Metrics.gauge(out, "stock_events_published_total", "counter", "변경 피드 발행 이벤트 수", feed.publishedCount());
+            Metrics.gauge(out, "stock_events_dropped_total", "counter", "미전송 한도 초과로 끊은 구독자 수", feed.droppedCount());
+        }
+
+        GroupCommitWriter gc = sqlite == null ? null : sqlite.groupCommit();
+        if (gc != null) {
+            Metrics.gauge(out, "stock_group_commit_ops_total", "counter", "그룹 커밋 작업 수", gc.operations());
+            Metrics.gauge(out, "stock_group_commit_failed_total", "counter", "그룹 커밋 실패 작업 수", gc.failedOperations());
+            Metrics.gauge(out, "stock_group_commit_batches_total", "counter", "그룹 커밋 배치 수", gc.batches());
+            Metrics.gauge(out, "stock_group_commit_queue_depth", "gauge", "쓰기 큐 대기 작업 수", gc.queueDepth());
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.project3.web;
+
+import org.example.project3.dto.ScreenCriteria;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 스크리닝 요청 파라미터 <-> ScreenCriteria (화면/API 공용).
+ *  pbrMin, pbrMax, perMin, perMax : 범위 (숫자)
+ *  exclusive=1                    : 경계 제외 (예: 5 < PER < 12)
+ *  pbrNulls, perNulls             : include | exclude | only (범위가 없을 때만 의미)
+ *  sort=pbr|per|name|id, dir=asc|desc
+ */
+final class ScreenParams {
+
+    static final String[] NAMES = {
+            "pbrMin", "pbrMax", "perMin", "perMax", "exclusive", "pbrNulls", "perNulls", "sort", "dir"
+    };
+
+    private ScreenParams() { }
+
+    /** 스크리닝 파라미터가 하나라도 있으면 true */
+    static boolean present(HttpServletRequest req) {
+        if (req.getParameter("screen") != null) return true;
+        for (String n : NAMES) {
+            String v = req.getParameter(n);
+            if (v != null && !v.isBlank()) return true;
+        }
+        return false;
+    }
+
+    static ScreenCriteria parse(HttpServletRequest req) {
+        ScreenCriteria c = new ScreenCriteria();
+        c.setPbrMin(number(req.getParameter("pbrMin")));
+        c.setPbrMax(number(req.getParameter("pbrMax")));
+        c.setPerMin(number(req.getParameter("perMin")));
+        c.setPerMax(number(req.getParameter("perMax")));
+        String ex = req.getParameter("exclusive");
+        c.setExclusive("1".equals(ex) || "true".equalsIgnoreCase(ex) || "on".equalsIgnoreCase(ex));
+        c.setPbrNulls(enumOf(ScreenCriteria.Nulls.class, req.getParameter("pbrNulls")));
+        c.setPerNulls(enumOf(ScreenCriteria.Nulls.class, req.getParameter("perNulls")));
+        c.setSort(enumOf(ScreenCriteria.SortKey.class, req.getParameter("sort")));
+        c.setDescending("desc".equalsIgnoreCase(req.getParameter("dir")));
+        return c;
+    }
+
+    /** 페이지 링크에 다시 붙일 (비어 있지 않은) 파라미터 */
+    static Map<String, String> echo(HttpServletRequest req) {
+        Map<String, String> m = new LinkedHashMap<>();
+        m.put("screen", "1");
+        for (String n : NAMES) {
+            String v = req.getParameter(n);
+            if (v != null && !v.isBlank()) m.put(n, v.trim());
+        }
+        return m;
+    }
+
+    private static Double number(String s) {
+        if (s == null || s.isBlank()) return null;
+        try { return Double.valueOf(s.trim()); }
+        catch (NumberFormatException e) { return null; }
+    }
+
+    private static <E extends Enum<E>> E enumOf(Class<E> type, String s) {
+        if (s == null || s.isBlank()) return null;
+        try { return Enum.valueOf(type, s.trim().toUpperCase(Locale.ROOT)); }
+        catch (IllegalArgumentException e) { return null; }
+    }
+}
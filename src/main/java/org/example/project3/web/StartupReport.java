@@ -0,0 +1,49 @@
+package org.example.project3.web;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 시작 단계별 소요 시간과 준비 상태 (/stocks/health, /stocks/metrics).
+ * 단계는 contextInitialized 한 스레드에서만 기록하고, ready() 이후에는 읽기만 한다.
+ */
+final class StartupReport {
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private long lastNanos = startNanos;
+
+    private int schemaVersion;
+    private String journalMode;
+    private volatile long totalMillis = -1;
+
+    /** 직전 단계 끝부터 지금까지를 name 단계로 기록 */
+    void phase(String name) {
+        long now = System.nanoTime();
+        phases.put(name, (now - lastNanos) / 1_000_000);
+        lastNanos = now;
+    }
+
+    void schema(int version, String journalMode) {
+        this.schemaVersion = version;
+        this.journalMode = journalMode;
+    }
+
+    /** 워밍업까지 끝나 요청을 받을 수 있음 */
+    void ready() {
+        totalMillis = (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    boolean isReady() { return totalMillis >= 0; }
+    long totalMillis() { return totalMillis; }
+    int schemaVersion() { return schemaVersion; }
+    String journalMode() { return journalMode; }
+    Map<String, Long> phases() { return Collections.unmodifiableMap(phases); }
+
+    @Override
+    public String toString() {
+        return "StartupReport[ready=" + isReady() + ", totalMs=" + totalMillis + ", schema=" + schemaVersion
+                + ", journal=" + journalMode + ", phasesMs=" + phases + "]";
+    }
+}
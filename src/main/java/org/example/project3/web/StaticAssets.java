@@ -0,0 +1,146 @@
+package org.example.project3.web;
+
+import javax.servlet.ServletContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 지문(내용 해시)을 붙인 정적 자원: /css/style.css -> /assets/css/style.1a2b3c4d5e.css.
+ * 내용이 바뀌면 URL 도 바뀌므로 브라우저가 1년 동안(immutable) 다시 묻지 않고 캐시해도 된다.
+ * 시작 시 한 번 읽어 본문과 gzip 본문을 메모리에 둔다 (옆에 .gz 파일이 있으면 그것을 쓴다).
+ * JSP 에서는 ${assets.url('/css/style.css')} 로 현재 URL 을 얻는다.
+ */
+public final class StaticAssets {
+
+    /** AssetServlet 매핑 */
+    static final String PREFIX = "/assets";
+    /** 지문을 붙일 웹앱 디렉터리 */
+    static final String[] DIRS = {"/css/", "/js/"};
+
+    private static final int HASH_CHARS = 10;
+    private static final Set<String> COMPRESSIBLE = GzipFilter.mimeTypes(GzipFilter.DEFAULT_MIME_TYPES);
+
+    static final class Asset {
+        final String contentType;
+        final byte[] body;
+        /* gzip 이 원본보다 작지 않으면 null */
+        final byte[] gzip;
+        final String etag;
+
+        Asset(String contentType, byte[] body, byte[] gzip, String hash) {
+            this.contentType = contentType;
+            this.body = body;
+            this.gzip = gzip;
+            this.etag = "\"" + hash + "\"";
+        }
+    }
+
+    /* 원래 경로 -> 지문 URL (컨텍스트 기준) */
+    private final Map<String, String> urls;
+    /* 지문 경로 (PREFIX 뒤) -> 자원 */
+    private final Map<String, Asset> assets;
+    private final long bytes;
+    private final long gzipBytes;
+
+    private StaticAssets(Map<String, String> urls, Map<String, Asset> assets) {
+        this.urls = Collections.unmodifiableMap(urls);
+        this.assets = assets;
+        long b = 0, g = 0;
+        for (Asset a : assets.values()) {
+            b += a.body.length;
+            g += a.gzip == null ? a.body.length : a.gzip.length;
+        }
+        this.bytes = b;
+        this.gzipBytes = g;
+    }
+
+    static StaticAssets load(ServletContext ctx) throws IOException {
+        Map<String, String> urls = new HashMap<>();
+        Map<String, Asset> assets = new HashMap<>();
+        for (String dir : DIRS) {
+            for (String path : files(ctx, dir, new TreeSet<>())) {
+                if (path.endsWith(".gz")) continue;
+                byte[] body = read(ctx, path);
+                if (body == null) continue;
+                String hash = hash(body);
+                String type = ctx.getMimeType(path);
+                if (type == null) type = "application/octet-stream";
+                else if (type.startsWith("text/")) type += ";charset=UTF-8";
+
+                byte[] gz = read(ctx, path + ".gz");
+                if (gz == null && COMPRESSIBLE.contains(type.split(";")[0])) gz = gzip(body);
+                if (gz != null && gz.length >= body.length) gz = null;
+
+                int dot = path.lastIndexOf('.');
+                String fingerprinted = dot > path.lastIndexOf('/')
+                        ? path.substring(0, dot) + "." + hash + path.substring(dot)
+                        : path + "." + hash;
+                urls.put(path, PREFIX + fingerprinted);
+                assets.put(fingerprinted, new Asset(type, body, gz, hash));
+            }
+        }
+        return new StaticAssets(urls, assets);
+    }
+
+    /** 지문 URL (모르는 경로면 그대로 - 기본 서블릿이 캐시 헤더 없이 서비스) */
+    public String url(String path) {
+        String u = urls.get(path);
+        return u == null ? path : u;
+    }
+
+    /** AssetServlet 의 pathInfo 로 찾기 (옛 지문이면 null) */
+    Asset find(String pathInfo) {
+        return pathInfo == null ? null : assets.get(pathInfo);
+    }
+
+    private static Set<String> files(ServletContext ctx, String dir, Set<String> out) {
+        Set<String> paths = ctx.getResourcePaths(dir);
+        if (paths == null) return out;
+        for (String p : paths) {
+            if (p.endsWith("/")) files(ctx, p, out);
+            else out.add(p);
+        }
+        return out;
+    }
+
+    private static byte[] read(ServletContext ctx, String path) throws IOException {
+        try (InputStream in = ctx.getResourceAsStream(path)) {
+            return in == null ? null : in.readAllBytes();
+        }
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder sb = new StringBuilder(HASH_CHARS);
+            for (int i = 0; sb.length() < HASH_CHARS; i++) sb.append(String.format("%02x", d[i]));
+            return sb.substring(0, HASH_CHARS);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* 시작 시 한 번뿐이라 최고 압축률로 */
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 3 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gz.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return "StaticAssets[files=" + assets.size() + ", bytes=" + bytes + ", gzipBytes=" + gzipBytes + "]";
+    }
+}
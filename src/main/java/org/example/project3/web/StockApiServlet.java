@@ -0,0 +1,456 @@
+package org.example.project3.web;
+
+import org.example.project3.csv.CsvWriter;
+import org.example.project3.dao.RowHandler;
+import org.example.project3.dao.StockRepository;
+import org.example.project3.dto.HistoryPoint;
+import org.example.project3.dto.ImportResult;
+import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.StockPage;
+import org.example.project3.dto.ValuationSummary;
+import org.example.project3.search.TypeaheadIndex;
+import org.example.project3.stats.ValuationStats;
+import org.example.project3.util.TimestampCodec;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON API (/stocks/api/*)
+ *  GET /list?mode=name|inserted   전체 목록 (스트리밍)
+ *  GET /search?q=키워드            검색 결과 (스트리밍, 순위순)
+ *  GET /suggest?q=접두사&limit=10  자동완성 (코드/종목명/단어/초성 접두사, 메모리 색인)
+ *  GET /screen?pbrMin=&pbrMax=&perMin=&perMax=&exclusive=1&sort=per&dir=asc&size=&after=
+ *                                  PBR/PER 범위 스크리닝 (한 페이지 + 다음 커서 + 전체 건수)
+ *  GET /stats                      PBR/PER 시장 통계 (건수, 평균, p10/중앙값/p90, 구간 건수)
+ *  GET /history/{stockCode}?from=&to=&points=500
+ *                                  PBR/PER 이력 (from/to = yyyy-MM-dd, 일시 또는 epoch ms, 기본 최근 1년)
+ *  GET /code/{stockCode}           코드로 한 건
+ *  GET|POST /codes?codes=A,B,C (또는 code=A&code=B)
+ *                                  여러 코드 한 번에 (요청 순서 유지, 없는 코드는 missing, 최대 1000개)
+ *  GET /id/{id}                    id 로 한 건
+ *  GET /export?format=csv|tsv&mode=name|inserted&gzip=1   전체 내보내기 (스트리밍 파일)
+ *  POST /import?format=csv|tsv     대량 업서트 (본문 = CSV 원문, 또는 multipart 의 file 파트)
+ *
+ * 목록/검색은 ResultSet 에서 한 행씩 바로 응답으로 써서(chunked) 행 수와 무관하게 메모리가 일정하다.
+ * 모든 GET 은 데이터 버전 기반 ETag/Last-Modified 로 조건부 GET(304)을 지원한다(ConditionalGet).
+ */
+public class StockApiServlet extends HttpServlet {
+
+    private static final String JSON = "application/json;charset=UTF-8";
+    private static final int STREAM_BUFFER = 8192;
+    private static final int EXPORT_BUFFER = 16 * 1024;
+
+    private StockRepository dao;
+    private ValuationStats valuation;
+    private TypeaheadIndex typeahead;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            this.dao = StockContextListener.dao(getServletContext());
+            this.valuation = StockContextListener.valuation(getServletContext());
+            this.typeahead = StockContextListener.typeahead(getServletContext());
+        } catch (Exception e) {
+            getServletContext().log("[StockApiServlet] init 실패", e);
+            throw new ServletException(e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String path = req.getPathInfo() == null ? "" : req.getPathInfo();
+
+        if (ConditionalGet.notModified(dao, req, resp)) return;
+
+        if (path.equals("/list") || path.equals("/") || path.isEmpty()) {
+            String mode = req.getParameter("mode");
+            streamArray(resp, h -> "inserted".equalsIgnoreCase(mode)
+                    ? dao.streamAllOrderByInserted(h)
+                    : dao.streamAllOrderByName(h));
+        } else if (path.equals("/search")) {
+            String q = req.getParameter("q");
+            streamArray(resp, h -> dao.streamSearch(q, h));
+        } else if (path.equals("/suggest")) {
+            handleSuggest(req, resp);
+        } else if (path.equals("/stats")) {
+            handleStats(resp);
+        } else if (path.equals("/screen")) {
+            handleScreen(req, resp);
+        } else if (path.equals("/export")) {
+            handleExport(req, resp);
+        } else if (path.startsWith("/history/")) {
+            handleHistory(path.substring("/history/".length()).trim(), req, resp);
+        } else if (path.equals("/codes")) {
+            handleCodes(req, resp);
+        } else if (path.startsWith("/code/")) {
+            String code = path.substring("/code/".length()).trim();
+            writeOne(resp, code.isEmpty() ? null : dao.findByCode(code));
+        } else if (path.startsWith("/id/")) {
+            Long id = parseLong(path.substring("/id/".length()));
+            writeOne(resp, id == null ? null : dao.findById(id));
+        } else {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "알 수 없는 경로: " + path);
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        String path = req.getPathInfo() == null ? "" : req.getPathInfo();
+        if (path.equals("/codes")) {
+            // 코드 수백 개는 URL 길이 제한에 걸릴 수 있어 폼 본문으로도 받는다
+            handleCodes(req, resp);
+            return;
+        }
+        if (!path.equals("/import")) {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "알 수 없는 경로: " + path);
+            return;
+        }
+        handleImport(req, resp);
+    }
+
+    /* ===== 여러 코드 조회 ===== */
+
+    private void handleCodes(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        List<String> codes = new ArrayList<>();
+        String[] lists = req.getParameterValues("codes");
+        if (lists != null) {
+            for (String v : lists) codes.addAll(Arrays.asList(v.split("[,\\s]+")));
+        }
+        String[] single = req.getParameterValues("code");
+        if (single != null) codes.addAll(Arrays.asList(single));
+
+        Map<String, StockDTO> found;
+        try {
+            found = dao.findByCodes(codes);
+        } catch (IllegalArgumentException e) {
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (found.isEmpty()) {
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, "codes 파라미터가 없습니다");
+            return;
+        }
+        List<String> missing = new ArrayList<>();
+        resp.setContentType(JSON);
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginObject()
+                .name("requested").value(found.size())
+                .name("items").beginArray();
+        for (Map.Entry<String, StockDTO> e : found.entrySet()) {
+            if (e.getValue() != null) {
+                writeStock(w, e.getValue());
+            } else {
+                missing.add(e.getKey());
+                w.beginObject().name("stockCode").value(e.getKey()).name("missing").value(true).endObject();
+            }
+        }
+        w.endArray().name("missing").beginArray();
+        for (String code : missing) w.value(code);
+        w.endArray().endObject();
+        w.flush();
+    }
+
+    /* ===== 이력 ===== */
+
+    private static final int DEFAULT_HISTORY_POINTS = 500;
+    private static final int MAX_HISTORY_POINTS = 5000;
+
+    private void handleHistory(String code, HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (code.isEmpty()) {
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, "종목 코드가 없습니다");
+            return;
+        }
+        Long to = parseTime(req.getParameter("to"));
+        Long from = parseTime(req.getParameter("from"));
+        if (to == null) to = System.currentTimeMillis();
+        if (from == null) from = to - TimeUnit.DAYS.toMillis(365);
+        Long p = req.getParameter("points") == null ? null : parseLong(req.getParameter("points"));
+        int points = p == null || p <= 0 ? DEFAULT_HISTORY_POINTS : (int) Math.min(p, MAX_HISTORY_POINTS);
+
+        List<HistoryPoint> list = dao.history(code, from, to, points);
+        resp.setContentType(JSON);
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginObject()
+                .name("stockCode").value(code)
+                .name("from").value(from.longValue())
+                .name("to").value(to.longValue())
+                .name("points").beginArray();
+        for (HistoryPoint h : list) {
+            w.beginObject()
+                    .name("time").value(h.getTime())
+                    .name("pbr").value(h.getPbr())
+                    .name("per").value(h.getPer())
+                    .endObject();
+        }
+        w.endArray().endObject();
+        w.flush();
+    }
+
+    /* yyyy-MM-dd(그날 0시), yyyy-MM-dd HH:mm:ss, epoch 밀리초 */
+    private static Long parseTime(String s) {
+        if (s == null || s.isBlank()) return null;
+        String v = s.trim();
+        if (v.length() == 10 && v.charAt(4) == '-') v += " 00:00:00";
+        LocalDateTime t = TimestampCodec.parse(v);
+        return t == null ? null : TimestampCodec.toEpochMillis(t);
+    }
+
+    /* ===== 자동완성 (메모리 색인, DB 를 거치지 않는다) ===== */
+
+    private static final int DEFAULT_SUGGEST_LIMIT = 10;
+    private static final int MAX_SUGGEST_LIMIT = 50;
+
+    private void handleSuggest(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String q = req.getParameter("q");
+        Long l = req.getParameter("limit") == null ? null : parseLong(req.getParameter("limit"));
+        int limit = l == null || l <= 0 ? DEFAULT_SUGGEST_LIMIT : (int) Math.min(l, MAX_SUGGEST_LIMIT);
+
+        List<TypeaheadIndex.Suggestion> list = typeahead.suggest(q, limit);
+        resp.setContentType(JSON);
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginObject()
+                .name("q").value(q == null ? "" : q)
+                .name("items").beginArray();
+        for (TypeaheadIndex.Suggestion s : list) {
+            w.beginObject()
+                    .name("id").value(s.getStock().getId())
+                    .name("stockCode").value(s.getStock().getStockCode())
+                    .name("stockName").value(s.getStock().getStockName())
+                    .name("match").value(s.getMatch().label())
+                    .endObject();
+        }
+        w.endArray().endObject();
+        w.flush();
+    }
+
+    /* ===== 통계 (미리 계산된 요약을 그대로 출력) ===== */
+
+    private void handleStats(HttpServletResponse resp) throws IOException {
+        resp.setContentType(JSON);
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginObject();
+        writeSummary(w.name("pbr"), valuation.pbr());
+        writeSummary(w.name("per"), valuation.per());
+        w.endObject();
+        w.flush();
+    }
+
+    private static void writeSummary(JsonWriter w, ValuationSummary s) throws IOException {
+        w.beginObject()
+                .name("count").value(s.getCount())
+                .name("nulls").value(s.getNulls())
+                .name("mean").value(s.getMean())
+                .name("p10").value(s.getP10())
+                .name("median").value(s.getMedian())
+                .name("p90").value(s.getP90())
+                .name("histogram").beginArray();
+        for (ValuationSummary.Bucket b : s.getBuckets()) {
+            w.beginObject()
+                    .name("lower").value(b.getLower())
+                    .name("upper").value(b.getUpper())
+                    .name("count").value(b.getCount())
+                    .endObject();
+        }
+        w.endArray().endObject();
+    }
+
+    /* ===== 스크리닝 ===== */
+
+    private void handleScreen(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        int size = StockRepository.DEFAULT_PAGE_SIZE;
+        String s = req.getParameter("size");
+        if (s != null) {
+            try { size = StockRepository.clampPageSize(Integer.parseInt(s.trim())); }
+            catch (NumberFormatException ignore) { }
+        }
+        StockPage page = dao.screen(ScreenParams.parse(req), req.getParameter("after"), size);
+
+        resp.setContentType(JSON);
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginObject()
+                .name("total").value(page.getTotal())
+                .name("nextCursor").value(page.getNextCursor())
+                .name("items").beginArray();
+        for (StockDTO d : page.getItems()) writeStock(w, d);
+        w.endArray().endObject();
+        w.flush();
+    }
+
+    /* ===== 내보내기 ===== */
+
+    /*
+     * 앞으로만 읽는 ResultSet -> CsvWriter -> (gzip) -> 응답.
+     * 버퍼는 고정 크기(EXPORT_BUFFER)뿐이라 행 수와 무관하게 메모리가 같다.
+     */
+    private void handleExport(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        boolean tsv = "tsv".equalsIgnoreCase(req.getParameter("format"));
+        boolean inserted = "inserted".equalsIgnoreCase(req.getParameter("mode"));
+        String gz = req.getParameter("gzip");
+        boolean gzip = "1".equals(gz) || "true".equalsIgnoreCase(gz);
+
+        String file = "stocks-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + (tsv ? ".tsv" : ".csv");
+        if (gzip) {
+            resp.setContentType("application/gzip");
+            file += ".gz";
+        } else {
+            resp.setContentType((tsv ? "text/tab-separated-values" : "text/csv") + ";charset=UTF-8");
+        }
+        resp.setHeader("Content-Disposition", "attachment; filename=\"" + file + "\"");
+        resp.setBufferSize(EXPORT_BUFFER);
+
+        OutputStream raw = resp.getOutputStream();
+        OutputStream body = gzip ? new GZIPOutputStream(raw, EXPORT_BUFFER) : raw;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), EXPORT_BUFFER);
+        CsvWriter csv = new CsvWriter(writer, tsv ? '\t' : ',');
+
+        csv.field("id").field("stock_code").field("stock_name").field("pbr").field("per").field("create_date");
+        csv.endRecord();
+        RowHandler h = d -> {
+            csv.field(d.getId()).field(d.getStockCode()).field(d.getStockName())
+                    .field(d.getPbr()).field(d.getPer()).field(d.getCreateDateText());
+            csv.endRecord();
+        };
+        try {
+            long n = inserted ? dao.streamAllOrderByInserted(h) : dao.streamAllOrderByName(h);
+            writer.flush();
+            if (gzip) ((GZIPOutputStream) body).finish();
+            getServletContext().log("[EXPORT] " + n + " rows, " + file);
+        } catch (UncheckedIOException e) {
+            getServletContext().log("[EXPORT] 스트리밍 중단: " + e.getCause().getMessage());
+        }
+    }
+
+    /* ===== 대량 가져오기 ===== */
+
+    private void handleImport(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        char delimiter = "tsv".equalsIgnoreCase(req.getParameter("format")) ? '\t' : ',';
+
+        ImportResult r;
+        try (Reader in = uploadReader(req)) {
+            if (in == null) {
+                error(resp, HttpServletResponse.SC_BAD_REQUEST, "업로드 파일(file 파트)이 없습니다");
+                return;
+            }
+            r = dao.importCsv(in, delimiter);
+        } catch (UncheckedIOException e) {
+            getServletContext().log("[IMPORT] 업로드 읽기 실패(전체 롤백)", e);
+            error(resp, HttpServletResponse.SC_BAD_REQUEST, "업로드 읽기 실패: " + e.getCause().getMessage());
+            return;
+        } catch (RuntimeException e) {
+            getServletContext().log("[IMPORT] 실패", e);
+            error(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "가져오기 실패");
+            return;
+        }
+        getServletContext().log("[IMPORT] " + r);
+
+        resp.setContentType(JSON);
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginObject()
+                .name("processed").value(r.getProcessed())
+                .name("upserted").value(r.getUpserted())
+                .name("failed").value(r.getFailed())
+                .name("elapsedMillis").value(r.getElapsedMillis())
+                .name("rowsPerSecond").value(Math.round(r.getRowsPerSecond()))
+                .name("errors").beginArray();
+        for (ImportResult.RowError e : r.getErrors()) {
+            w.beginObject()
+                    .name("line").value(e.getLine())
+                    .name("stockCode").value(e.getStockCode())
+                    .name("message").value(e.getMessage())
+                    .endObject();
+        }
+        w.endArray().endObject();
+        w.flush();
+    }
+
+    /* 본문을 그대로 스트리밍 (multipart 면 file 파트) */
+    private static Reader uploadReader(HttpServletRequest req) throws IOException, ServletException {
+        String ct = req.getContentType();
+        if (ct != null && ct.toLowerCase().startsWith("multipart/form-data")) {
+            Part part = req.getPart("file");
+            return part == null ? null : new InputStreamReader(part.getInputStream(), StandardCharsets.UTF_8);
+        }
+        return new InputStreamReader(req.getInputStream(), StandardCharsets.UTF_8);
+    }
+
+    /* ===== 응답 작성 ===== */
+
+    @FunctionalInterface
+    private interface StreamQuery {
+        long run(RowHandler h);
+    }
+
+    private void streamArray(HttpServletResponse resp, StreamQuery query) throws IOException {
+        resp.setContentType(JSON);
+        resp.setBufferSize(STREAM_BUFFER);   // 버퍼가 찰 때마다 chunk 로 내보냄
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginArray();
+        try {
+            query.run(row -> writeStock(w, row));
+        } catch (UncheckedIOException e) {
+            // 클라이언트가 도중에 끊음: 더 쓸 곳이 없다
+            getServletContext().log("[API] 스트리밍 중단: " + e.getCause().getMessage());
+            return;
+        }
+        w.endArray();
+        w.flush();
+    }
+
+    private void writeOne(HttpServletResponse resp, StockDTO d) throws IOException {
+        if (d == null) {
+            error(resp, HttpServletResponse.SC_NOT_FOUND, "해당 항목 없음");
+            return;
+        }
+        resp.setContentType(JSON);
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        writeStock(w, d);
+        w.flush();
+    }
+
+    static void writeStock(JsonWriter w, StockDTO d) throws IOException {
+        w.beginObject()
+                .name("id").value(d.getId())
+                .name("stockCode").value(d.getStockCode())
+                .name("stockName").value(d.getStockName())
+                .name("pbr").value(d.getPbr())
+                .name("per").value(d.getPer())
+                .name("createDate").value(d.getCreateDate() == null ? null : d.getCreateDateText())
+                .name("version").value(d.getVersion())
+                .endObject();
+    }
+
+    static void error(HttpServletResponse resp, int status, String message) throws IOException {
+        resp.setStatus(status);
+        resp.setContentType(JSON);
+        JsonWriter w = new JsonWriter(resp.getWriter());
+        w.beginObject().name("error").value(message).endObject();
+        w.flush();
+    }
+
+    private static Long parseLong(String s) {
+        try { return Long.valueOf(s.trim()); }
+        catch (NumberFormatException e) { return null; }
+    }
+}
@@ -0,0 +1,380 @@
+package org.example.project3.web;
+
+import org.example.project3.dao.GroupCommitWriter;
+import org.example.project3.dao.MemoryStockRepository;
+import org.example.project3.dao.SqlitePool;
+import org.example.project3.dao.StockDao;
+import org.example.project3.dao.StockRepository;
+import org.example.project3.metrics.Metrics;
+import org.example.project3.search.TypeaheadIndex;
+import org.example.project3.stats.ValuationStats;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 웹앱 시작 시 저장소(StockRepository: SQLite StockDao 또는 MemoryStockRepository)를 한 번만 만들어
+ * ServletContext 에 공유. StockServlet(JSP 화면)과 StockApiServlet(JSON API)이 같은 저장소를 사용한다.
+ */
+public class StockContextListener implements ServletContextListener {
+
+    public static final String ATTR_DAO = StockRepository.class.getName();
+    public static final String ATTR_EXECUTOR = DbExecutor.class.getName();
+    public static final String ATTR_VALUATION = ValuationStats.class.getName();
+    public static final String ATTR_TYPEAHEAD = TypeaheadIndex.class.getName();
+    public static final String ATTR_FEED = ChangeFeed.class.getName();
+    public static final String ATTR_STARTUP = StartupReport.class.getName();
+    /* JSP 에서 ${assets.url(...)} 로 쓰므로 짧은 이름 */
+    public static final String ATTR_ASSETS = "assets";
+
+    /* mmap 256MiB, 커넥션당 페이지 캐시 16MiB */
+    static final long DEFAULT_MMAP_SIZE = 256L * 1024 * 1024;
+    static final int DEFAULT_CACHE_SIZE_KB = 16 * 1024;
+
+    /* 이력 압축 (하루 한 번) */
+    private ScheduledExecutorService maintenance;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext ctx = sce.getServletContext();
+        try {
+            StartupReport startup = new StartupReport();
+            ctx.setAttribute(ATTR_STARTUP, startup);
+
+            // 1) 저장소 종류: sqlite (기본) 또는 memory (메모리 + 스냅샷/WAL 파일)
+            String type = ctx.getInitParameter("repository.type");
+            boolean memory = "memory".equalsIgnoreCase(type == null ? "" : type.trim());
+            if (!memory && type != null && !type.isBlank() && !"sqlite".equalsIgnoreCase(type.trim())) {
+                throw new IllegalStateException("context-param 'repository.type' 은 sqlite 또는 memory: " + type);
+            }
+
+            // 2~5) 저장소 열기 (SQLite 는 마이그레이션/튜닝/그룹 커밋 포함)
+            StockRepository dao = memory ? openMemory(ctx, startup) : openSqlite(ctx, startup);
+
+            // 6) 느린 쿼리 로그 임계값 (0 이면 끔)
+            int slowMs = intParam(ctx, "metrics.slowQueryMs", (int) Metrics.DEFAULT_SLOW_QUERY_MS);
+            dao.metrics().setSlowQueryMillis(slowMs);
+            ctx.setAttribute(ATTR_DAO, dao);
+
+            // 7) 워밍업: 스냅샷/스크리닝 인덱스 적재 (+ SQLite 는 읽기 커넥션마다 자주 쓰는 SQL 준비)
+            if (!"false".equalsIgnoreCase(ctx.getInitParameter("sqlite.warmUp"))) {
+                int prepared = dao.warmUp();
+                startup.phase("warmUp");
+                ctx.log("[StockContext] warm-up: snapshot rows=" + dao.count() + ", prepared=" + prepared);
+            }
+
+            // 8) PBR/PER 통계: 시작 시 한 번 전체를 읽고 이후 변경마다 증분 갱신
+            long t0 = System.nanoTime();
+            ValuationStats valuation = new ValuationStats(sink -> dao.streamAllOrderByInserted(sink::accept));
+            dao.addChangeListener(valuation);
+            ctx.setAttribute(ATTR_VALUATION, valuation);
+            ctx.log("[StockContext] " + valuation + " (" + (System.nanoTime() - t0) / 1_000_000 + "ms)");
+            startup.phase("valuationStats");
+
+            // 9) 자동완성 색인: 코드/종목명/초성 접두사, 이후 변경마다 증분 갱신
+            t0 = System.nanoTime();
+            TypeaheadIndex typeahead = new TypeaheadIndex(sink -> dao.streamAllOrderByInserted(sink::accept));
+            dao.addChangeListener(typeahead);
+            ctx.setAttribute(ATTR_TYPEAHEAD, typeahead);
+            ctx.log("[StockContext] " + typeahead + " (" + (System.nanoTime() - t0) / 1_000_000 + "ms)");
+            startup.phase("typeahead");
+
+            // 10) 이력 압축: compactAfterDays 보다 오래된 이력은 종목별 bucketHours 구간마다 한 점만 남김 (0 이면 끔)
+            int compactDays = intParam(ctx, "history.compactAfterDays", 365);
+            int bucketHours = intParam(ctx, "history.compactBucketHours", 24);
+            if (compactDays > 0) {
+                maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "stock-history-compact");
+                    t.setDaemon(true);
+                    return t;
+                });
+                maintenance.scheduleWithFixedDelay(() -> {
+                    try {
+                        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(compactDays);
+                        long n = dao.compactHistory(cutoff, TimeUnit.HOURS.toMillis(bucketHours));
+                        if (n > 0) ctx.log("[StockContext] history compacted, removed=" + n);
+                    } catch (RuntimeException e) {
+                        ctx.log("[StockContext] history 압축 실패", e);
+                    }
+                }, 1, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+            }
+
+            // 11) 비동기 서블릿용 DB 실행기 (스레드 수/대기열 한도, 선택적으로 가상 스레드)
+            int threads = intParam(ctx, "async.threads", DbExecutor.DEFAULT_THREADS);
+            int queue = intParam(ctx, "async.queue", DbExecutor.DEFAULT_QUEUE);
+            boolean virtual = Boolean.parseBoolean(ctx.getInitParameter("async.virtualThreads"));
+            DbExecutor executor = new DbExecutor(threads, queue, virtual);
+            if (virtual && !executor.isVirtual()) ctx.log("[StockContext] 가상 스레드 미지원 JDK: 일반 스레드 풀 사용");
+            ctx.log("[StockContext] " + executor + ", threads=" + threads + ", queue=" + queue);
+            ctx.setAttribute(ATTR_EXECUTOR, executor);
+
+            // 12) 변경 피드 (SSE)
+            ChangeFeed feed = new ChangeFeed(
+                    intParam(ctx, "events.replay", ChangeFeed.DEFAULT_REPLAY),
+                    intParam(ctx, "events.maxPending", ChangeFeed.DEFAULT_MAX_PENDING),
+                    intParam(ctx, "events.heartbeatMs", (int) ChangeFeed.DEFAULT_HEARTBEAT_MS));
+            dao.addChangeListener(feed);
+            ctx.setAttribute(ATTR_FEED, feed);
+
+            // 13) 정적 자원 지문 URL + 미리 압축한 본문 (/assets/*, immutable 캐시)
+            StaticAssets assets = StaticAssets.load(ctx);
+            ctx.setAttribute(ATTR_ASSETS, assets);
+            ctx.log("[StockContext] " + assets);
+            startup.phase("assets");
+
+            startup.ready();
+            ctx.log("[StockContext] ready: " + startup);
+
+        } catch (Exception e) {
+            ctx.log("[StockContext] init 실패", e);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* SQLite 저장소: DB 파일 위치 결정, 마이그레이션, 커넥션 튜닝, (선택) 그룹 커밋/epoch 변환 */
+    private StockDao openSqlite(ServletContext ctx, StartupReport startup) throws Exception {
+        // DB 파일 위치: 외부 경로(재배포해도 유지) 또는 기존처럼 WAR 안의 classpath 파일
+        java.nio.file.Path dbPath = resolveDbPath(ctx);
+        String jdbcUrl = "jdbc:sqlite:" + dbPath;
+        ctx.log("[StockContext] SQLite DB = " + jdbcUrl);
+
+        // 2) DAO 생성 + 스키마 마이그레이션 (커넥션 풀 크기는 sqlite.pool.* context-param)
+        int readers = intParam(ctx, "sqlite.pool.readers", SqlitePool.DEFAULT_READERS);
+        long acquireMs = intParam(ctx, "sqlite.pool.acquireTimeoutMs", (int) SqlitePool.DEFAULT_ACQUIRE_TIMEOUT_MS);
+        int stmtCache = intParam(ctx, "sqlite.pool.statementCache", SqlitePool.DEFAULT_STATEMENT_CACHE);
+        ctx.log("[StockContext] pool readers=" + readers + ", acquireTimeoutMs=" + acquireMs
+                + ", statementCache=" + stmtCache);
+        StockDao dao = new StockDao(jdbcUrl, readers, acquireMs, stmtCache);
+        startup.phase("openAndMigrate");
+
+        // 3) 커넥션별 튜닝 PRAGMA (mmap_size, cache_size), journal_mode 는 풀이 WAL 로 연다
+        List<String> pragmas = new ArrayList<>();
+        long mmap = longParam(ctx, "sqlite.mmapSizeBytes", DEFAULT_MMAP_SIZE);
+        int cacheKb = intParam(ctx, "sqlite.cacheSizeKb", DEFAULT_CACHE_SIZE_KB);
+        if (mmap >= 0) pragmas.add("mmap_size=" + mmap);
+        if (cacheKb > 0) pragmas.add("cache_size=-" + cacheKb);   // 음수 = KiB 단위
+        dao.pool().tune(pragmas);
+        String journal = dao.pool().pragma("journal_mode");
+        if (!"wal".equalsIgnoreCase(journal)) ctx.log("[StockContext] 경고: journal_mode=" + journal + " (WAL 아님)");
+        startup.schema(dao.schemaVersion(), journal);
+        ctx.log("[StockContext] schema version=" + dao.schemaVersion() + ", journal_mode=" + journal
+                + ", pragmas=" + pragmas);
+        startup.phase("tune");
+
+        // 4) 그룹 커밋 (선택): 동시 쓰기를 모아 한 트랜잭션으로 커밋
+        if (Boolean.parseBoolean(ctx.getInitParameter("sqlite.groupCommit.enabled"))) {
+            int maxBatch = intParam(ctx, "sqlite.groupCommit.maxBatch", GroupCommitWriter.DEFAULT_MAX_BATCH);
+            int maxDelay = intParam(ctx, "sqlite.groupCommit.maxDelayMs", (int) GroupCommitWriter.DEFAULT_MAX_DELAY_MS);
+            dao.enableGroupCommit(maxBatch, maxDelay);
+            ctx.log("[StockContext] group commit maxBatch=" + maxBatch + ", maxDelayMs=" + maxDelay);
+        }
+        // 5) create_date epoch 밀리초 저장 (선택, 한 번 켜면 기존 텍스트 행도 변환)
+        if (Boolean.parseBoolean(ctx.getInitParameter("sqlite.createDate.epochMillis"))) {
+            long n = dao.migrateCreateDateToEpochMillis();
+            ctx.log("[StockContext] create_date -> epoch millis, converted=" + n);
+        }
+        return dao;
+    }
+
+    /*
+     * 메모리 저장소: memory.dir 의 스냅샷 + WAL 로 복구.
+     * 처음(디렉터리가 비어 있음)이면 SQLite DB 파일(sqlite.path 등과 같은 규칙)의 행으로 채운다.
+     */
+    private MemoryStockRepository openMemory(ServletContext ctx, StartupReport startup) throws Exception {
+        String dirParam = ctx.getInitParameter("memory.dir");
+        java.nio.file.Path dir = java.nio.file.Paths.get(expand(dirParam == null || dirParam.isBlank()
+                ? "${catalina.base}/data/memory" : dirParam.trim())).toAbsolutePath();
+        long intervalMs = TimeUnit.SECONDS.toMillis(intParam(ctx, "memory.snapshotIntervalSec",
+                (int) TimeUnit.MILLISECONDS.toSeconds(MemoryStockRepository.DEFAULT_SNAPSHOT_INTERVAL_MS)));
+        boolean fsync = Boolean.parseBoolean(ctx.getInitParameter("memory.fsync"));
+        ctx.log("[StockContext] memory repository dir=" + dir + ", snapshotIntervalMs=" + intervalMs
+                + ", fsync=" + fsync);
+        MemoryStockRepository repo = new MemoryStockRepository(dir, intervalMs, fsync);
+        startup.phase("recover");
+
+        if (repo.count() == 0) {
+            java.nio.file.Path dbPath = resolveDbPath(ctx);
+            try (StockDao seed = new StockDao("jdbc:sqlite:" + dbPath)) {
+                int n = repo.seed(seed.findAllOrderByInserted());
+                ctx.log("[StockContext] memory repository seeded from " + dbPath + ": rows=" + n);
+            }
+            startup.phase("seed");
+        }
+        startup.schema(0, "snapshot+wal");
+        ctx.log("[StockContext] memory repository rows=" + repo.count() + ", seq=" + repo.lastSeq()
+                + ", walBytes=" + repo.walBytes());
+        return repo;
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ServletContext ctx = sce.getServletContext();
+        ctx.removeAttribute(ATTR_STARTUP);
+        ctx.removeAttribute(ATTR_ASSETS);
+        if (maintenance != null) maintenance.shutdownNow();
+        DbExecutor executor = (DbExecutor) ctx.getAttribute(ATTR_EXECUTOR);
+        if (executor != null) {
+            ctx.log("[StockContext] " + executor);
+            executor.close();
+            ctx.removeAttribute(ATTR_EXECUTOR);
+        }
+        ValuationStats valuation = (ValuationStats) ctx.getAttribute(ATTR_VALUATION);
+        ChangeFeed feed = (ChangeFeed) ctx.getAttribute(ATTR_FEED);
+        StockRepository dao = (StockRepository) ctx.getAttribute(ATTR_DAO);
+        if (feed != null) {
+            if (dao != null) dao.removeChangeListener(feed);
+            feed.close();
+            ctx.removeAttribute(ATTR_FEED);
+        }
+        if (valuation != null) {
+            if (dao != null) dao.removeChangeListener(valuation);
+            valuation.close();
+            ctx.removeAttribute(ATTR_VALUATION);
+        }
+        TypeaheadIndex typeahead = (TypeaheadIndex) ctx.getAttribute(ATTR_TYPEAHEAD);
+        if (typeahead != null) {
+            if (dao != null) dao.removeChangeListener(typeahead);
+            typeahead.close();
+            ctx.removeAttribute(ATTR_TYPEAHEAD);
+        }
+        if (dao != null) {
+            ctx.log("[StockContext] " + dao.cache());
+            if (dao instanceof StockDao && ((StockDao) dao).groupCommit() != null) {
+                ctx.log("[StockContext] " + ((StockDao) dao).groupCommit());
+            }
+            dao.close();
+            ctx.removeAttribute(ATTR_DAO);
+        }
+    }
+
+    /** 서블릿 init() 에서 공유 DAO 조회 */
+    public static StockRepository dao(ServletContext ctx) {
+        StockRepository dao = (StockRepository) ctx.getAttribute(ATTR_DAO);
+        if (dao == null) throw new IllegalStateException("StockRepository 가 초기화되지 않았습니다(StockContextListener 확인).");
+        return dao;
+    }
+
+    /** 서블릿 init() 에서 공유 PBR/PER 통계 조회 */
+    public static ValuationStats valuation(ServletContext ctx) {
+        ValuationStats v = (ValuationStats) ctx.getAttribute(ATTR_VALUATION);
+        if (v == null) throw new IllegalStateException("ValuationStats 가 초기화되지 않았습니다(StockContextListener 확인).");
+        return v;
+    }
+
+    /** 서블릿 init() 에서 공유 자동완성 색인 조회 */
+    public static TypeaheadIndex typeahead(ServletContext ctx) {
+        TypeaheadIndex t = (TypeaheadIndex) ctx.getAttribute(ATTR_TYPEAHEAD);
+        if (t == null) throw new IllegalStateException("TypeaheadIndex 가 초기화되지 않았습니다(StockContextListener 확인).");
+        return t;
+    }
+
+    /** 서블릿 init() 에서 공유 변경 피드 조회 */
+    public static ChangeFeed feed(ServletContext ctx) {
+        ChangeFeed f = (ChangeFeed) ctx.getAttribute(ATTR_FEED);
+        if (f == null) throw new IllegalStateException("ChangeFeed 가 초기화되지 않았습니다(StockContextListener 확인).");
+        return f;
+    }
+
+    /** 서블릿 init() 에서 정적 자원 목록 조회 */
+    public static StaticAssets assets(ServletContext ctx) {
+        StaticAssets a = (StaticAssets) ctx.getAttribute(ATTR_ASSETS);
+        if (a == null) throw new IllegalStateException("StaticAssets 가 초기화되지 않았습니다(StockContextListener 확인).");
+        return a;
+    }
+
+    /** 서블릿 init() 에서 공유 DB 실행기 조회 */
+    public static DbExecutor executor(ServletContext ctx) {
+        DbExecutor ex = (DbExecutor) ctx.getAttribute(ATTR_EXECUTOR);
+        if (ex == null) throw new IllegalStateException("DbExecutor 가 초기화되지 않았습니다(StockContextListener 확인).");
+        return ex;
+    }
+
+    /**
+     * DB 파일 경로.
+     * 시스템 속성 stock.db.path > 환경 변수 STOCK_DB_PATH > context-param sqlite.path 순으로 외부 경로를 찾고
+     * (${catalina.base} 같은 시스템 속성 치환), 파일이 없으면 classpath 의 sqlite.url 파일을 초기 데이터로 복사한다.
+     * 외부 경로가 없으면 예전처럼 classpath 파일(WAR 안, 재배포 시 초기화)을 그대로 쓴다.
+     */
+    static java.nio.file.Path resolveDbPath(ServletContext ctx) throws Exception {
+        String seedName = ctx.getInitParameter("sqlite.url");
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+
+        String external = System.getProperty("stock.db.path");
+        if (external == null || external.isBlank()) external = System.getenv("STOCK_DB_PATH");
+        if (external == null || external.isBlank()) external = ctx.getInitParameter("sqlite.path");
+
+        if (external != null && !external.isBlank()) {
+            java.nio.file.Path path = java.nio.file.Paths.get(expand(external.trim())).toAbsolutePath();
+            if (!java.nio.file.Files.exists(path)) {
+                if (path.getParent() != null) java.nio.file.Files.createDirectories(path.getParent());
+                try (java.io.InputStream seed = seedName == null || seedName.isBlank()
+                        ? null : cl.getResourceAsStream(seedName)) {
+                    if (seed != null) {
+                        java.nio.file.Files.copy(seed, path);
+                        ctx.log("[StockContext] 외부 DB 파일 없음: classpath " + seedName + " 를 복사해 시작");
+                    } else {
+                        ctx.log("[StockContext] 외부 DB 파일 없음: 빈 DB 로 시작");
+                    }
+                }
+            }
+            return path;
+        }
+
+        // 외부 경로 미지정: src/main/resources 안에 있는 파일을 classpath 에서 찾기 (= main > resources > Stock.db)
+        if (seedName == null || seedName.isBlank()) {
+            throw new IllegalStateException("context-param 'sqlite.path' 와 'sqlite.url' 이 모두 비어 있습니다.");
+        }
+        java.net.URL resourceUrl = cl.getResource(seedName);
+        if (resourceUrl == null) {
+            throw new IllegalStateException("classpath 에서 DB 파일을 찾을 수 없습니다: " + seedName);
+        }
+        ctx.log("[StockContext] 경고: WAR 안의 DB 파일 사용 - 재배포하면 데이터가 초기화됩니다 (sqlite.path 지정 권장)");
+        // URL -> 실제 파일 시스템 경로 (예: /usr/local/tomcat/webapps/.../WEB-INF/classes/Stock.db)
+        return java.nio.file.Paths.get(resourceUrl.toURI());
+    }
+
+    /* ${name} -> 시스템 속성 (없으면 환경 변수) */
+    static String expand(String s) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < s.length()) {
+            int open = s.indexOf("${", i);
+            int close = open < 0 ? -1 : s.indexOf('}', open);
+            if (close < 0) {
+                sb.append(s, i, s.length());
+                break;
+            }
+            String key = s.substring(open + 2, close);
+            String v = System.getProperty(key);
+            if (v == null) v = System.getenv(key);
+            if (v == null) throw new IllegalStateException("경로의 ${" + key + "} 값을 찾을 수 없습니다: " + s);
+            sb.append(s, i, open).append(v);
+            i = close + 1;
+        }
+        return sb.toString();
+    }
+
+    static long longParam(ServletContext ctx, String name, long def) {
+        String v = ctx.getInitParameter(name);
+        if (v == null || v.isBlank()) return def;
+        try { return Long.parseLong(v.trim()); }
+        catch (NumberFormatException e) {
+            throw new IllegalStateException("context-param '" + name + "' 숫자 형식 오류: " + v, e);
+        }
+    }
+
+    static int intParam(ServletContext ctx, String name, int def) {
+        String v = ctx.getInitParameter(name);
+        if (v == null || v.isBlank()) return def;
+        try { return Integer.parseInt(v.trim()); }
+        catch (NumberFormatException e) {
+            throw new IllegalStateException("context-param '" + name + "' 숫자 형식 오류: " + v, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.project3.web;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * GET /stocks/events : 종목 변경 피드 (text/event-stream).
+ * 이벤트: insert / update / delete (data = {seq, type, before, after}), reset (전체 다시 읽기).
+ * 재연결 시 Last-Event-ID 헤더(또는 lastEventId 파라미터) 이후 이벤트를 다시 보낸다.
+ */
+public class StockEventsServlet extends HttpServlet {
+
+    private ChangeFeed feed;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            this.feed = StockContextListener.feed(getServletContext());
+        } catch (Exception e) {
+            getServletContext().log("[StockEventsServlet] init 실패", e);
+            throw new ServletException(e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/event-stream;charset=UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        // 리버스 프록시(nginx) 버퍼링 끄기
+        resp.setHeader("X-Accel-Buffering", "no");
+
+        String last = req.getHeader("Last-Event-ID");
+        if (last == null) last = req.getParameter("lastEventId");
+
+        AsyncContext ac = req.startAsync();
+        ac.setTimeout(0);
+        feed.subscribe(ac, last);
+    }
+}
@@ -1,52 +1,53 @@
 package org.example.project3.web;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.*;
-import org.example.project3.dao.StockDao;
+import org.example.project3.dao.StockRepository;
 import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.WriteResult;
+import org.example.project3.dto.StockPage;
+import org.example.project3.stats.ValuationStats;
 
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.util.List;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class StockServlet extends HttpServlet {
 
     private static final String VIEW_LIST = "/WEB-INF/views/list.jsp";
     private static final String VIEW_FORM = "/WEB-INF/views/form.jsp";
 
-    private StockDao dao;
+    /* 비동기 처리 중인 요청의 상태 (request attribute) */
+    private static final String ATTR_ASYNC = StockServlet.class.getName() + ".async";
+
+    public static final int DEFAULT_ASYNC_TIMEOUT_MS = 10_000;
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    private StockRepository dao;
+    private ValuationStats valuation;
+    private ChangeFeed feed;
+    private DbExecutor executor;
+    private int defaultPageSize = StockRepository.DEFAULT_PAGE_SIZE;
+    private long asyncTimeoutMs = DEFAULT_ASYNC_TIMEOUT_MS;
+    private int retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
 
     @Override
     public void init() throws ServletException {
         try {
-            // 1) web.xml 에서 파일 이름 읽기 (예: Stock.db)
-            String resourceName = getServletContext().getInitParameter("sqlite.url");
-            if (resourceName == null || resourceName.isBlank()) {
-                throw new IllegalStateException("context-param 'sqlite.url' 이 비어 있습니다.");
-            }
-
-            // 2) src/main/resources 안에 있는 파일을 classpath 에서 찾기
-            //    (= main > resources > Stock.db)
-            ClassLoader cl = Thread.currentThread().getContextClassLoader();
-            java.net.URL resourceUrl = cl.getResource(resourceName);
-            if (resourceUrl == null) {
-                throw new IllegalStateException("classpath 에서 DB 파일을 찾을 수 없습니다: " + resourceName);
-            }
-
-            // 3) URL -> 실제 파일 시스템 경로로 변환
-            java.nio.file.Path path = java.nio.file.Paths.get(resourceUrl.toURI());
-            String dbPath = path.toString();              // 예: /usr/local/tomcat/webapps/.../WEB-INF/classes/Stock.db
-            String jdbcUrl = "jdbc:sqlite:" + dbPath;
-
-            getServletContext().log("[StockServlet] SQLite DB = " + jdbcUrl);
-
-            // 4) DAO 생성
-            this.dao = new StockDao(jdbcUrl);
-
+            this.dao = StockContextListener.dao(getServletContext());
+            this.valuation = StockContextListener.valuation(getServletContext());
+            this.feed = StockContextListener.feed(getServletContext());
+            this.executor = StockContextListener.executor(getServletContext());
+            this.defaultPageSize = StockRepository.clampPageSize(intParam("list.pageSize", StockRepository.DEFAULT_PAGE_SIZE));
+            this.asyncTimeoutMs = intParam("async.timeoutMs", DEFAULT_ASYNC_TIMEOUT_MS);
+            this.retryAfterSeconds = intParam("async.retryAfterSeconds", DEFAULT_RETRY_AFTER_SECONDS);
         } catch (Exception e) {
             getServletContext().log("[StockServlet] init 실패", e);
             throw new ServletException(e);
@@ -63,22 +64,19 @@ public class StockServlet extends HttpServlet {
             case "":
             case "/":
             case "/list":
-                showList(req, resp);
+                // 데이터가 그대로면 조회/JSP 렌더링 없이 304
+                if (ConditionalGet.notModified(dao, req, resp)) return;
+                async(req, resp, () -> showList(req, resp));
                 break;
 
             case "/new":
                 forward(req, resp, VIEW_FORM);
                 break;
 
-            case "/edit": {
-                String code = param(req, "code");
-                if (!isBlank(code)) {
-                    StockDTO found = dao.findByCode(code); // 편의상 코드로 조회해 프리필
-                    if (found != null) req.setAttribute("prefill", found);
-                }
-                forward(req, resp, VIEW_FORM);
+            case "/edit":
+                if (ConditionalGet.notModified(dao, req, resp)) return;
+                async(req, resp, () -> showEdit(req, resp));
                 break;
-            }
 
             case "/create":
             case "/update":
@@ -99,15 +97,15 @@ public class StockServlet extends HttpServlet {
         String path = path(req);
         switch (path) {
             case "/create":
-                handleCreate(req, resp);
+                async(req, resp, () -> handleCreate(req, resp));
                 break;
 
             case "/update":
-                handleUpdate(req, resp); // ★ id 기반 업데이트
+                async(req, resp, () -> handleUpdate(req, resp)); // ★ id 기반 업데이트
                 break;
 
             case "/delete":
-                handleDelete(req, resp);
+                async(req, resp, () -> handleDelete(req, resp));
                 break;
 
             case "":
@@ -123,25 +121,140 @@ public class StockServlet extends HttpServlet {
         }
     }
 
+    /* ===== 비동기 실행 ===== */
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle() throws ServletException, IOException;
+    }
+
+    /* 응답을 한 번만 끝내기 위한 상태: 작업 스레드와 타임아웃 중 먼저 claim() 한 쪽이 응답을 쓴다 */
+    private static final class AsyncState {
+        final AsyncContext ac;
+        final AtomicBoolean claimed = new AtomicBoolean();
+        volatile Future<?> task;
+        volatile boolean dispatched;
+        volatile long dispatchNanos;
+        volatile String view;
+
+        AsyncState(AsyncContext ac) { this.ac = ac; }
+
+        boolean claim() { return claimed.compareAndSet(false, true); }
+    }
+
+    /*
+     * DAO 작업을 DbExecutor 로 넘기고 요청 스레드는 바로 반환한다.
+     * - 실행기가 가득 차면 즉시 503 + Retry-After
+     * - async.timeoutMs 안에 끝나지 않으면 작업을 취소하고 503
+     * - JSP 는 AsyncContext.dispatch 로 컨테이너 스레드에서 렌더링 (DB 스레드를 잡지 않음)
+     */
+    private void async(HttpServletRequest req, HttpServletResponse resp, Handler handler) throws IOException {
+        AsyncContext ac = req.startAsync(req, resp);
+        ac.setTimeout(asyncTimeoutMs);
+        AsyncState st = new AsyncState(ac);
+        req.setAttribute(ATTR_ASYNC, st);
+        ac.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                Future<?> f = st.task;
+                if (f != null) f.cancel(true);
+                if (st.claim()) {
+                    getServletContext().log("[ASYNC] 시간 초과(" + asyncTimeoutMs + "ms): " + req.getRequestURI());
+                    unavailable(resp, "처리 시간 초과, 잠시 후 다시 시도");
+                    ac.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                if (st.dispatched) dao.metrics().view(st.view, System.nanoTime() - st.dispatchNanos);
+            }
+
+            @Override public void onError(AsyncEvent event) { }
+            @Override public void onStartAsync(AsyncEvent event) { }
+        });
+
+        try {
+            st.task = executor.submit(() -> runHandler(st, req, resp, handler));
+        } catch (RejectedExecutionException e) {
+            if (st.claim()) {
+                unavailable(resp, "요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도");
+                ac.complete();
+            }
+        }
+    }
+
+    private void runHandler(AsyncState st, HttpServletRequest req, HttpServletResponse resp, Handler handler) {
+        try {
+            handler.handle();
+        } catch (Exception e) {
+            getServletContext().log("[ASYNC] 처리 실패: " + req.getRequestURI(), e);
+            if (st.claim()) {
+                try {
+                    resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } catch (IOException | IllegalStateException ignore) { }
+            }
+        } finally {
+            // forward/redirect 를 하지 않은 경우(또는 실패) 여기서 끝낸다
+            if (!st.dispatched) {
+                try { st.ac.complete(); } catch (IllegalStateException ignore) { }
+            }
+        }
+    }
+
+    private void unavailable(HttpServletResponse resp, String message) throws IOException {
+        if (resp.isCommitted()) return;
+        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        resp.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        resp.setContentType("text/plain;charset=UTF-8");
+        resp.getWriter().write(message);
+    }
+
+    /* 비동기 요청이면 응답을 쓸 권한을 얻는다 (이미 타임아웃으로 끝났으면 false) */
+    private static boolean claim(HttpServletRequest req) {
+        AsyncState st = (AsyncState) req.getAttribute(ATTR_ASYNC);
+        return st == null || st.claim();
+    }
+
     /* ===== Handlers ===== */
 
     private void showList(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String mode = param(req, "mode");
         String q = param(req, "q");
-
-        List<StockDTO> list;
-        if (!isBlank(q)) {
-            list = dao.search(q);
+        String after = param(req, "after");
+        int size = parseSize(param(req, "size"));
+        // 읽기 전에: 그 뒤 변경은 변경 피드가 이 위치부터 다시 보낸다 (이미 반영된 것은 페이지가 버전으로 거른다)
+        req.setAttribute("feedPosition", feed.position());
+
+        StockPage page;
+        if (ScreenParams.present(req)) {
+            page = dao.screen(ScreenParams.parse(req), after, size);
+            req.setAttribute("screenParams", ScreenParams.echo(req));
+        } else if (!isBlank(q)) {
+            page = dao.searchPage(q, after, size);
         } else if ("inserted".equalsIgnoreCase(mode)) {
-            list = dao.findAllOrderByInserted();
+            page = dao.findPageOrderByInserted(after, size);
         } else {
-            list = dao.findAllOrderByName();
+            page = dao.findPageOrderByName(after, size);
         }
 
-        req.setAttribute("stocks", list);
+        req.setAttribute("stockPage", page);
+        req.setAttribute("stocks", page.getItems());
+        req.setAttribute("pageSize", size);
+        req.setAttribute("pbrStats", valuation.pbr());
+        req.setAttribute("perStats", valuation.per());
         forward(req, resp, VIEW_LIST);
     }
 
+    private void showEdit(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String code = param(req, "code");
+        if (!isBlank(code)) {
+            StockDTO found = dao.findByCode(code); // 편의상 코드로 조회해 프리필
+            if (found != null) req.setAttribute("prefill", found);
+        }
+        forward(req, resp, VIEW_FORM);
+    }
+
     private void handleCreate(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String code = trim(req.getParameter("stockCode"));
         String name = trim(req.getParameter("stockName"));
@@ -154,54 +267,65 @@ public class StockServlet extends HttpServlet {
         }
 
         try {
-            dao.insert(new StockDTO(null, code, name, pbr, per, null));
-            redirectWithToast(req, resp, "/stocks/list", "추가 완료");
+            WriteResult r = dao.insert(new StockDTO(null, code, name, pbr, per, null));
+            redirectWithToast(req, resp, "/stocks/list",
+                    r.getStatus() == WriteResult.Status.DUPLICATE_CODE ? "추가 실패(코드 중복)" : "추가 완료");
         } catch (RuntimeException e) {
-            redirectWithToast(req, resp, "/stocks/list", "추가 실패(중복 코드 확인)");
+            redirectWithToast(req, resp, "/stocks/list", failureToast("추가", e));
         }
     }
 
+    /*
+     * 조회 없이 한 번에 수정: 코드/이름은 비우면 기존 유지(DAO 가 COALESCE),
+     * 폼이 보낸 version 과 저장된 버전이 다르면 덮어쓰지 않고 최신 값으로 다시 연 수정 화면으로 돌려보낸다.
+     */
     private void handleUpdate(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String idStr = trim(req.getParameter("id"));
         String code = trim(req.getParameter("stockCode"));
         String inName = trim(req.getParameter("stockName"));
+        String versionStr = trim(req.getParameter("version"));
         Double pbr = parseD(req.getParameter("pbr"));
         Double per = parseD(req.getParameter("per"));
 
-        getServletContext().log("[UPDATE] recv id=" + idStr + ", code=" + code + ", name=" + inName + ", pbr=" + pbr + ", per=" + per);
+        getServletContext().log("[UPDATE] recv id=" + idStr + ", version=" + versionStr + ", code=" + code
+                + ", name=" + inName + ", pbr=" + pbr + ", per=" + per);
 
         if (isBlank(idStr)) {
             redirectWithToast(req, resp, "/stocks/list", "수정 실패(id 누락)");
             return;
         }
 
-        Long id;
+        Long id, version;
         try {
             id = Long.valueOf(idStr);
+            version = isBlank(versionStr) ? null : Long.valueOf(versionStr);
         } catch (NumberFormatException nfe) {
-            redirectWithToast(req, resp, "/stocks/list", "수정 실패(id 형식 오류)");
+            redirectWithToast(req, resp, "/stocks/list", "수정 실패(id/version 형식 오류)");
             return;
         }
 
-        StockDTO current = dao.findById(id);
-        if (current == null) {
-            redirectWithToast(req, resp, "/stocks/list", "해당 항목 없음");
-            return;
-        }
-
-        if (isBlank(code)) code = current.getStockCode();      // 코드 비우면 기존 유지
-        String newName = !isBlank(inName) ? inName : current.getStockName(); // 이름 비우면 기존 유지
-
         try {
-            boolean ok = dao.updateById(id, code, newName, pbr, per);
-            getServletContext().log("[UPDATE] result=" + ok + " -> code=" + code + ", name=" + newName);
-            redirectWithToast(req, resp, "/stocks/list", ok ? "수정 완료" : "수정 실패");
+            WriteResult r = dao.updateById(id, version, isBlank(code) ? null : code, isBlank(inName) ? null : inName,
+                    pbr, per);
+            getServletContext().log("[UPDATE] " + r);
+            switch (r.getStatus()) {
+                case UPDATED:
+                    redirectWithToast(req, resp, "/stocks/list", "수정 완료");
+                    break;
+                case NOT_FOUND:
+                    redirectWithToast(req, resp, "/stocks/list", "해당 항목 없음");
+                    break;
+                case CONFLICT:
+                    redirectWithToast(req, resp,
+                            "/stocks/edit?code=" + URLEncoder.encode(r.getRow().getStockCode(), StandardCharsets.UTF_8),
+                            "수정 실패(다른 사용자가 먼저 수정함, 최신 값을 확인 후 다시 저장)");
+                    break;
+                default:
+                    redirectWithToast(req, resp, "/stocks/list", "수정 실패(코드 중복)");
+            }
         } catch (RuntimeException e) {
-            String msg = e.getMessage() != null && e.getMessage().contains("UNIQUE")
-                    ? "수정 실패(코드 중복)"
-                    : "수정 실패";
             getServletContext().log("[UPDATE] 실패: " + e.getMessage(), e);
-            redirectWithToast(req, resp, "/stocks/list", msg);
+            redirectWithToast(req, resp, "/stocks/list", failureToast("수정", e));
         }
     }
 
@@ -216,13 +340,23 @@ public class StockServlet extends HttpServlet {
             boolean ok = dao.delete(code);
             redirectWithToast(req, resp, "/stocks/list", ok ? "삭제 완료" : "해당 코드 없음");
         } catch (RuntimeException e) {
-            redirectWithToast(req, resp, "/stocks/list", "삭제 실패");
+            redirectWithToast(req, resp, "/stocks/list", failureToast("삭제", e));
         }
     }
 
+    /* 예외 원인별 토스트: DB 잠김(SQLITE_BUSY, 대기 시간 초과) / 기타 (코드 중복은 WriteResult 로 온다) */
+    private static String failureToast(String action, RuntimeException e) {
+        String m = e.getMessage() == null ? "" : e.getMessage();
+        if (m.contains("SQLITE_BUSY") || e.getCause() instanceof SQLTimeoutException) {
+            return action + " 실패(DB 사용 중, 잠시 후 다시 시도)";
+        }
+        return action + " 실패";
+    }
+
     /* ===== Redirect helpers ===== */
     private static void redirectWithToast(HttpServletRequest req, HttpServletResponse resp,
                                           String path, String toast) throws IOException {
+        if (!claim(req)) return;
         String encoded = URLEncoder.encode(toast, StandardCharsets.UTF_8);
         String base = req.getContextPath() + path;
         String url = base + (base.contains("?") ? "&" : "?") + "toast=" + encoded;
@@ -231,6 +365,10 @@ public class StockServlet extends HttpServlet {
 
     /* ===== Utils ===== */
 
+    private int intParam(String name, int def) {
+        return StockContextListener.intParam(getServletContext(), name, def);
+    }
+
     private static String path(HttpServletRequest req) {
         String p = req.getPathInfo();
         return (p == null) ? "" : p;
@@ -241,9 +379,24 @@ public class StockServlet extends HttpServlet {
         return (v == null) ? null : v.trim();
     }
 
-    private static void forward(HttpServletRequest req, HttpServletResponse resp, String view)
+    /* JSP 렌더링 시간은 경로 처리 시간과 따로 기록 (DAO 시간과 구분) */
+    private void forward(HttpServletRequest req, HttpServletResponse resp, String view)
             throws ServletException, IOException {
-        req.getRequestDispatcher(view).forward(req, resp);
+        AsyncState st = (AsyncState) req.getAttribute(ATTR_ASYNC);
+        if (st != null) {
+            if (!st.claim()) return;
+            st.view = view;
+            st.dispatchNanos = System.nanoTime();
+            st.dispatched = true;
+            st.ac.dispatch(view);
+            return;
+        }
+        long t0 = System.nanoTime();
+        try {
+            req.getRequestDispatcher(view).forward(req, resp);
+        } finally {
+            dao.metrics().view(view, System.nanoTime() - t0);
+        }
     }
 
     private static void methodNotAllowed(HttpServletResponse resp, String allowed) throws IOException {
@@ -260,6 +413,12 @@ public class StockServlet extends HttpServlet {
         return (s == null) ? null : s.trim();
     }
 
+    private int parseSize(String s) {
+        if (isBlank(s)) return defaultPageSize;
+        try { return StockRepository.clampPageSize(Integer.parseInt(s)); }
+        catch (NumberFormatException e) { return defaultPageSize; }
+    }
+
     private static Double parseD(String s) {
         s = trim(s);
         if (isBlank(s)) return null;
@@ -6,7 +6,8 @@
 <head>
     <meta charset="UTF-8"/>
     <title>주식 마스터 - 폼</title>
-    <link rel="stylesheet" href="<c:url value='/css/style.css'/>"/>
+    <%-- c:url 은 쿠키 없는 첫 요청에 ;jsessionid 를 붙여 캐시 키가 세션마다 달라지므로 컨텍스트 경로만 붙인다 --%>
+    <link rel="stylesheet" href="${pageContext.request.contextPath}${assets.url('/css/style.css')}"/>
 </head>
 <body>
 
@@ -16,11 +17,17 @@
 
 <h1>${isEdit ? '종목 수정' : '종목 추가'}</h1>
 
+<c:if test="${not empty param.toast}">
+    <div class="toast"><c:out value="${param.toast}"/></div>
+</c:if>
+
 <form method="post" action="${formAction}" class="form">
 
     <c:if test="${isEdit}">
         <!-- PK로 업데이트하기 위해 id를 숨겨서 보냄 -->
         <input type="hidden" name="id" value="${prefill.id}"/>
+        <!-- 이 화면을 연 시점의 행 버전: 그 사이 다른 사용자가 고쳤으면 저장하지 않는다 -->
+        <input type="hidden" name="version" value="${prefill.version}"/>
     </c:if>
 
     <div class="row">
@@ -8,7 +8,8 @@
 <head>
     <meta charset="UTF-8"/>
     <title>주식 마스터 - 목록</title>
-    <link rel="stylesheet" href="<c:url value='/css/style.css'/>"/>
+    <%-- c:url 은 쿠키 없는 첫 요청에 ;jsessionid 를 붙여 캐시 키가 세션마다 달라지므로 컨텍스트 경로만 붙인다 --%>
+    <link rel="stylesheet" href="${pageContext.request.contextPath}${assets.url('/css/style.css')}"/>
 </head>
 <body>
 
@@ -34,17 +35,78 @@
     <div class="toast"><c:out value="${param.toast}"/></div>
 </c:if>
 
+<%-- 입력 중 자동완성: /stocks/api/suggest (코드/이름/초성 접두사), 고르면 수정 화면으로 --%>
 <form method="get" action="<c:url value='/stocks/list'/>" class="search">
-    <input type="text" name="q" value="${param.q}" placeholder="코드/이름 검색"/>
+    <span class="suggest-box">
+        <input type="text" id="q" name="q" value="${param.q}" placeholder="코드/이름 검색 (초성 가능)" autocomplete="off"
+               data-suggest="<c:url value='/stocks/api/suggest'/>" data-edit="<c:url value='/stocks/edit'/>"/>
+        <ul id="suggest" class="suggest" hidden></ul>
+    </span>
     <button type="submit">검색</button>
 </form>
 
+<%-- PBR/PER 스크리닝: 범위가 있으면 NULL 은 제외, 값 정렬에서 NULL 은 항상 뒤 --%>
+<form method="get" action="<c:url value='/stocks/list'/>" class="screen">
+    <input type="hidden" name="screen" value="1"/>
+    PBR <input type="number" step="any" name="pbrMin" value="${fn:escapeXml(param.pbrMin)}" placeholder="최소"/>
+    ~ <input type="number" step="any" name="pbrMax" value="${fn:escapeXml(param.pbrMax)}" placeholder="최대"/>
+    PER <input type="number" step="any" name="perMin" value="${fn:escapeXml(param.perMin)}" placeholder="최소"/>
+    ~ <input type="number" step="any" name="perMax" value="${fn:escapeXml(param.perMax)}" placeholder="최대"/>
+    <label><input type="checkbox" name="exclusive" value="1" ${not empty param.exclusive ? 'checked' : ''}/> 경계 제외</label>
+    <select name="sort">
+        <option value="per" ${param.sort == 'per' ? 'selected' : ''}>PER순</option>
+        <option value="pbr" ${param.sort == 'pbr' ? 'selected' : ''}>PBR순</option>
+        <option value="name" ${param.sort == 'name' ? 'selected' : ''}>이름순</option>
+        <option value="id" ${param.sort == 'id' ? 'selected' : ''}>입력순</option>
+    </select>
+    <select name="dir">
+        <option value="asc">오름차순</option>
+        <option value="desc" ${param.dir == 'desc' ? 'selected' : ''}>내림차순</option>
+    </select>
+    <button type="submit">스크리닝</button>
+</form>
+
+<%-- 시장 전체 PBR/PER 통계 (쓰기마다 증분 갱신된 요약, 분위수는 추정값) --%>
+<c:if test="${not empty pbrStats}">
+    <table class="stats">
+        <thead>
+        <tr><th></th><th>건수</th><th>NULL</th><th>평균</th><th>p10</th><th>중앙값</th><th>p90</th><th>분포</th></tr>
+        </thead>
+        <tbody>
+        <c:forEach var="st" items="${[pbrStats, perStats]}">
+            <tr>
+                <th>${fn:toUpperCase(st.metric)}</th>
+                <td>${st.count}</td>
+                <td>${st.nulls}</td>
+                <td><fmt:formatNumber value="${st.mean}" pattern="#,##0.##"/></td>
+                <td><fmt:formatNumber value="${st.p10}" pattern="#,##0.##"/></td>
+                <td><fmt:formatNumber value="${st.median}" pattern="#,##0.##"/></td>
+                <td><fmt:formatNumber value="${st.p90}" pattern="#,##0.##"/></td>
+                <td>
+                    <c:forEach var="b" items="${st.buckets}" varStatus="vs">
+                        <c:out value="${b.label}"/>: ${b.count}<c:if test="${not vs.last}"> · </c:if>
+                    </c:forEach>
+                </td>
+            </tr>
+        </c:forEach>
+        </tbody>
+    </table>
+</c:if>
+
 <c:choose>
     <c:when test="${empty stocks}">
         <p>(데이터 없음)</p>
     </c:when>
     <c:otherwise>
-        <table>
+        <%-- 변경 피드로 행을 제자리에서 고치기 위한 정렬 정보: 검색/스크리닝 결과에는 새 행을 끼워 넣지 않는다 --%>
+        <c:choose>
+            <c:when test="${not empty screenParams or not empty param.q}"><c:set var="liveOrder" value=""/></c:when>
+            <c:when test="${param.mode == 'inserted'}"><c:set var="liveOrder" value="inserted"/></c:when>
+            <c:otherwise><c:set var="liveOrder" value="name"/></c:otherwise>
+        </c:choose>
+        <table id="stocks" data-order="${liveOrder}" data-first="${empty param.after}"
+               data-has-next="${stockPage.hasNext}" data-events="<c:url value='/stocks/events'><c:param name='lastEventId' value='${feedPosition}'/></c:url>"
+               data-edit="<c:url value='/stocks/edit'/>" data-delete="<c:url value='/stocks/delete'/>">
             <thead>
             <tr>
                 <th>ID</th>
@@ -63,7 +125,7 @@
                     <c:param name="code" value="${s.stockCode}"/>
                 </c:url>
 
-                <tr>
+                <tr data-id="${s.id}" data-version="${s.version}">
                     <td>${s.id}</td>
                     <td>${s.stockCode}</td>
                     <td>${s.stockName}</td>
@@ -82,9 +144,200 @@
             </c:forEach>
             </tbody>
         </table>
-        <p>총 <strong>${fn:length(stocks)}</strong>건</p>
+        <%-- 키셋 페이지 이동: 현재 정렬/검색 조건을 그대로 유지 --%>
+        <c:url var="firstUrl" value="/stocks/list">
+            <c:if test="${not empty param.mode}"><c:param name="mode" value="${param.mode}"/></c:if>
+            <c:if test="${not empty param.q}"><c:param name="q" value="${param.q}"/></c:if>
+            <c:forEach var="sp" items="${screenParams}"><c:param name="${sp.key}" value="${sp.value}"/></c:forEach>
+            <c:param name="size" value="${pageSize}"/>
+        </c:url>
+        <c:url var="nextUrl" value="/stocks/list">
+            <c:if test="${not empty param.mode}"><c:param name="mode" value="${param.mode}"/></c:if>
+            <c:if test="${not empty param.q}"><c:param name="q" value="${param.q}"/></c:if>
+            <c:forEach var="sp" items="${screenParams}"><c:param name="${sp.key}" value="${sp.value}"/></c:forEach>
+            <c:param name="size" value="${pageSize}"/>
+            <c:param name="after" value="${stockPage.nextCursor}"/>
+        </c:url>
+        <p class="pager">
+            총 <strong>${stockPage.total}</strong>건 중 ${fn:length(stocks)}건 표시
+            <c:if test="${not empty param.after}"><a href="${firstUrl}">처음</a></c:if>
+            <c:if test="${stockPage.hasNext}"><a href="${nextUrl}">다음</a></c:if>
+        </p>
     </c:otherwise>
 </c:choose>
 
+<script>
+(function () {
+    var input = document.getElementById('q');
+    var list = document.getElementById('suggest');
+    if (!input || !window.fetch) return;
+    var timer, seq = 0, active = -1;
+
+    function close() { list.hidden = true; active = -1; }
+    function mark(i) {
+        var items = list.children;
+        if (!items.length) return;
+        active = (i + items.length) % items.length;
+        for (var k = 0; k < items.length; k++) items[k].classList.toggle('active', k === active);
+    }
+    function render(items) {
+        list.textContent = '';
+        items.forEach(function (s) {
+            var li = document.createElement('li');
+            var a = document.createElement('a');
+            a.href = input.dataset.edit + '?code=' + encodeURIComponent(s.stockCode);
+            var code = document.createElement('span');
+            code.className = 'code';
+            code.textContent = s.stockCode;
+            a.appendChild(code);
+            a.appendChild(document.createTextNode(' ' + s.stockName));
+            li.appendChild(a);
+            list.appendChild(li);
+        });
+        active = -1;
+        list.hidden = items.length === 0;
+    }
+    // 한글 조합 중에도 input 이벤트가 오므로 조합 중인 글자까지 보낸다 (서버가 음절 구간으로 찾음)
+    input.addEventListener('input', function () {
+        clearTimeout(timer);
+        var q = input.value.trim();
+        if (!q) { close(); return; }
+        timer = setTimeout(function () {
+            var my = ++seq;
+            fetch(input.dataset.suggest + '?limit=10&q=' + encodeURIComponent(q))
+                .then(function (r) { return r.ok ? r.json() : {items: []}; })
+                .then(function (d) { if (my === seq) render(d.items); })
+                .catch(close);
+        }, 80);
+    });
+    input.addEventListener('keydown', function (e) {
+        if (list.hidden || e.isComposing) return;
+        if (e.key === 'ArrowDown') { mark(active + 1); e.preventDefault(); }
+        else if (e.key === 'ArrowUp') { mark(active - 1); e.preventDefault(); }
+        else if (e.key === 'Escape') close();
+        else if (e.key === 'Enter' && active >= 0) { location.href = list.children[active].firstChild.href; e.preventDefault(); }
+    });
+    input.addEventListener('blur', function () { setTimeout(close, 150); });
+})();
+</script>
+
+<%-- 다른 사용자의 변경을 SSE 로 받아 행 단위로 반영 (새로고침 없이) --%>
+<script>
+(function () {
+    var table = document.getElementById('stocks');
+    if (!table || !window.EventSource) return;
+    var tbody = table.tBodies[0];
+    var order = table.dataset.order;
+    var nf = new Intl.NumberFormat('ko-KR', {maximumFractionDigits: 4});
+
+    function rowOf(id) { return tbody.querySelector('tr[data-id="' + id + '"]'); }
+    function num(v) { return v == null ? '' : nf.format(v); }
+    // 서버 정렬과 같게: stock_name COLLATE NOCASE(ASCII 만 대소문자 무시), id
+    function nocase(v) { return (v || '').replace(/[A-Z]/g, function (c) { return c.toLowerCase(); }); }
+    function before(a, tr) {
+        var id = Number(tr.dataset.id);
+        if (order === 'inserted') return a.id < id;
+        var x = nocase(a.stockName), y = nocase(tr.cells[2].textContent);
+        return x < y || (x === y && a.id < id);
+    }
+
+    function build(s) {
+        var tr = document.createElement('tr');
+        tr.dataset.id = s.id;
+        for (var i = 0; i < 6; i++) tr.appendChild(document.createElement('td'));
+        var act = document.createElement('td');
+        act.className = 'actions';
+        var edit = document.createElement('a');
+        edit.href = table.dataset.edit + '?code=' + encodeURIComponent(s.stockCode);
+        edit.textContent = '수정';
+        var form = document.createElement('form');
+        form.method = 'post';
+        form.action = table.dataset.delete;
+        form.style.display = 'inline';
+        form.onsubmit = function () { return confirm('삭제할까요?'); };
+        var code = document.createElement('input');
+        code.type = 'hidden';
+        code.name = 'code';
+        var btn = document.createElement('button');
+        btn.type = 'submit';
+        btn.textContent = '삭제';
+        form.appendChild(code);
+        form.appendChild(btn);
+        act.appendChild(edit);
+        act.appendChild(document.createTextNode(' '));
+        act.appendChild(form);
+        tr.appendChild(act);
+        return tr;
+    }
+
+    function fill(tr, s) {
+        var c = tr.cells;
+        if (s.version != null) tr.dataset.version = s.version;
+        c[0].textContent = s.id;
+        c[1].textContent = s.stockCode;
+        c[2].textContent = s.stockName;
+        c[3].textContent = num(s.pbr);
+        c[4].textContent = num(s.per);
+        if (s.createDate != null) c[5].textContent = s.createDate;
+        var a = c[6].querySelector('a');
+        if (a) a.href = table.dataset.edit + '?code=' + encodeURIComponent(s.stockCode);
+        var code = c[6].querySelector('input[name=code]');
+        if (code) code.value = s.stockCode;
+        tr.classList.add('changed');
+        setTimeout(function () { tr.classList.remove('changed'); }, 1500);
+    }
+
+    // 이 페이지 범위 안이면 정렬 위치에 끼워 넣는다
+    function place(tr, s) {
+        if (!order) return false;
+        var rows = tbody.rows;
+        for (var i = 0; i < rows.length; i++) {
+            if (before(s, rows[i])) {
+                if (i === 0 && table.dataset.first !== 'true') return false;
+                tbody.insertBefore(tr, rows[i]);
+                return true;
+            }
+        }
+        if (table.dataset.hasNext === 'true') return false;
+        tbody.appendChild(tr);
+        return true;
+    }
+
+    // 이미 그린 것보다 오래된 변경(렌더링 전에 커밋된 것의 재전송 등)은 버린다
+    function stale(tr, s) {
+        return tr && s.version != null && tr.dataset.version && s.version <= Number(tr.dataset.version);
+    }
+
+    function upsert(s) {
+        var tr = rowOf(s.id);
+        if (stale(tr, s)) return;
+        var moved = tr && order === 'name' && nocase(tr.cells[2].textContent) !== nocase(s.stockName);
+        if (tr && !moved) {
+            fill(tr, s);
+            return;
+        }
+        if (tr) {
+            tbody.removeChild(tr);
+            if (s.createDate == null) s.createDate = tr.cells[5].textContent;
+        } else {
+            tr = build(s);
+        }
+        if (place(tr, s)) fill(tr, s);
+    }
+
+    var es = new EventSource(table.dataset.events);
+    function on(type, fn) {
+        es.addEventListener(type, function (e) { fn(JSON.parse(e.data)); });
+    }
+    on('insert', function (d) { upsert(d.after); });
+    on('update', function (d) { upsert(d.after); });
+    on('delete', function (d) {
+        var tr = rowOf(d.before.id);
+        if (tr) tbody.removeChild(tr);
+    });
+    on('reset', function () { es.close(); location.reload(); });
+})();
+</script>
+
 </body>
 </html>
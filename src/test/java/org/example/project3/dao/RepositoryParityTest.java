@@ -0,0 +1,128 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.StockPage;
+import org.example.project3.dto.WriteResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 같은 데이터와 같은 요청에 SQLite 저장소와 메모리 저장소가 같은 답을 내는지 */
+class RepositoryParityTest {
+
+    /* 코드, 이름: 대소문자만 다른 이름(NOCASE 동률 -> id 순), 이름에 코드가 든 행, 한글 */
+    private static final String[][] ROWS = {
+            {"A100", "Samsung Electronics"}, {"A101", "samsung SDI"}, {"A102", "SAMSUNG Bio"},
+            {"B200", "삼성전자"}, {"B201", "삼성전기"}, {"B202", "LG전자"}, {"B203", "현대차"},
+            {"C300", "A100 Holdings"}, {"C301", "abc"}, {"C302", "ABC"}, {"C303", "Abc"},
+            {"D400", "a10 Capital"}, {"D401", "전자부품"}, {"D402", "Samsung"},
+    };
+
+    @TempDir
+    Path dir;
+
+    private StockDao sqlite;
+    private MemoryStockRepository memory;
+
+    @BeforeEach
+    void open() {
+        sqlite = new StockDao("jdbc:sqlite:" + dir.resolve("stocks.db"));
+        memory = new MemoryStockRepository(dir.resolve("memory"), 0, false);
+        for (String[] r : ROWS) {
+            for (StockRepository repo : List.<StockRepository>of(sqlite, memory)) {
+                assertEquals(WriteResult.Status.CREATED,
+                        repo.insert(new StockDTO(null, r[0], r[1], 1.0, 2.0, null)).getStatus());
+            }
+        }
+    }
+
+    @AfterEach
+    void close() {
+        sqlite.close();
+        memory.close();
+    }
+
+    @Test
+    void searchPagesAndCursorsMatch() {
+        // 둘 다 비어서 같은 것이 아니도록
+        assertEquals(ROWS.length, sqlite.searchCount(""));
+        assertEquals(4, sqlite.searchCount("sam"));
+        assertEquals(3, sqlite.searchCount("전자"));
+        assertEquals(2, sqlite.searchCount("A100"));
+        // "" = 이름순, 2글자 = LIKE 경로, 3글자 이상 = FTS 경로(SQLite)
+        for (String kw : new String[]{"", "A1", "A100", "sam", "SAMSUNG", "전자", "삼성전", "abc", "zzz"}) {
+            for (int size : new int[]{1, 2, 5, 50}) {
+                List<String> a = pages(sqlite, kw, size), b = pages(memory, kw, size);
+                assertEquals(a, b, "kw=" + kw + ", size=" + size);
+            }
+            assertEquals(sqlite.searchCount(kw), memory.searchCount(kw), "count kw=" + kw);
+        }
+    }
+
+    /* 모든 페이지를 따라가며 (id 목록 | 다음 커서 | 전체 건수) */
+    private static List<String> pages(StockRepository repo, String kw, int size) {
+        List<String> out = new ArrayList<>();
+        String cursor = null;
+        do {
+            StockPage p = repo.searchPage(kw, cursor, size);
+            List<Long> ids = new ArrayList<>();
+            for (StockDTO d : p.getItems()) ids.add(d.getId());
+            out.add(ids + " | " + p.getNextCursor() + " | " + p.getTotal());
+            cursor = p.getNextCursor();
+            assertTrue(out.size() <= ROWS.length + 1, "커서가 끝나지 않음");
+        } while (cursor != null);
+        return out;
+    }
+
+    @Test
+    void updateByIdStatusesMatch() {
+        long id1 = memory.findByCode("A100").getId(), id2 = memory.findByCode("A101").getId();
+        assertEquals(id1, sqlite.findByCode("A100").getId());
+        assertEquals(id2, sqlite.findByCode("A101").getId());
+
+        Object[][] cases = {
+                // id, 기대 버전, 코드, 이름, PBR, PER, 기대 상태
+                {id1, 1L, null, "새 이름", 3.0, null, WriteResult.Status.UPDATED},
+                {id1, 1L, null, "늦은 쓰기", null, null, WriteResult.Status.CONFLICT},
+                {999_999L, null, null, "x", null, null, WriteResult.Status.NOT_FOUND},
+                {null, null, null, "x", null, null, WriteResult.Status.NOT_FOUND},
+                {id1, null, "A101", null, null, null, WriteResult.Status.DUPLICATE_CODE},
+                {id1, 2L, "A100", null, 1.0, 1.0, WriteResult.Status.UPDATED},
+                {id1, null, "Z900", null, null, 4.0, WriteResult.Status.UPDATED},
+                {id2, 99L, "Z900", null, null, null, WriteResult.Status.CONFLICT},
+                {id2, 1L, "Z900", null, null, null, WriteResult.Status.DUPLICATE_CODE},
+                {id2, 1L, "A100", "코드 재사용", null, null, WriteResult.Status.UPDATED},
+        };
+        for (Object[] c : cases) {
+            WriteResult a = apply(sqlite, c), b = apply(memory, c);
+            String label = Arrays.toString(c);
+            assertEquals(c[6], a.getStatus(), "sqlite " + label);
+            assertEquals(describe(a), describe(b), label);
+        }
+        assertNotNull(sqlite.findByCode("Z900"));
+        assertEquals(describe(WriteResult.updated(sqlite.findByCode("A100"))),
+                describe(WriteResult.updated(memory.findByCode("A100"))));
+    }
+
+    private static WriteResult apply(StockRepository repo, Object[] c) {
+        return repo.updateById((Long) c[0], (Long) c[1], (String) c[2], (String) c[3], (Double) c[4], (Double) c[5]);
+    }
+
+    /* 비교용: 상태와 행 내용 (생성 시각 제외) */
+    private static String describe(WriteResult r) {
+        StockDTO d = r.getRow();
+        if (d == null) return r.getStatus().name();
+        return r.getStatus() + " " + d.getId() + " " + d.getStockCode() + " " + d.getStockName() + " "
+                + d.getPbr() + " " + d.getPer() + " v" + d.getVersion();
+    }
+}
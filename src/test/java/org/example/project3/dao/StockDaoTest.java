@@ -0,0 +1,184 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.StockChange;
+import org.example.project3.dto.StockDTO;
+import org.example.project3.dto.StockPage;
+import org.example.project3.dto.WriteResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * StockDao: 이름이 NULL 인 행이 스트리밍 청크/페이지 경계에 걸릴 때, updateById 결과 분류와 변경 알림의 이전 값,
+ * create_date 변환의 진행 표시
+ */
+class StockDaoTest {
+
+    private static final String[] NAMES = {"b", "A", "c", "가", "B", "a", ""};
+
+    @TempDir
+    Path dir;
+
+    private StockDao dao;
+
+    @AfterEach
+    void close() {
+        if (dao != null) dao.close();
+    }
+
+    /* 예전 데이터처럼 이름이 NULL 인 행을 DAO 를 거치지 않고 넣는다 (스냅샷은 처음 읽을 때 만들어진다) */
+    private StockDao open(String file, int nulls) throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve(file);
+        StockDao d = new StockDao(url);
+        try (Connection c = DriverManager.getConnection(url)) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO Stocks (stock_code, stock_name) VALUES (?, ?)")) {
+                // 이름 있는 행을 NULL 행 사이사이에 넣어 id 순과 이름순이 다르게
+                int total = nulls + NAMES.length, step = total / NAMES.length;
+                for (int i = 0; i < total; i++) {
+                    boolean named = i % step == 0 && i / step < NAMES.length;
+                    ps.setString(1, String.format("C%05d", i));
+                    ps.setString(2, named ? NAMES[i / step] : null);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+        }
+        return d;
+    }
+
+    @Test
+    void streamsAndPagesCrossNullNameBoundaries() throws SQLException {
+        // 첫 청크가 마지막 NULL 행에서 끝나는 경우, NULL 행 한가운데서 끝나는 경우
+        for (int nulls : new int[]{StockDao.STREAM_CHUNK - 2, StockDao.STREAM_CHUNK + 5}) {
+            if (dao != null) dao.close();
+            dao = open("nulls-" + nulls + ".db", nulls);
+            List<Long> expected = ids(dao.findAllOrderByName());
+            assertEquals(nulls + NAMES.length, expected.size());
+
+            List<Long> streamed = new ArrayList<>();
+            assertEquals(expected.size(), dao.streamAllOrderByName(d -> streamed.add(d.getId())));
+            assertEquals(expected, streamed, "이름순 스트림, nulls=" + nulls);
+
+            // "C" 는 모든 코드의 접두사: 순위가 모두 같아 이름순과 같은 순서
+            List<Long> searched = new ArrayList<>();
+            dao.streamSearch("C", d -> searched.add(d.getId()));
+            assertEquals(expected, searched, "검색 스트림, nulls=" + nulls);
+
+            for (int size : new int[]{7, 100}) {
+                assertEquals(expected, walk(cursor -> dao.findPageOrderByName(cursor, size)), "이름순 페이지, size=" + size);
+                assertEquals(expected, walk(cursor -> dao.searchPage("C", cursor, size)), "검색 페이지, size=" + size);
+            }
+        }
+    }
+
+    @Test
+    void updateByIdClassifiesAndReportsBeforeImage() throws SQLException {
+        dao = open("update.db", 0);
+        List<StockChange> changes = new ArrayList<>();
+        dao.addChangeListener(changes::add);
+        long id = dao.findByCode("C00000").getId(), other = dao.findByCode("C00001").getId();
+
+        Object[][] cases = {
+                // id, 기대 버전, 코드, 이름, PBR, 기대 상태, 이전 이름 (null = 알림 없음)
+                {id, 1L, null, "첫 수정", 1.0, WriteResult.Status.UPDATED, "b"},
+                {id, 1L, null, "늦은 쓰기", null, WriteResult.Status.CONFLICT, null},
+                {id, null, "C00001", null, null, WriteResult.Status.DUPLICATE_CODE, null},
+                {999_999L, null, null, "x", null, WriteResult.Status.NOT_FOUND, null},
+                {other, 1L, "D00001", "둘째", 2.0, WriteResult.Status.UPDATED, "A"},
+                {id, 2L, null, "둘째 수정", null, WriteResult.Status.UPDATED, "첫 수정"},
+        };
+        for (Object[] c : cases) {
+            changes.clear();
+            WriteResult r = dao.updateById((Long) c[0], (Long) c[1], (String) c[2], (String) c[3], (Double) c[4], null);
+            String label = Arrays.toString(c);
+            assertEquals(c[5], r.getStatus(), label);
+            if (c[6] == null) {
+                assertEquals(List.of(), changes, label);
+                continue;
+            }
+            assertEquals(1, changes.size(), label);
+            StockChange ch = changes.get(0);
+            assertEquals(c[6], ch.getBefore().getStockName(), label);
+            assertEquals(r.getRow().getVersion() - 1, (long) ch.getBefore().getVersion(), label);
+            assertEquals(r.getRow().getStockName(), ch.getAfter().getStockName(), label);
+        }
+        assertEquals(WriteResult.Status.CONFLICT, dao.updateById(id, 2L, null, "x", null, null).getStatus());
+
+        // 가져오기 동안은 트리거를 끄고(행 단위 알림 없음), 끝나면 다시 켜져 다음 수정의 이전 값이 가져온 값이어야 한다
+        changes.clear();
+        dao.importCsv(new StringReader("C00000,가져온 이름,5,6\n"), ',');
+        assertEquals(List.of(), changes);
+        assertEquals(WriteResult.Status.UPDATED, dao.updateById(id, 4L, null, "가져온 뒤", null, null).getStatus());
+        assertEquals(1, changes.size());
+        assertEquals("가져온 이름", changes.get(0).getBefore().getStockName());
+        assertEquals(5.0, changes.get(0).getBefore().getPbr());
+        assertNull(changes.get(0).getAfter().getPbr());
+    }
+
+    @Test
+    void createDateMigrationResumesFromCheckedId() throws SQLException {
+        dao = open("epoch.db", 2500);
+        int total = 2500 + NAMES.length;
+        assertEquals(total, dao.migrateCreateDateToEpochMillis());
+        // 확인한 id 까지는 다시 훑지 않는다
+        assertEquals(0, dao.migrateCreateDateToEpochMillis());
+        assertEquals(Long.valueOf(total), meta("create_date.epoch.checkedId"));
+
+        // 표시 뒤에 (이전 버전이) 넣은 텍스트 시각 행만 변환
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("epoch.db"));
+             PreparedStatement ps = c.prepareStatement("INSERT INTO Stocks (stock_code, stock_name) VALUES (?, ?)")) {
+            for (int i = 0; i < 3; i++) {
+                ps.setString(1, "T" + i);
+                ps.setString(2, "텍스트 " + i);
+                ps.executeUpdate();
+            }
+        }
+        assertEquals(3, dao.migrateCreateDateToEpochMillis());
+        assertEquals(Long.valueOf(total + 3), meta("create_date.epoch.checkedId"));
+        assertEquals(0, dao.migrateCreateDateToEpochMillis());
+    }
+
+    private Long meta(String key) throws SQLException {
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("epoch.db"));
+             PreparedStatement ps = c.prepareStatement("SELECT value FROM Stocks_meta WHERE key = ?")) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    private static List<Long> walk(Function<String, StockPage> page) {
+        List<Long> out = new ArrayList<>();
+        String cursor = null;
+        do {
+            StockPage p = page.apply(cursor);
+            out.addAll(ids(p.getItems()));
+            cursor = p.getNextCursor();
+        } while (cursor != null);
+        return out;
+    }
+
+    private static List<Long> ids(List<StockDTO> rows) {
+        List<Long> out = new ArrayList<>();
+        for (StockDTO d : rows) out.add(d.getId());
+        return out;
+    }
+}
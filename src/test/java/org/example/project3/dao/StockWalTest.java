@@ -0,0 +1,211 @@
+package org.example.project3.dao;
+
+import org.example.project3.dto.StockDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** StockWal 복구: 잘린 꼬리, 중간 파일 손상, 스냅샷 형식 1 -> 2, PUT / PUT_VERSIONED 재생 */
+class StockWalTest {
+
+    @TempDir
+    Path dir;
+
+    private static StockDTO row(long id, String code, long version) {
+        return new StockDTO(id, code, "종목" + id, 1.5, null, null, version);
+    }
+
+    private static StockWal.Record put(long seq, StockDTO row) {
+        return new StockWal.Record(StockWal.PUT, seq, 0, row, 0, 0);
+    }
+
+    private Path walFile(long firstSeq) {
+        return dir.resolve(String.format("wal-%020d.log", firstSeq));
+    }
+
+    /* 복구해서 재생된 레코드 (열린 WAL 은 닫는다) */
+    private List<StockWal.Record> replay() throws IOException {
+        List<StockWal.Record> out = new ArrayList<>();
+        try (StockWal wal = new StockWal(dir, false)) {
+            wal.recover(st -> { }, out::add);
+        }
+        return out;
+    }
+
+    @Test
+    void tornTailIsTruncatedAndLaterAppendsSurvive() throws IOException {
+        try (StockWal wal = new StockWal(dir, false)) {
+            wal.recover(st -> { }, r -> { });
+            wal.append(List.of(put(1, row(1, "A", 1)), put(2, row(2, "B", 1)), put(3, row(3, "C", 1))));
+        }
+        Path first = walFile(1);
+        long good = Files.size(first);
+        // 쓰는 도중 끝난 레코드: 길이 50 이라고 적고 본문은 2바이트뿐
+        Files.write(first, new byte[]{0, 0, 0, 50, 0, 0, 0, 0, 1, 2}, StandardOpenOption.APPEND);
+
+        List<StockWal.Record> replayed = new ArrayList<>();
+        try (StockWal wal = new StockWal(dir, false)) {
+            assertEquals(3, wal.recover(st -> { }, replayed::add));
+            wal.append(List.of(put(4, row(4, "D", 1))));
+        }
+        assertEquals(List.of(1L, 2L, 3L), seqs(replayed));
+        assertEquals(good, Files.size(first));
+        assertEquals(List.of(1L, 2L, 3L, 4L), seqs(replay()));
+    }
+
+    @Test
+    void badChecksumAtTailIsDropped() throws IOException {
+        try (StockWal wal = new StockWal(dir, false)) {
+            wal.recover(st -> { }, r -> { });
+            wal.append(List.of(put(1, row(1, "A", 1)), put(2, row(2, "B", 1))));
+        }
+        Path first = walFile(1);
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length - 1] ^= 0x7f;
+        Files.write(first, bytes);
+
+        assertEquals(List.of(1L), seqs(replay()));
+    }
+
+    @Test
+    void corruptionBeforeTheLastFileFailsRecovery() throws IOException {
+        try (StockWal wal = new StockWal(dir, false)) {
+            wal.recover(st -> { }, r -> { });
+            wal.append(List.of(put(1, row(1, "A", 1)), put(2, row(2, "B", 1))));
+            wal.rotate(3);
+            wal.append(List.of(put(3, row(3, "C", 1))));
+        }
+        Path first = walFile(1);
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length - 3] ^= 0x7f;
+        Files.write(first, bytes);
+
+        IOException e = assertThrows(IOException.class, this::replay);
+        assertTrue(e.getMessage().contains("마지막 파일이 아님"), e.getMessage());
+    }
+
+    @Test
+    void formatOneSnapshotLoadsWithVersionOneAndIsRewrittenAsFormatTwo() throws IOException {
+        writeFormatOneSnapshot(2, 3, row(1, "A", 1), row(2, "B", 1));
+
+        StockWal.State[] loaded = new StockWal.State[1];
+        try (StockWal wal = new StockWal(dir, false)) {
+            assertEquals(2, wal.recover(st -> loaded[0] = st, r -> { }));
+            StockWal.State st = loaded[0];
+            assertEquals(3, st.nextId);
+            assertEquals(2, st.rows.size());
+            for (StockDTO d : st.rows) assertEquals(1L, d.getVersion());
+            assertEquals("종목1", st.rows.get(0).getStockName());
+            assertEquals(1.5, st.rows.get(0).getPbr());
+            assertNull(st.rows.get(0).getPer());
+
+            st.rows.set(1, row(2, "B", 5));
+            wal.writeSnapshot(st);
+        }
+        byte[] snap = Files.readAllBytes(dir.resolve("stocks.snap"));
+        assertEquals(2, snap[7]);
+
+        try (StockWal wal = new StockWal(dir, false)) {
+            wal.recover(st -> loaded[0] = st, r -> { });
+        }
+        assertEquals(1L, loaded[0].rows.get(0).getVersion());
+        assertEquals(5L, loaded[0].rows.get(1).getVersion());
+    }
+
+    @Test
+    void legacyPutReplaysAsVersionOneAndNewPutKeepsItsVersion() throws IOException {
+        // 버전 없는 예전 PUT 레코드 하나가 든 WAL
+        Files.write(walFile(1), frame(legacyPutBody(1, row(1, "A", 1))));
+
+        try (StockWal wal = new StockWal(dir, false)) {
+            List<StockWal.Record> replayed = new ArrayList<>();
+            assertEquals(1, wal.recover(st -> { }, replayed::add));
+            assertEquals(StockWal.PUT, replayed.get(0).op);
+            assertEquals(1L, replayed.get(0).row.getVersion());
+            assertEquals("A", replayed.get(0).row.getStockCode());
+            wal.append(List.of(put(2, row(1, "A", 7))));
+        }
+        // 새 레코드는 파일에 PUT_VERSIONED(4) 로 적힌다: [길이][CRC][종류]...
+        assertEquals(4, Files.readAllBytes(walFile(2))[8]);
+
+        List<StockWal.Record> replayed = replay();
+        assertEquals(List.of(1L, 2L), seqs(replayed));
+        assertEquals(StockWal.PUT, replayed.get(1).op);
+        assertEquals(7L, replayed.get(1).row.getVersion());
+    }
+
+    private static List<Long> seqs(List<StockWal.Record> records) {
+        List<Long> out = new ArrayList<>();
+        for (StockWal.Record r : records) out.add(r.seq);
+        return out;
+    }
+
+    /* ---- 예전 형식 직접 쓰기 (StockWal 의 writeRow 에서 버전만 뺀 것) ---- */
+
+    private static void writeLegacyRow(DataOutputStream out, StockDTO d) throws IOException {
+        out.writeLong(d.getId());
+        out.writeUTF(d.getStockCode());
+        out.writeBoolean(true);
+        out.writeUTF(d.getStockName());
+        out.writeBoolean(d.getPbr() != null);
+        if (d.getPbr() != null) out.writeDouble(d.getPbr());
+        out.writeBoolean(d.getPer() != null);
+        if (d.getPer() != null) out.writeDouble(d.getPer());
+        out.writeLong(Long.MIN_VALUE);
+    }
+
+    private static byte[] legacyPutBody(long seq, StockDTO d) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeByte(StockWal.PUT);
+        out.writeLong(seq);
+        out.writeLong(0);
+        writeLegacyRow(out, d);
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    private static byte[] frame(byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeInt(body.length);
+        out.writeInt((int) crc.getValue());
+        out.write(body);
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    private void writeFormatOneSnapshot(long lastSeq, long nextId, StockDTO... rows) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeInt(0x53544B53);
+        out.writeInt(1);
+        out.writeLong(lastSeq);
+        out.writeLong(nextId);
+        out.writeInt(rows.length);
+        for (StockDTO d : rows) writeLegacyRow(out, d);
+        out.writeInt(0);
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(buf.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        Files.write(dir.resolve("stocks.snap"), buf.toByteArray());
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.project3.search;
+
+import org.example.project3.dto.StockChange;
+import org.example.project3.dto.StockDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/** 초성/입력 중인 음절 검색, 합치기(기본 배열 + 델타) 도중의 삭제/이름 변경 */
+class TypeaheadIndexTest {
+
+    private static final String[][] ROWS = {
+            {"A1", "삼성전자"}, {"A2", "삼성전기"}, {"A3", "삼천리"}, {"A4", "삼양식품"},
+            {"B1", "닭강정"}, {"B2", "달고나"}, {"B3", "달러트리"}, {"B4", "다우기술"},
+            {"C1", "고려아연"}, {"C2", "과자나라"}, {"C3", "LG디스플레이"},
+    };
+
+    private TypeaheadIndex index;
+
+    @AfterEach
+    void close() {
+        if (index != null) index.close();
+    }
+
+    private static StockDTO row(long id, String code, String name, long version) {
+        return new StockDTO(id, code, name, null, null, null, version);
+    }
+
+    @Test
+    void hangulQueries() {
+        index = new TypeaheadIndex(sink -> {
+            for (int i = 0; i < ROWS.length; i++) sink.accept(row(i + 1, ROWS[i][0], ROWS[i][1], 1));
+        });
+        String[][] cases = {
+                // 질의, 기대 코드(정렬), 첫 결과의 종류 (null = 확인 안 함)
+                {"삼ㅅ", "A1,A2", "NAME"},          // 자음 = 다음 글자의 초성 (삼ㅁ+ㅅ 겹받침은 없음)
+                {"삼서", "A1,A2", "NAME"},          // 받침이 더 붙을 수 있는 음절
+                {"삼성전ㄱ", "A2", "NAME"},
+                {"ㅅㅅㅈ", "A1,A2", "INITIAL"},
+                {"ㅅㅊㄹ", "A3", "INITIAL"},
+                {"닭", "B1,B2", "NAME"},            // 닭 그대로, 또는 달 + 다음 글자 초성 ㄱ
+                {"달ㄱ", "B1,B2", "NAME"},          // 달 + 다음 초성 ㄱ, 또는 겹받침 ㄺ
+                {"닭가", "B1", "NAME"},
+                {"달", "B1,B2,B3", "NAME"},
+                {"다", "B1,B2,B3,B4", "NAME"},
+                {"고", "C1,C2", "NAME"},            // 고 -> 과 (겹모음)
+                {"과", "C2", "NAME"},
+                {"디스", "C3", "WORD"},
+                {"lg", "C3", "NAME"},
+                {"a1", "A1", "CODE"},
+                {"삼 성", "A1,A2", "NAME"},         // 공백은 무시
+                {"ㅎ", "", null},
+        };
+        for (String[] c : cases) {
+            List<TypeaheadIndex.Suggestion> got = index.suggest(c[0], 20);
+            assertEquals(c[1], codes(got), "q=" + c[0]);
+            if (c[2] != null) assertEquals(c[2], got.get(0).getMatch().name(), "q=" + c[0]);
+        }
+    }
+
+    @Test
+    void deleteAndRenameDuringMergeAreKept() throws InterruptedException {
+        GateRow gate = new GateRow(1, "A1", "삼성전자");
+        index = new TypeaheadIndex(sink -> {
+            sink.accept(gate);
+            sink.accept(row(2, "A2", "삼성전기", 1));
+            sink.accept(row(3, "C3", "LG디스플레이", 1));
+        });
+
+        // 합치기가 시작되도록 델타를 채운다
+        List<StockDTO> fillers = new ArrayList<>();
+        for (int i = 0; i <= TypeaheadIndex.MERGE_MIN; i++) {
+            StockDTO d = row(100 + i, "F" + i, String.format("필러-%05d", i), 1);
+            fillers.add(d);
+            index.onChange(new StockChange(StockChange.Type.INSERT, null, d));
+        }
+        // 합치기 스레드가 현재 행을 읽어 새 기본 배열을 만드는 도중에 멈춘다
+        assertTrue(gate.entered.await(10, TimeUnit.SECONDS), "합치기가 시작되지 않음");
+
+        StockDTO filler = fillers.get(0);
+        index.onChange(new StockChange(StockChange.Type.DELETE, row(2, "A2", "삼성전기", 1), null));
+        index.onChange(new StockChange(StockChange.Type.UPDATE, row(3, "C3", "LG디스플레이", 1),
+                row(3, "C3", "엘지화학", 2)));
+        index.onChange(new StockChange(StockChange.Type.UPDATE, filler,
+                row(filler.getId(), filler.getStockCode(), "바뀐필러", 2)));
+        gate.release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (index.pending() > 10) {
+            if (System.nanoTime() > deadline) fail("합치기가 끝나지 않음: " + index);
+            Thread.sleep(5);
+        }
+
+        String[][] cases = {
+                {"삼성전", "A1"},
+                {"ㅅㅅㅈㄱ", ""},
+                {"디스", ""},
+                {"lg", ""},
+                {"엘지", "C3"},
+                {"필러-00000", ""},
+                {"바뀐", "F0"},
+                {"필러-00001", "F1"},
+        };
+        for (String[] c : cases) {
+            assertEquals(c[1], codes(index.suggest(c[0], 20)), "q=" + c[0]);
+        }
+    }
+
+    private static String codes(List<TypeaheadIndex.Suggestion> list) {
+        TreeSet<String> out = new TreeSet<>();
+        for (TypeaheadIndex.Suggestion s : list) out.add(s.getStock().getStockCode());
+        return String.join(",", out);
+    }
+
+    /** 합치기 스레드가 처음 이름을 읽을 때 테스트가 풀어 줄 때까지 멈추는 행 */
+    private static final class GateRow extends StockDTO {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        GateRow(long id, String code, String name) {
+            super(id, code, name, null, null, null, 1L);
+        }
+
+        @Override
+        public String getStockName() {
+            if (Thread.currentThread().getName().equals("stock-typeahead-merge") && entered.getCount() > 0) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.getStockName();
+        }
+    }
+}